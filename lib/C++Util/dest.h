@@ -1,6 +1,7 @@
 #pragma once
 
 #include <ostream>
+#include <stdlib.h>
 #include <string>
 #include <vector>
 
@@ -35,4 +36,6 @@ class Destinations {
     void setFailed(int i) {dests[i].failcount++;}
     void setSucceeded(int i) {dests[i].failcount=0;}
     int getFailCount(int i) const { return dests[i].failcount; }
+    // True if host is an IPv4 multicast group (224.0.0.0 - 239.255.255.255)
+    static bool isMulticast(const char *host) { int a=atoi(host); return a>=224 && a<=239; }
 };
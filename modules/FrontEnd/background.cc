@@ -1,4 +1,6 @@
 #include <assert.h>
+#include <string.h>
+#include <arpa/inet.h>
 #include "background.h"
 #include "parameters.h"
 #include "dbg.h"
@@ -292,3 +294,25 @@ void Background::sendMessages(lo_address &addr, int scanpt) const {
 
     lo_send(addr,"/pf/background","iifff",scanpt,range[0].size(),angleDeg,range[0][scanpt]/UNITSPERM,currentRange[scanpt]/UNITSPERM);
 }
+
+// Send /pf/background/blob OSC message with all scan points
+// Args are first scanpt, number of scanpts, angle of first point and angle step (in degrees), then blobs of background and current ranges (big-endian float32, in meters)
+void Background::sendBlob(lo_address &addr) const {
+    int n=range[0].size();
+    if (n==0)
+	return;
+    std::vector<uint32_t> bgbuf(n), currbuf(n);
+    for (int i=0;i<n;i++) {
+	float b=range[0][i]/UNITSPERM, c=currentRange[i]/UNITSPERM;
+	uint32_t u;
+	memcpy(&u,&b,sizeof(u)); bgbuf[i]=htonl(u);
+	memcpy(&u,&c,sizeof(u)); currbuf[i]=htonl(u);
+    }
+    float angle0Deg=angle[0]*180/M_PI;
+    float stepDeg=(n>1)?(angle[n-1]-angle[0])/(n-1)*180/M_PI:0;
+    lo_blob bgblob=lo_blob_new(n*sizeof(uint32_t),bgbuf.data());
+    lo_blob currblob=lo_blob_new(n*sizeof(uint32_t),currbuf.data());
+    lo_send(addr,"/pf/background/blob","iiffbb",0,n,angle0Deg,stepDeg,bgblob,currblob);
+    lo_blob_free(bgblob);
+    lo_blob_free(currblob);
+}
@@ -45,6 +45,8 @@ public:
 
     // Send /pf/background OSC message
     void sendMessages(lo_address &addr,int scanpt) const;
+    // Send whole scan as a /pf/background/blob OSC message
+    void sendBlob(lo_address &addr) const;
 
     bool isInitializing() const { return bginit>0; }
     int numRanges() const { return NRANGES-1; }  // 1 less than internal since last one is a placeholder for new values
@@ -2,6 +2,7 @@
 #include <stdlib.h>
 #include <sys/time.h>
 #include <sys/types.h>
+#include <string.h>
 #include <strings.h>
 #include <unistd.h>
 #include <fcntl.h>
@@ -89,8 +90,21 @@ FrontEnd::FrontEnd(int _nsick,float maxRange,int argc, const char *argv[]): conf
 
 	/* Start sending data to hardwired OSC destinations */
 	//	const char *targets[]={"VD","LASER"};
-	const char *targets[]={ "VIS","VD","COND","LAN","REC","COND2","VIS2","LASER"};
+	// MC is a multicast group: one copy of the stream reaches every receiver that joined it
+	const char *targets[]={ "VIS","VD","COND","LAN","REC","COND2","VIS2","LASER","MC"};
+	// Receivers that join MC whenever it is configured (the Tracker does so in its setup); sending to them directly as well would deliver every message twice
+	// Everyone else, e.g. LASER, keeps getting the stream directly
+	const char *mcMembers[]={"VD"};
+	bool haveMC=urls.getHost("MC")!=0 && urls.getPort("MC")!=-1;
 	for (unsigned int i=0;i<sizeof(targets)/sizeof(targets[0]);i++) {
+	    bool viaMC=false;
+	    for (unsigned int j=0;haveMC && j<sizeof(mcMembers)/sizeof(mcMembers[0]);j++)
+		if (strcmp(targets[i],mcMembers[j])==0)
+		    viaMC=true;
+	    if (viaMC) {
+		dbg("FrontEnd",1) << "Not sending directly to " << targets[i] << ", it receives from MC" << std::endl;
+		continue;
+	    }
 	    int clientPort=urls.getPort(targets[i]);
 	    const char *clientHost=urls.getHost(targets[i]);
 	    if (clientHost==0 || clientPort==-1)
@@ -543,6 +557,8 @@ void FrontEnd::sendInitialMessages(const char *host, int port) const {
     char cbuf[10];
     sprintf(cbuf,"%d",port);
     lo_address addr = lo_address_new(host, cbuf);
+    if (Destinations::isMulticast(host))
+	lo_address_set_ttl(addr,MULTICASTTTL);
     lo_send(addr,"/pf/started","");
     sendSetupMessages(host,port);
 }
@@ -552,6 +568,8 @@ void FrontEnd::sendSetupMessages(const char *host, int port) const {
     char cbuf[10];
     sprintf(cbuf,"%d",port);
     lo_address addr = lo_address_new(host, cbuf);
+    if (Destinations::isMulticast(host))
+	lo_address_set_ttl(addr,MULTICASTTTL);
     lo_send(addr,"/pf/set/protoversion","s",PROTOVERSION);
     std::string allargs=arglist[0];
     for (unsigned int i=1;i<arglist.size();i++)
@@ -35,6 +35,8 @@ static const int MAXBGINVISIBLE=50*2;		// If a normal background hasn't been see
 static const unsigned int MINRANGE=100;	// minimum distance from LIDAR; ranges less than this are ignored
 static const float ADJSCANBGWEIGHT=0.2;	// scaling of background probability when applying an adjacent scan's background to a point
 static const float INTERPSCANBGWEIGHT=0.2;	// scaling of background probability when interpolating between adjacent scan backgrounds
+static const bool SENDBGBLOB=true;	// Send background as whole-scan /pf/background/blob messages instead of per-point /pf/background
+static const int BGBLOBFRAMES=25;	// Send a background blob every this many frames sent
 
 // ***** Assignment
 static const float MINFORCELIKE=-10;  // Minimum likelihood to force assigning a class to the only target that is possible (otherwise a track is formed)
@@ -81,3 +83,6 @@ static const float UNGROUPDIST=1000;	// Distance to break a group
 
 // ******** Channels
 static const int NCHANNELS=16;
+
+// ******** Multicast
+static const int MULTICASTTTL=1;	// TTL of packets sent to a multicast destination (MC in urlconfig.txt); 1 stays on the local network
@@ -322,7 +322,11 @@ void SickIO::sendMessages(const char *host, int port) const {
     lo_address addr = lo_address_new(host, cbuf);
 
     // Background
-    if (bg.getRange(0).size() > 0) {
+    if (SENDBGBLOB) {
+	static int bgcnt=0;
+	if (bg.getRange(0).size() > 0 && (bgcnt++)%BGBLOBFRAMES == 0)
+	    bg.sendBlob(addr);
+    } else if (bg.getRange(0).size() > 0) {
 	static int scanpt=0;
 	// cycle through all available scanpts to send just four point/transmission, to not load network and keep things balanced
 	for (int k=0;k<4;k++) {
@@ -554,6 +554,8 @@ void World::sendMessages(Destinations &dests, double elapsed) {
 	dbg("World.sendMessages",6) << "Sending messages to " << dests.getHost(i) << ":" << dests.getPort(i) << std::endl;
 	sprintf(cbuf,"%d",dests.getPort(i));
 	lo_address a=lo_address_new(dests.getHost(i), cbuf);
+	if (Destinations::isMulticast(dests.getHost(i)))
+	    lo_address_set_ttl(a,MULTICASTTTL);
 	if (lo_send(a,"/pf/frame","i",lastframe) < 0) {
 	    std::cerr << "Failed send of /pf/frame to " << lo_address_get_url(a) << std::endl;
 	    dests.setFailed(i);
@@ -0,0 +1,29 @@
+package oscP5;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the oscP5 wire path with the GC profiler, so
+ * every result comes with its allocation rate (gc.alloc.rate.norm is bytes
+ * per operation). Keep the numbers of a run as the baseline before changing
+ * the ingest or send path.
+ * 
+ * Needs jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3 on
+ * the classpath, e.g. from modules/Tracker with the jars in $JMH:
+ *   JCP=$(ls $JMH/*.jar | tr '\n' ':')
+ *   javac -encoding ISO-8859-1 -cp $JCP -d /tmp/bench lib/oscP5/src/netP5/*.java lib/oscP5/src/oscP5/*.java bench/src/oscP5/*.java
+ *   java -cp /tmp/bench:$JCP oscP5.OscBenchmarks [regexp]
+ * The regexp selects benchmarks, e.g. OscParseBenchmark.update.
+ */
+public class OscBenchmarks {
+	public static void main(String[] args) throws Exception {
+		Options opt=new OptionsBuilder()
+				.include(args.length>0 ? args[0] : "oscP5\\.Osc.*Benchmark\\.")
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+}
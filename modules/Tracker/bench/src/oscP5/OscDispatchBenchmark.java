@@ -0,0 +1,102 @@
+package oscP5;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import netP5.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OscP5.callMethod with 40 plugs registered, about as many as the Tracker
+ * has: the plug lookup, checkMethod, the invoker and the oscEvent fallback
+ * for an already parsed message. callMethod is private, it is reached
+ * through a MethodHandle so the benchmark measures the real code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class OscDispatchBenchmark {
+	static final int PLUGS=40;
+
+	OscP5 oscP5;
+	MethodHandle callMethod;
+	OscMessage update, leg, unplugged;
+	int calls, events;
+
+	public void pfupdate(int sampnum, float elapsed, int id, float xpos, float ypos, float xvelocity, float yvelocity, float majoraxis, float minoraxis, int groupid, int groupsize, int channel) {
+		calls++;
+	}
+
+	public void pfleg(int sampnum, int id, int leg, int nlegs, float x, float y, float ex, float ey, float spd, float espd, float heading, float eheading, int visibility) {
+		calls++;
+	}
+
+	public void setint(int value) {
+		calls++;
+	}
+
+	public void setfloat(float value) {
+		calls++;
+	}
+
+	public void oscEvent(OscMessage msg) {
+		events++;
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		Logger.set(Logger.ALL, Logger.OFF);
+		OscProperties properties=new OscProperties();
+		properties.setListeningPort(0);   // Nothing is received, messages are dispatched directly
+		oscP5=new OscP5(this, properties);
+		oscP5.plug(this, "pfupdate", "/pf/update");
+		oscP5.plug(this, "pfleg", "/pf/leg");
+		for (int i=2;i<PLUGS;i++)
+			oscP5.plug(this, i%2==0 ? "setint" : "setfloat", "/pf/set/param"+i);
+		Method m=OscP5.class.getDeclaredMethod("callMethod", OscMessage.class);
+		m.setAccessible(true);
+		callMethod=MethodHandles.lookup().unreflect(m);
+		update=Payloads.received(Payloads.update());
+		leg=Payloads.received(Payloads.leg());
+		unplugged=Payloads.received(new OscMessage("/vis/range").add(1.0f).add(2.0f));
+	}
+
+	@TearDown
+	public void tearDown() {
+		oscP5.stop();
+	}
+
+	@Benchmark
+	public int update() throws Throwable {
+		callMethod.invokeExact(oscP5, update);
+		return calls;
+	}
+
+	@Benchmark
+	public int leg() throws Throwable {
+		callMethod.invokeExact(oscP5, leg);
+		return calls;
+	}
+
+	@Benchmark
+	public int unplugged() throws Throwable {
+		callMethod.invokeExact(oscP5, unplugged);
+		return events;
+	}
+}
@@ -0,0 +1,68 @@
+package oscP5;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding the Laser primitives, once through OscMessage.getBytes as the
+ * sketches and older code do and once through the reusable OscWriter that
+ * Laser uses now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class OscEncodeBenchmark {
+	float x1=-1.5f, y1=0.25f, x2=2.0f, y2=3.75f;
+	OscWriter writer=new OscWriter(1536);
+
+	@Benchmark
+	public byte[] lineMessage() {
+		OscMessage msg=new OscMessage("/laser/line");
+		msg.add(x1); msg.add(y1); msg.add(x2); msg.add(y2);
+		return msg.getBytes();
+	}
+
+	@Benchmark
+	public byte[] circleMessage() {
+		OscMessage msg=new OscMessage("/laser/circle");
+		msg.add(x1); msg.add(y1); msg.add(0.5f);
+		return msg.getBytes();
+	}
+
+	@Benchmark
+	public byte[] bezierMessage() {
+		OscMessage msg=new OscMessage("/laser/bezier/cubic");
+		msg.add(x1); msg.add(y1); msg.add(x2); msg.add(y2);
+		msg.add(y1); msg.add(x1); msg.add(y2); msg.add(x2);
+		return msg.getBytes();
+	}
+
+	@Benchmark
+	public byte[] shapeBeginMessage() {
+		OscMessage msg=new OscMessage("/laser/shape/begin");
+		msg.add(17);
+		return msg.getBytes();
+	}
+
+	@Benchmark
+	public int lineWriter() {
+		return writer.begin("/laser/line").add(x1).add(y1).add(x2).add(y2).packet().remaining();
+	}
+
+	@Benchmark
+	public int bezierWriter() {
+		return writer.begin("/laser/bezier/cubic").add(x1).add(y1).add(x2).add(y2).add(y1).add(x1).add(y2).add(x2).packet().remaining();
+	}
+}
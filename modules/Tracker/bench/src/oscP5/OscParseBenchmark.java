@@ -0,0 +1,88 @@
+package oscP5;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OscPacket.parse of the /pf messages that make up most of the ingest
+ * traffic, straight from a receive buffer as in nio mode. The *Args variants
+ * also read every argument the way the plugged Tracker methods do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class OscParseBenchmark {
+	ByteBuffer update, leg, body, bundle;
+
+	static ByteBuffer direct(byte[] bytes) {
+		ByteBuffer buffer=ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer;
+	}
+
+	@Setup
+	public void setup() {
+		update=direct(Payloads.update().getBytes());
+		leg=direct(Payloads.leg().getBytes());
+		body=direct(Payloads.body().getBytes());
+		// One frame of a person: update, body and two legs
+		OscBundle b=new OscBundle();
+		b.add(Payloads.update());
+		b.add(Payloads.body());
+		b.add(Payloads.leg());
+		b.add(Payloads.leg());
+		bundle=direct(b.getBytes());
+	}
+
+	static float sum(OscMessage msg) {
+		float sum=0;
+		String typetag=msg.typetag();
+		for (int i=0;i<typetag.length();i++)
+			sum+=typetag.charAt(i)=='i' ? msg.get(i).intValue() : msg.get(i).floatValue();
+		return sum;
+	}
+
+	@Benchmark
+	public OscPacket update() {
+		return OscPacket.parse(update, Payloads.SENDER);
+	}
+
+	@Benchmark
+	public OscPacket leg() {
+		return OscPacket.parse(leg, Payloads.SENDER);
+	}
+
+	@Benchmark
+	public OscPacket body() {
+		return OscPacket.parse(body, Payloads.SENDER);
+	}
+
+	@Benchmark
+	public OscPacket frameBundle() {
+		return OscPacket.parse(bundle, Payloads.SENDER);
+	}
+
+	@Benchmark
+	public float updateArgs() {
+		return sum((OscMessage) OscPacket.parse(update, Payloads.SENDER));
+	}
+
+	@Benchmark
+	public float bodyArgs() {
+		return sum((OscMessage) OscPacket.parse(body, Payloads.SENDER));
+	}
+}
@@ -0,0 +1,51 @@
+package oscP5;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OscPlug.checkMethod, which OscP5 runs for every plug registered on the
+ * address of a received message before invoking it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class OscPlugBenchmark {
+	OscPlug plug;
+	OscMessage update, wrongTypetag;
+
+	// Same signature as Tracker.pfupdate
+	public void pfupdate(int sampnum, float elapsed, int id, float xpos, float ypos, float xvelocity, float yvelocity, float majoraxis, float minoraxis, int groupid, int groupsize, int channel) {
+	}
+
+	@Setup
+	public void setup() {
+		plug=new OscPlug();
+		plug.plug(this, "pfupdate", "/pf/update");
+		update=Payloads.received(Payloads.update());
+		wrongTypetag=Payloads.received(new OscMessage("/pf/update").add(1).add(2).add(3));
+	}
+
+	@Benchmark
+	public boolean match() {
+		return plug.checkMethod(update, false);
+	}
+
+	@Benchmark
+	public boolean typetagMismatch() {
+		return plug.checkMethod(wrongTypetag, false);
+	}
+}
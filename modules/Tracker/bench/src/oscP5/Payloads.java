@@ -0,0 +1,39 @@
+package oscP5;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Representative /pf messages as the FrontEnd sends them, shared by the
+ * wire path benchmarks. Argument values are typical but otherwise arbitrary.
+ */
+class Payloads {
+	static final InetSocketAddress SENDER=new InetSocketAddress(InetAddress.getLoopbackAddress(), 7000);
+
+	// Tracker.pfupdate: ififfffffiii
+	static OscMessage update() {
+		return new OscMessage("/pf/update").add(1234).add(20.5f).add(17)
+				.add(1.25f).add(2.5f).add(0.1f).add(-0.2f).add(0.4f).add(0.3f)
+				.add(17).add(1).add(3);
+	}
+
+	// Tracker.pfleg: iiiiffffffffi
+	static OscMessage leg() {
+		return new OscMessage("/pf/leg").add(1234).add(17).add(0).add(2)
+				.add(1.1f).add(2.4f).add(0.02f).add(0.03f).add(0.8f).add(0.1f).add(92.5f).add(4.0f)
+				.add(12);
+	}
+
+	// Tracker.pfbody: ii fffffffffffffff i
+	static OscMessage body() {
+		return new OscMessage("/pf/body").add(1234).add(17)
+				.add(1.2f).add(2.45f).add(0.02f).add(0.03f).add(0.8f).add(0.1f).add(92.5f).add(4.0f)
+				.add(90.0f).add(10.0f).add(0.18f).add(0.02f).add(0.25f).add(0.05f).add(0.3f)
+				.add(12);
+	}
+
+	static OscMessage received(OscMessage msg) {
+		byte[] bytes=msg.getBytes();
+		return new OscMessage(bytes, SENDER.getAddress(), SENDER.getPort(), null);
+	}
+}
@@ -0,0 +1,73 @@
+package oscP5;
+
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+
+/**
+ * Compares the cost of forwarding a plugged /pf/update message through
+ * Method.invoke (the old path) and through the OscPlug MethodHandle invoker.
+ * 
+ * Run with oscP5 on the classpath, e.g. from modules/Tracker:
+ *   javac -encoding ISO-8859-1 -d /tmp/bench lib/oscP5/src/netP5/*.java lib/oscP5/src/oscP5/*.java bench/src/oscP5/PlugDispatchBenchmark.java
+ *   java -cp /tmp/bench oscP5.PlugDispatchBenchmark
+ */
+public class PlugDispatchBenchmark {
+	static final int WARMUP=2000000;
+	static final int ITERATIONS=10000000;
+
+	int calls;
+	float sum;
+
+	// Same signature as Tracker.pfupdate
+	void pfupdate(int sampnum, float elapsed, int id, float xpos, float ypos, float xvelocity, float yvelocity, float majoraxis, float minoraxis, int groupid, int groupsize, int channel) {
+		calls++;
+		sum+=xpos+ypos+id;
+	}
+
+	static OscMessage makeUpdate() {
+		OscMessage msg=new OscMessage("/pf/update");
+		msg.add(1234); msg.add(0.5f); msg.add(17);
+		msg.add(1.25f); msg.add(2.5f); msg.add(0.1f); msg.add(-0.2f);
+		msg.add(0f); msg.add(0f);
+		msg.add(17); msg.add(1); msg.add(3);
+		// Round-trip through the wire format so the message is a received one
+		byte[] bytes=msg.getBytes();
+		return new OscMessage(bytes, InetAddress.getLoopbackAddress(), 0, null);
+	}
+
+	static long reflective(OscPlug plug, OscMessage msg, int n) throws Exception {
+		Method m=plug.getMethod();
+		Object target=plug.getObject();
+		long start=System.nanoTime();
+		for (int i=0;i<n;i++)
+			m.invoke(target, msg.arguments());
+		return System.nanoTime()-start;
+	}
+
+	static long handle(OscPlug plug, OscMessage msg, int n) throws Throwable {
+		long start=System.nanoTime();
+		for (int i=0;i<n;i++)
+			plug.invoker.invokeExact(msg);
+		return System.nanoTime()-start;
+	}
+
+	public static void main(String[] args) throws Throwable {
+		PlugDispatchBenchmark target=new PlugDispatchBenchmark();
+		OscPlug plug=new OscPlug();
+		plug.plug(target, "pfupdate", "/pf/update", "ififfffffiii");
+		OscMessage msg=makeUpdate();
+		if (plug.invoker==null) {
+			System.err.println("No MethodHandle invoker was built for pfupdate");
+			System.exit(1);
+		}
+		reflective(plug, msg, WARMUP);
+		handle(plug, msg, WARMUP);
+		for (int round=0;round<3;round++) {
+			long r=reflective(plug, msg, ITERATIONS);
+			long h=handle(plug, msg, ITERATIONS);
+			System.out.println(String.format("round %d: Method.invoke %.1f ns/msg, MethodHandle %.1f ns/msg",
+					round, r*1.0/ITERATIONS, h*1.0/ITERATIONS));
+		}
+		System.out.println("calls="+target.calls+", checksum="+target.sum);
+	}
+}
@@ -98,6 +98,14 @@ public abstract class AbstractMulticast implements Runnable {
 	}
 	
 	
+	/**
+	 * the group address and port.
+	 * @return NetAddress
+	 */
+	public NetAddress netAddress() {
+		return _myNetAddress;
+	}
+
 	/**
 	 * get the running multicast socket.
 	 * @return MulticastSocket
@@ -173,7 +181,9 @@ public abstract class AbstractMulticast implements Runnable {
 				Logger.printDebug("Multicast.run()","got it.");
 				_myListener.process(myPacket, _myNetAddress.port());
 			} catch (IOException ioex) {
-				Logger.printError("UdpServer.run()", "IOException:  " + ioex);
+				if (isRunning) {
+					Logger.printError("UdpServer.run()", "IOException:  " + ioex);
+				}
 				break;
 			} catch (ArrayIndexOutOfBoundsException ex) {
 				Logger.printError("UdpServer.run()",
@@ -198,7 +208,7 @@ public abstract class AbstractMulticast implements Runnable {
 		if (_myMulticastSocket != null) {
 			try {
 				_myMulticastSocket.leaveGroup(_myNetAddress.inetaddress());
-				_myMulticastSocket.disconnect();
+				/* not disconnect(), it waits for the receive() blocked in run() and the socket is never connected. */
 				_myMulticastSocket.close();
 				_myMulticastSocket = null;
 				Logger.printProcess("Multicast.close",
@@ -0,0 +1,109 @@
+/**
+ * A network library for processing which supports UDP, TCP and Multicast.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package netP5;
+
+import java.nio.ByteBuffer;
+
+/**
+ * a fixed set of direct byte buffers that are handed out to the receiving
+ * thread and returned once a packet has been processed. buffers are allocated
+ * once, so no memory is allocated per packet.
+ * 
+ * @invisible
+ */
+public class ByteBufferPool {
+
+	private final ByteBuffer[] _myBuffers;
+
+	private final int _myBufferSize;
+
+	private int _myAvailable;
+
+	private int _myMisses = 0;
+
+	/**
+	 * @param theSize int, number of buffers in the pool
+	 * @param theBufferSize int, capacity of each buffer in bytes
+	 */
+	public ByteBufferPool(final int theSize, final int theBufferSize) {
+		_myBufferSize = theBufferSize;
+		_myBuffers = new ByteBuffer[Math.max(1, theSize)];
+		for (int i = 0; i < _myBuffers.length; i++) {
+			_myBuffers[i] = ByteBuffer.allocateDirect(theBufferSize);
+		}
+		_myAvailable = _myBuffers.length;
+	}
+
+	/**
+	 * take a cleared buffer from the pool. if the pool is exhausted a new
+	 * heap buffer is returned and counted as a miss.
+	 * 
+	 * @return ByteBuffer
+	 */
+	public synchronized ByteBuffer acquire() {
+		if (_myAvailable == 0) {
+			_myMisses++;
+			return ByteBuffer.allocate(_myBufferSize);
+		}
+		ByteBuffer myBuffer = _myBuffers[--_myAvailable];
+		_myBuffers[_myAvailable] = null;
+		myBuffer.clear();
+		return myBuffer;
+	}
+
+	/**
+	 * return a buffer to the pool. buffers that were not handed out by the
+	 * pool are dropped.
+	 * 
+	 * @param theBuffer ByteBuffer
+	 */
+	public synchronized void release(final ByteBuffer theBuffer) {
+		if (theBuffer.isDirect() && _myAvailable < _myBuffers.length) {
+			_myBuffers[_myAvailable++] = theBuffer;
+		}
+	}
+
+	/**
+	 * @return int, number of buffers currently available
+	 */
+	public synchronized int available() {
+		return _myAvailable;
+	}
+
+	/**
+	 * @return int, number of times the pool was empty on acquire
+	 */
+	public synchronized int misses() {
+		return _myMisses;
+	}
+
+	/**
+	 * @return int, capacity of each buffer in bytes
+	 */
+	public int bufferSize() {
+		return _myBufferSize;
+	}
+}
@@ -26,8 +26,12 @@
 package netP5;
 
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.channels.DatagramChannel;
 
 /**
  * NetAddress is an Object that contains an inetaddress
@@ -47,6 +51,12 @@ public class NetAddress {
 
   protected boolean isValid = false;
 
+  protected InetSocketAddress socketAddress = null;
+
+  protected volatile DatagramChannel channel = null;
+
+  protected int timeToLive = 1;
+
   /**
    *
    * @param theAddress String
@@ -94,6 +104,139 @@ public class NetAddress {
   }
 
 
+  /**
+   * the address as an InetSocketAddress for channel based sending. created
+   * once and reused.
+   *
+   * @return InetSocketAddress
+   */
+  public InetSocketAddress socketAddress() {
+    if (socketAddress == null) {
+      socketAddress = new InetSocketAddress(inetaddress, port);
+    }
+    return socketAddress;
+  }
+
+
+
+  /**
+   * open a DatagramChannel connected to this address. packets written to a
+   * connected channel skip the per packet address lookup and checks. the new
+   * channel replaces the one open before, which is closed only after the
+   * swap, so a sender holding the old channel can retry with channel().
+   *
+   * @return DatagramChannel
+   * @throws IOException
+   */
+  public synchronized DatagramChannel connect() throws IOException {
+    final DatagramChannel myChannel = DatagramChannel.open();
+    try {
+      if (isMulticast()) {
+        myChannel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, timeToLive);
+      }
+      myChannel.connect(socketAddress());
+    }
+    catch (IOException e) {
+      myChannel.close();
+      throw e;
+    }
+    final DatagramChannel myOld = channel;
+    channel = myChannel;
+    close(myOld);
+    return myChannel;
+  }
+
+
+  /**
+   * @return boolean, true for a multicast group address
+   */
+  public boolean isMulticast() {
+    return inetaddress != null && inetaddress.isMulticastAddress();
+  }
+
+
+  /**
+   * time-to-live of packets sent to a multicast group through the connected
+   * channel, 1 (the default) keeps them on the local network. applied to a
+   * channel that is already connected as well.
+   *
+   * @param theTTL int, 0 to 255
+   */
+  public synchronized void setTimeToLive(final int theTTL) {
+    timeToLive = theTTL;
+    if (channel != null && isMulticast()) {
+      try {
+        channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, theTTL);
+      }
+      catch (IOException e) {
+        Logger.printError("NetAddress.setTimeToLive", "could not set ttl for " + this + " " + e);
+      }
+    }
+  }
+
+
+  public int timeToLive() {
+    return timeToLive;
+  }
+
+
+  /**
+   *
+   * @return DatagramChannel, the connected channel or null
+   */
+  public DatagramChannel channel() {
+    return channel;
+  }
+
+
+  /**
+   * close the connected channel, if any.
+   */
+  public synchronized void close() {
+    final DatagramChannel myOld = channel;
+    channel = null;
+    close(myOld);
+  }
+
+
+  private void close(final DatagramChannel theChannel) {
+    if (theChannel != null) {
+      try {
+        theChannel.close();
+      }
+      catch (IOException e) {
+        Logger.printError("NetAddress.close", "ioexception while closing channel to " + this);
+      }
+    }
+  }
+
+
+  /**
+   * look up the host name again, e.g. after its address changed or if it
+   * could not be resolved before, and connect a channel to the new address.
+   *
+   * @return boolean, true if the host could be resolved
+   */
+  public synchronized boolean resolve() {
+    try {
+      inetaddress = InetAddress.getByName(hostAddress);
+      socketAddress = new InetSocketAddress(inetaddress, port);
+      isValid = port > 0;
+      if (isValid) {
+        connect();
+      }
+    }
+    catch (UnknownHostException e) {
+      Logger.printError("NetAddress.resolve", "no such host " + hostAddress);
+      isValid = false;
+    }
+    catch (IOException e) {
+      Logger.printError("NetAddress.resolve", "could not connect to " + this + " " + e);
+    }
+    return isValid;
+  }
+
+
 
   /**
    *returns the remote ip address as string
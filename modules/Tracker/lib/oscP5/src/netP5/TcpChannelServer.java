@@ -0,0 +1,508 @@
+/**
+ * A network library for processing which supports UDP, TCP and Multicast.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package netP5;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * a TCP server driven by a single Selector thread. the stream of each
+ * client is split into packets by length prefix (osc 1.0) or SLIP (osc 1.1)
+ * framing and every packet is handed to a UdpBufferListener together with
+ * the client's address, so it takes the same path as a received datagram.
+ * outgoing packets are framed into a bounded queue per client and written
+ * without blocking, a client that does not keep up loses packets instead
+ * of stalling the server or other clients.
+ * 
+ * @invisible
+ */
+public class TcpChannelServer implements Runnable {
+
+	/** every packet is preceded by its size as a big-endian int32. */
+	public static final int FRAMING_LENGTH = 0;
+
+	/** packets are SLIP encoded with an END byte before and after each. */
+	public static final int FRAMING_SLIP = 1;
+
+	public static final int DEFAULT_QUEUE_SIZE = 256;
+
+	private static final byte END = (byte) 0xC0;
+
+	private static final byte ESC = (byte) 0xDB;
+
+	private static final byte ESC_END = (byte) 0xDC;
+
+	private static final byte ESC_ESC = (byte) 0xDD;
+
+	/**
+	 * one connected client.
+	 */
+	public class Connection {
+
+		private final SocketChannel _myChannel;
+
+		private final InetSocketAddress _myAddress;
+
+		private SelectionKey _myKey;
+
+		private final ByteBuffer _myInput;
+
+		private final ByteBuffer _myFrame;
+
+		private boolean isEscaped = false;
+
+		private boolean isOverflowed = false;
+
+		private final ArrayDeque<ByteBuffer> _myQueue = new ArrayDeque<ByteBuffer>();
+
+		private long _myDrops = 0;
+
+		private long _myPackets = 0;
+
+		Connection(final SocketChannel theChannel) throws IOException {
+			_myChannel = theChannel;
+			_myAddress = (InetSocketAddress) theChannel.getRemoteAddress();
+			_myInput = ByteBuffer.allocate(_myMaxPacketSize + 4);
+			_myFrame = _myFraming == FRAMING_SLIP ? ByteBuffer.allocate(_myMaxPacketSize) : null;
+		}
+
+		public InetSocketAddress address() {
+			return _myAddress;
+		}
+
+		/**
+		 * @return long, outgoing packets dropped because the queue was full
+		 */
+		public synchronized long drops() {
+			return _myDrops;
+		}
+
+		/**
+		 * @return int, outgoing packets waiting to be written
+		 */
+		public synchronized int queued() {
+			return _myQueue.size();
+		}
+
+		/**
+		 * @return long, packets received from this client
+		 */
+		public long packets() {
+			return _myPackets;
+		}
+
+		synchronized boolean offer(final ByteBuffer theFrame) {
+			if (_myQueue.size() >= _myQueueSize) {
+				_myDrops++;
+				return false;
+			}
+			_myQueue.add(theFrame);
+			return true;
+		}
+
+		/* write what the socket takes, true when the queue is empty. */
+		synchronized boolean flush() throws IOException {
+			while (!_myQueue.isEmpty()) {
+				ByteBuffer myFrame = _myQueue.peek();
+				_myChannel.write(myFrame);
+				if (myFrame.hasRemaining()) {
+					return false;
+				}
+				_myQueue.poll();
+			}
+			return true;
+		}
+
+		public String toString() {
+			return "TcpChannelServer.Connection " + _myAddress;
+		}
+	}
+
+	private final UdpBufferListener _myListener;
+
+	private final int _myPort;
+
+	private final int _myFraming;
+
+	private final int _myMaxPacketSize;
+
+	private final int _myQueueSize;
+
+	private ServerSocketChannel _myServerChannel;
+
+	private Selector _mySelector;
+
+	private Thread _myThread;
+
+	private volatile boolean isRunning = false;
+
+	private final CopyOnWriteArrayList<Connection> _myConnections = new CopyOnWriteArrayList<Connection>();
+
+	private final ConcurrentLinkedQueue<Connection> _myWriteRequests = new ConcurrentLinkedQueue<Connection>();
+
+	/**
+	 * @param theListener UdpBufferListener, gets every received packet
+	 * @param thePort int
+	 * @param theFraming int, FRAMING_LENGTH or FRAMING_SLIP
+	 * @param theMaxPacketSize int, larger packets close the connection
+	 *            (length framing) or are skipped (SLIP framing)
+	 * @param theQueueSize int, packets queued per client before dropping
+	 */
+	public TcpChannelServer(final UdpBufferListener theListener, final int thePort, final int theFraming, final int theMaxPacketSize, final int theQueueSize) {
+		_myListener = theListener;
+		_myPort = thePort;
+		_myFraming = theFraming;
+		_myMaxPacketSize = theMaxPacketSize;
+		_myQueueSize = theQueueSize;
+		start();
+	}
+
+	/**
+	 * @invisible
+	 */
+	public void start() {
+		try {
+			_mySelector = Selector.open();
+			_myServerChannel = ServerSocketChannel.open();
+			_myServerChannel.configureBlocking(false);
+			_myServerChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			_myServerChannel.bind(new InetSocketAddress(_myPort));
+			_myServerChannel.register(_mySelector, SelectionKey.OP_ACCEPT);
+			Logger.printProcess("TcpChannelServer.start()", "ServerSocketChannel bound @ port " + _myPort + (_myFraming == FRAMING_SLIP ? ", slip" : ", length prefix") + " framing");
+		} catch (IOException e) {
+			Logger.printError("TcpChannelServer.start()", "couldnt bind ServerSocketChannel @ port " + _myPort + " " + e);
+			dispose();
+			return;
+		}
+		isRunning = true;
+		_myThread = new Thread(this, "TcpChannelServer@" + _myPort);
+		_myThread.setDaemon(true);
+		_myThread.start();
+	}
+
+	/**
+	 * @invisible
+	 */
+	public void run() {
+		while (isRunning) {
+			try {
+				_mySelector.select();
+				Connection myRequest;
+				while ((myRequest = _myWriteRequests.poll()) != null) {
+					if (myRequest._myKey != null && myRequest._myKey.isValid()) {
+						myRequest._myKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				Iterator<SelectionKey> it = _mySelector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey myKey = it.next();
+					it.remove();
+					if (!myKey.isValid()) {
+						continue;
+					}
+					if (myKey.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection myConnection = (Connection) myKey.attachment();
+					try {
+						if (myKey.isReadable()) {
+							read(myConnection);
+						}
+						if (myKey.isValid() && myKey.isWritable() && myConnection.flush()) {
+							myKey.interestOps(SelectionKey.OP_READ);
+						}
+					} catch (IOException e) {
+						close(myConnection);
+					} catch (RuntimeException e) {
+						/* drop only this client, the remaining keys of this select are still served. */
+						Logger.printError("TcpChannelServer.run()", "exception while reading from " + myConnection.address() + ", closing connection: " + e);
+						close(myConnection);
+					}
+				}
+			} catch (IOException e) {
+				if (isRunning) {
+					Logger.printError("TcpChannelServer.run()", "IOException: " + e);
+				}
+				break;
+			}
+		}
+		dispose();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel myChannel = _myServerChannel.accept();
+		if (myChannel == null) {
+			return;
+		}
+		myChannel.configureBlocking(false);
+		myChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		Connection myConnection = new Connection(myChannel);
+		myConnection._myKey = myChannel.register(_mySelector, SelectionKey.OP_READ, myConnection);
+		_myConnections.add(myConnection);
+		Logger.printProcess("TcpChannelServer", "client connected from " + myConnection.address() + ", " + _myConnections.size() + " connected.");
+	}
+
+	private void read(final Connection theConnection) throws IOException {
+		ByteBuffer myInput = theConnection._myInput;
+		if (theConnection._myChannel.read(myInput) < 0) {
+			close(theConnection);
+			return;
+		}
+		myInput.flip();
+		if (_myFraming == FRAMING_SLIP) {
+			try {
+				unslip(theConnection, myInput);
+			} finally {
+				myInput.clear();
+			}
+			return;
+		}
+		try {
+			while (myInput.remaining() >= 4) {
+				final int mySize = myInput.getInt(myInput.position());
+				if (mySize < 0 || mySize > _myMaxPacketSize) {
+					Logger.printError("TcpChannelServer.read", "packet size " + mySize + " from " + theConnection.address() + " out of range, closing connection.");
+					close(theConnection);
+					return;
+				}
+				if (myInput.remaining() < 4 + mySize) {
+					break;
+				}
+				final int myEnd = myInput.position() + 4 + mySize;
+				final int myLimit = myInput.limit();
+				myInput.position(myInput.position() + 4);
+				myInput.limit(myEnd);
+				deliver(theConnection, myInput);
+				myInput.limit(myLimit);
+				myInput.position(myEnd);
+			}
+		} finally {
+			/* always keep the unread tail, so a failure above cannot leave the buffer flipped. */
+			myInput.compact();
+		}
+	}
+
+	private void unslip(final Connection theConnection, final ByteBuffer theInput) {
+		ByteBuffer myFrame = theConnection._myFrame;
+		while (theInput.hasRemaining()) {
+			byte b = theInput.get();
+			if (b == END) {
+				if (myFrame.position() > 0 && !theConnection.isOverflowed) {
+					myFrame.flip();
+					deliver(theConnection, myFrame);
+				}
+				myFrame.clear();
+				theConnection.isEscaped = false;
+				theConnection.isOverflowed = false;
+				continue;
+			}
+			if (theConnection.isEscaped) {
+				b = b == ESC_END ? END : b == ESC_ESC ? ESC : b;
+				theConnection.isEscaped = false;
+			} else if (b == ESC) {
+				theConnection.isEscaped = true;
+				continue;
+			}
+			if (!myFrame.hasRemaining()) {
+				if (!theConnection.isOverflowed) {
+					Logger.printWarning("TcpChannelServer.read", "packet from " + theConnection.address() + " larger than " + _myMaxPacketSize + " bytes, skipped.");
+				}
+				theConnection.isOverflowed = true;
+				myFrame.clear();
+			}
+			myFrame.put(b);
+		}
+	}
+
+	/* a listener that throws only loses its own packet, the frames after it in the same read are still delivered. */
+	private void deliver(final Connection theConnection, final ByteBuffer thePacket) {
+		theConnection._myPackets++;
+		try {
+			_myListener.process(thePacket, theConnection.address(), _myPort);
+		} catch (RuntimeException e) {
+			Logger.printError("TcpChannelServer.deliver", "exception while processing packet from " + theConnection.address() + ": " + e);
+		}
+	}
+
+	private void close(final Connection theConnection) {
+		_myConnections.remove(theConnection);
+		if (theConnection._myKey != null) {
+			theConnection._myKey.cancel();
+		}
+		try {
+			theConnection._myChannel.close();
+		} catch (IOException e) {
+			Logger.printDebug("TcpChannelServer.close", "close() " + e);
+		}
+		Logger.printProcess("TcpChannelServer", "client " + theConnection.address() + " disconnected, " + _myConnections.size() + " connected.");
+	}
+
+	/* frame a packet from its position to its limit, which are left unchanged. */
+	private ByteBuffer frame(final ByteBuffer thePacket) {
+		final int myStart = thePacket.position();
+		final int myLength = thePacket.remaining();
+		ByteBuffer myFrame;
+		if (_myFraming == FRAMING_LENGTH) {
+			myFrame = ByteBuffer.allocate(4 + myLength);
+			myFrame.putInt(myLength);
+			for (int i = 0; i < myLength; i++) {
+				myFrame.put(thePacket.get(myStart + i));
+			}
+		} else {
+			myFrame = ByteBuffer.allocate(2 * myLength + 2);
+			myFrame.put(END);
+			for (int i = 0; i < myLength; i++) {
+				byte b = thePacket.get(myStart + i);
+				if (b == END) {
+					myFrame.put(ESC).put(ESC_END);
+				} else if (b == ESC) {
+					myFrame.put(ESC).put(ESC_ESC);
+				} else {
+					myFrame.put(b);
+				}
+			}
+			myFrame.put(END);
+		}
+		myFrame.flip();
+		return myFrame;
+	}
+
+	private void enqueue(final Connection theConnection, final ByteBuffer theFrame) {
+		if (theConnection.offer(theFrame)) {
+			_myWriteRequests.add(theConnection);
+		}
+	}
+
+	/**
+	 * send a packet to every connected client.
+	 * 
+	 * @param thePacket ByteBuffer, from its position to its limit, which are
+	 *            left unchanged
+	 */
+	public void send(final ByteBuffer thePacket) {
+		if (_myConnections.isEmpty()) {
+			return;
+		}
+		ByteBuffer myFrame = frame(thePacket);
+		for (Connection myConnection : _myConnections) {
+			enqueue(myConnection, myFrame.duplicate());
+		}
+		_mySelector.wakeup();
+	}
+
+	/**
+	 * send a packet to the client connected from theAddress.
+	 * 
+	 * @param thePacket ByteBuffer
+	 * @param theAddress InetSocketAddress
+	 * @return boolean, false if there is no such client or its queue is full
+	 */
+	public boolean send(final ByteBuffer thePacket, final InetSocketAddress theAddress) {
+		for (Connection myConnection : _myConnections) {
+			if (myConnection.address().equals(theAddress)) {
+				boolean isQueued = myConnection.offer(frame(thePacket));
+				if (isQueued) {
+					_myWriteRequests.add(myConnection);
+					_mySelector.wakeup();
+				}
+				return isQueued;
+			}
+		}
+		return false;
+	}
+
+	public void send(final byte[] theBytes) {
+		send(ByteBuffer.wrap(theBytes));
+	}
+
+	/**
+	 * @param theAddress InetSocketAddress
+	 * @return boolean, true if a client is connected from theAddress
+	 */
+	public boolean isConnected(final InetSocketAddress theAddress) {
+		for (Connection myConnection : _myConnections) {
+			if (myConnection.address().equals(theAddress)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Connection[], the currently connected clients
+	 */
+	public Connection[] connections() {
+		return _myConnections.toArray(new Connection[0]);
+	}
+
+	public int size() {
+		return _myConnections.size();
+	}
+
+	public int port() {
+		return _myPort;
+	}
+
+	/**
+	 * close all connections and stop the server.
+	 */
+	public void dispose() {
+		final boolean wasRunning = isRunning;
+		isRunning = false;
+		if (_mySelector != null && Thread.currentThread() != _myThread && wasRunning) {
+			/* let the selector thread shut down */
+			_mySelector.wakeup();
+			return;
+		}
+		for (Connection myConnection : _myConnections) {
+			close(myConnection);
+		}
+		try {
+			if (_myServerChannel != null) {
+				_myServerChannel.close();
+			}
+			if (_mySelector != null) {
+				_mySelector.close();
+			}
+		} catch (IOException e) {
+			Logger.printDebug("TcpChannelServer.dispose()", "close() " + e);
+		}
+		_myServerChannel = null;
+		_mySelector = null;
+		Logger.printProcess("TcpChannelServer", "stopped @ port " + _myPort);
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * A network library for processing which supports UDP, TCP and Multicast.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package netP5;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * a UDP server based on a DatagramChannel. incoming datagrams are received
+ * into direct byte buffers taken from a ByteBufferPool and handed to a
+ * UdpBufferListener without being copied into a byte array first.
+ * 
+ * @invisible
+ */
+public class UdpChannelServer implements Runnable {
+
+	private DatagramChannel _myChannel = null;
+
+	protected UdpBufferListener _myListener;
+
+	protected ByteBufferPool _myPool;
+
+	private Thread _myThread = null;
+
+	private int _myPort;
+
+	private volatile boolean isRunning = false;
+
+	/**
+	 * @param theListener UdpBufferListener
+	 * @param thePort int
+	 * @param theBufferSize int
+	 * @param thePoolSize int
+	 */
+	public UdpChannelServer(final UdpBufferListener theListener, final int thePort, final int theBufferSize, final int thePoolSize) {
+		_myListener = theListener;
+		_myPort = thePort;
+		_myPool = new ByteBufferPool(thePoolSize, theBufferSize);
+		start();
+	}
+
+	/**
+	 * get the datagram channel of the UDP server.
+	 * 
+	 * @return DatagramChannel
+	 */
+	public DatagramChannel channel() {
+		return _myChannel;
+	}
+
+	/**
+	 * @return ByteBufferPool
+	 */
+	public ByteBufferPool pool() {
+		return _myPool;
+	}
+
+	/**
+	 * @invisible
+	 */
+	public void start() {
+		try {
+			_myChannel = DatagramChannel.open();
+			_myChannel.configureBlocking(true);
+			_myChannel.socket().bind(new InetSocketAddress(_myPort));
+			Logger.printProcess("UdpChannelServer.start()", "new DatagramChannel bound @ port " + _myPort);
+		} catch (IOException ioex) {
+			Logger.printError("UdpChannelServer.start()", " IOException, couldnt bind DatagramChannel @ port " + _myPort + " " + ioex);
+			_myChannel = null;
+		}
+		if (_myChannel != null) {
+			isRunning = true;
+			_myThread = new Thread(this, "UdpChannelServer@" + _myPort);
+			_myThread.start();
+		}
+	}
+
+	/**
+	 * @invisible
+	 */
+	public void run() {
+		Logger.printProcess("UdpChannelServer.run()", "UdpChannelServer is running @ " + _myPort);
+		while (isRunning) {
+			ByteBuffer myBuffer = _myPool.acquire();
+			try {
+				InetSocketAddress mySender = (InetSocketAddress) _myChannel.receive(myBuffer);
+				if (mySender == null) {
+					continue;
+				}
+				myBuffer.flip();
+				_myListener.process(myBuffer, mySender, _myPort);
+			} catch (ClosedChannelException ccex) {
+				Logger.printProcess("UdpChannelServer.run()", " channel closed.");
+				break;
+			} catch (IOException ioex) {
+				Logger.printError("UdpChannelServer.run()", "IOException: " + ioex);
+				break;
+			} catch (RuntimeException ex) {
+				Logger.printError("UdpChannelServer.run()", "exception while processing packet: " + ex);
+			} finally {
+				_myPool.release(myBuffer);
+			}
+		}
+		dispose();
+	}
+
+	/**
+	 * stop the UDP server and close its channel.
+	 */
+	public void dispose() {
+		isRunning = false;
+		_myThread = null;
+		if (_myChannel != null) {
+			try {
+				_myChannel.close();
+			} catch (IOException e) {
+				Logger.printDebug("UdpChannelServer.dispose()", "close() " + e);
+			}
+			_myChannel = null;
+			Logger.printDebug("UdpChannelServer.dispose()", "Closing datagram channel.");
+		}
+	}
+
+	/**
+	 * send a byte array from the receiving channel to a dedicated remote
+	 * address.
+	 * 
+	 * @param theBytes byte[]
+	 * @param theAddress InetAddress
+	 * @param thePort int
+	 */
+	public void send(final byte[] theBytes, final InetAddress theAddress, final int thePort) {
+		send(ByteBuffer.wrap(theBytes), new InetSocketAddress(theAddress, thePort));
+	}
+
+	/**
+	 * @param theBuffer ByteBuffer
+	 * @param theAddress InetSocketAddress
+	 */
+	public void send(final ByteBuffer theBuffer, final InetSocketAddress theAddress) {
+		if (_myChannel == null) {
+			Logger.printWarning("UdpChannelServer.send", "DatagramChannel is not running. Packet has not been sent.");
+			return;
+		}
+		try {
+			_myChannel.send(theBuffer, theAddress);
+		} catch (IOException e) {
+			Logger.printError("UdpChannelServer.send", "ioexception while sending packet.");
+		}
+	}
+}
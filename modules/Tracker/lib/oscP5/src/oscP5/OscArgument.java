@@ -36,6 +36,16 @@ package oscP5;
 public class OscArgument {
 	protected Object value;
 
+	/* set instead of value for a received message whose arguments have not
+	   been decoded, the value is then read from the message data on demand */
+	protected OscMessage message;
+
+	protected int index;
+
+	protected Object value() {
+		return message != null ? message.argumentAt(index) : value;
+	}
+
     /**
      * @invisible
      */
@@ -56,7 +66,10 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public int intValue() {
-		return ((Integer) value).intValue();
+		if (message != null && message._myTypetag[index] == 0x69) {
+			return message.intAt(message._myOffsets[index]);
+		}
+		return ((Integer) value()).intValue();
 	}
 
 	/**
@@ -74,7 +87,7 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public char charValue() {
-		return ((Character) value).charValue();
+		return ((Character) value()).charValue();
 	}
 
 	/**
@@ -92,7 +105,10 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public float floatValue() {
-		return ((Float) value).floatValue();
+		if (message != null && message._myTypetag[index] == 0x66) {
+			return message.floatAt(message._myOffsets[index]);
+		}
+		return ((Float) value()).floatValue();
 	}
 
 	/**
@@ -110,7 +126,7 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public double doubleValue() {
-		return ((Double) value).doubleValue();
+		return ((Double) value()).doubleValue();
 	}
 
 	/**
@@ -128,7 +144,7 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public long longValue() {
-		return ((Long) value).longValue();
+		return ((Long) value()).longValue();
 	}
 
 	/**
@@ -146,7 +162,7 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public boolean booleanValue() {
-		return ((Boolean) value).booleanValue();
+		return ((Boolean) value()).booleanValue();
 	}
 
         /**
@@ -164,7 +180,7 @@ public class OscArgument {
          * @example oscP5parsing
          */
         public String stringValue() {
-         return ((String) value);
+         return ((String) value());
         }
 
 
@@ -173,7 +189,7 @@ public class OscArgument {
 	 * @return String
 	 */
 	public String toString() {
-		return ((String) value);
+		return ((String) value());
 	}
 
 	/**
@@ -191,7 +207,7 @@ public class OscArgument {
          * @example oscP5parsing
 	 */
 	public byte[] bytesValue() {
-		return ((byte[]) value);
+		return ((byte[]) value());
 	}
 
         /**
@@ -209,7 +225,7 @@ public class OscArgument {
          * @example oscP5parsing
          */
         public byte[] blobValue() {
-                return ((byte[]) value);
+                return ((byte[]) value());
         }
 
 
@@ -219,7 +235,7 @@ public class OscArgument {
 	 */
 	public int[] midiValue() {
 		int[] myInt = new int[4];
-		byte[] myByte = (byte[]) value;
+		byte[] myByte = (byte[]) value();
 		for (int i = 0; i < 4; i++) {
 			myInt[i] = (int) (myByte[i]);
 		}
@@ -27,6 +27,8 @@ package oscP5;
 
 
 import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import netP5.Bytes;
 import netP5.TcpPacket;
@@ -35,7 +37,8 @@ import netP5.TcpPacket;
 /**
  * Osc Bundles are collections of Osc Messages. use bundles to send multiple
  * osc messages to one destination. the OscBundle timetag is supported for
- * sending but not for receiving yet.
+ * sending, received bundles are held until their timetag when
+ * OscP5.startScheduler() was called.
  * @related OscMessage
  * @related OscP5
  * @example oscP5bundle
@@ -66,6 +69,15 @@ public class OscBundle extends OscPacket {
   }
 
 
+  protected OscBundle(ByteBuffer theBuffer, int theOffset, int theLength, InetSocketAddress theSender, OscFilter theFilter) {
+    inetAddress = theSender.getAddress();
+    port = theSender.getPort();
+    hostAddress = inetAddress.toString();
+    _myMessageSize = parseBundle(theBuffer, theOffset, theLength, inetAddress, port, null, theFilter);
+    _myType = BUNDLE;
+  }
+
+
   protected OscBundle(TcpPacket thePacket) {
     _myTcpClient = thePacket.getTcpConnection();
     inetAddress = _myTcpClient.netAddress().inetaddress();
@@ -136,8 +148,9 @@ public class OscBundle extends OscPacket {
   /**
    * set the timetag of an osc bundle. timetags are used to synchronize events and
    * execute events at a given time in the future or immediately. timetags can
-   * only be set for osc bundles, not for osc messages. oscP5 supports receiving
-   * timetags, but does not queue messages for execution at a set time.
+   * only be set for osc bundles, not for osc messages. oscP5 queues received
+   * bundles for execution at their timetag when its scheduler is running,
+   * see OscP5.startScheduler().
    * @param theTime long
    * @example oscP5bundle
    */
@@ -0,0 +1,188 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import netP5.NetAddress;
+
+/**
+ * collects outgoing messages per destination and sends them as osc bundles
+ * of at most mtu bytes when flush() is called, typically once per frame. a
+ * destination with a single pending message gets the plain message. while
+ * disabled, messages are not taken and are sent right away.
+ * 
+ * @invisible
+ */
+public class OscBundler {
+
+	public static final int DEFAULT_MTU = 1400;
+
+	/* "#bundle" + timetag 1 (immediately) */
+	private static final byte[] HEADER = { '#', 'b', 'u', 'n', 'd', 'l', 'e', 0, 0, 0, 0, 0, 0, 0, 0, 1 };
+
+	private final OscNetManager _myNetManager;
+
+	private final HashMap<InetSocketAddress, Destination> _myDestinations = new HashMap<InetSocketAddress, Destination>();
+
+	private final ArrayList<Destination> _myDestinationList = new ArrayList<Destination>();
+
+	private int _myMTU = DEFAULT_MTU;
+
+	private boolean isEnabled = false;
+
+	private long _myMessages = 0;
+
+	private long _myPackets = 0;
+
+	protected OscBundler(final OscNetManager theNetManager) {
+		_myNetManager = theNetManager;
+	}
+
+	public synchronized void setEnabled(final boolean theFlag) {
+		if (!theFlag) {
+			flush();
+		}
+		isEnabled = theFlag;
+	}
+
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * maximum size of a bundle in bytes. messages larger than this are sent
+	 * on their own.
+	 * 
+	 * @param theMTU int
+	 */
+	public synchronized void setMTU(final int theMTU) {
+		flush();
+		_myMTU = theMTU;
+		_myDestinations.clear();
+		_myDestinationList.clear();
+	}
+
+	public int mtu() {
+		return _myMTU;
+	}
+
+	/**
+	 * queue a message for theHost.
+	 * 
+	 * @param thePacket ByteBuffer, an encoded osc message from its position
+	 *            to its limit
+	 * @param theHost NetAddress
+	 * @return boolean, false if the message was not taken and has to be sent
+	 *         by the caller
+	 */
+	protected synchronized boolean add(final ByteBuffer thePacket, final NetAddress theHost) {
+		if (!isEnabled) {
+			return false;
+		}
+		final int mySize = thePacket.remaining();
+		Destination myDestination = _myDestinations.get(theHost.socketAddress());
+		if (mySize + 4 + HEADER.length > _myMTU) {
+			/* too big for a bundle, keep the order by sending what is pending first. */
+			if (myDestination != null) {
+				flush(myDestination);
+			}
+			return false;
+		}
+		if (myDestination == null) {
+			myDestination = new Destination(theHost, _myMTU);
+			_myDestinations.put(theHost.socketAddress(), myDestination);
+			_myDestinationList.add(myDestination);
+		}
+		ByteBuffer myBuffer = myDestination.buffer;
+		if (myBuffer.remaining() < mySize + 4) {
+			flush(myDestination);
+		}
+		if (myDestination.count == 0) {
+			myBuffer.put(HEADER);
+		}
+		myBuffer.putInt(mySize);
+		myBuffer.put(thePacket);
+		myDestination.count++;
+		_myMessages++;
+		return true;
+	}
+
+	/**
+	 * send everything that is pending.
+	 */
+	public synchronized void flush() {
+		for (int i = 0; i < _myDestinationList.size(); i++) {
+			flush(_myDestinationList.get(i));
+		}
+	}
+
+	private void flush(final Destination theDestination) {
+		if (theDestination.count == 0) {
+			return;
+		}
+		ByteBuffer myBuffer = theDestination.buffer;
+		myBuffer.flip();
+		if (theDestination.count == 1) {
+			myBuffer.position(HEADER.length + 4);
+		}
+		_myNetManager.sendNow(myBuffer, theDestination.address);
+		_myPackets++;
+		myBuffer.clear();
+		theDestination.count = 0;
+	}
+
+	/**
+	 * @return long, messages taken since start
+	 */
+	public long messages() {
+		return _myMessages;
+	}
+
+	/**
+	 * @return long, datagrams sent for them
+	 */
+	public long packets() {
+		return _myPackets;
+	}
+
+	private static class Destination {
+
+		final NetAddress address;
+
+		final ByteBuffer buffer;
+
+		int count = 0;
+
+		Destination(final NetAddress theAddress, final int theMTU) {
+			address = theAddress;
+			buffer = ByteBuffer.allocate(theMTU);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * drops received messages by address before they are parsed. the address
+ * is compared as raw bytes straight from the receive buffer, a dropped
+ * message costs a hash over its address and allocates nothing.
+ * 
+ * a pattern ending in '*' drops every address that starts with the part
+ * before the '*', e.g. "/vis/*", any other pattern drops exactly that
+ * address. exact patterns are kept in a hash table, prefixes are compared
+ * one after the other, so keep the number of prefixes small.
+ * 
+ * the rules can be changed at any time from any thread, e.g. when a
+ * visualizer starts or stops consuming a stream. the receive threads see a
+ * new table on their next packet, the drop counts of rules that stay are
+ * kept.
+ * 
+ * @invisible
+ */
+public class OscFilter {
+
+	/**
+	 * one drop rule and the number of messages it dropped.
+	 */
+	public static class Rule {
+
+		public final String pattern;
+
+		private final byte[] _myBytes;
+
+		private final boolean isPrefix;
+
+		private final int _myHash;
+
+		private final AtomicLong _myDrops = new AtomicLong();
+
+		Rule(final String thePattern) {
+			pattern = thePattern;
+			isPrefix = thePattern.endsWith("*");
+			_myBytes = (isPrefix ? thePattern.substring(0, thePattern.length() - 1) : thePattern).getBytes();
+			int myHash = FNV_OFFSET;
+			for (int i = 0; i < _myBytes.length; i++) {
+				myHash = (myHash ^ (_myBytes[i] & 0xff)) * FNV_PRIME;
+			}
+			_myHash = myHash;
+		}
+
+		public long drops() {
+			return _myDrops.get();
+		}
+
+		public String toString() {
+			return pattern + " " + drops();
+		}
+	}
+
+	/* immutable snapshot of the rules read by the receive threads */
+	private static class Table {
+		final Rule[] exact;
+		final int mask;
+		final Rule[] prefixes;
+		final int size;
+
+		Table(final ArrayList<Rule> theRules) {
+			int myExact = 0;
+			ArrayList<Rule> myPrefixes = new ArrayList<Rule>();
+			for (Rule myRule : theRules) {
+				if (myRule.isPrefix) {
+					myPrefixes.add(myRule);
+				} else {
+					myExact++;
+				}
+			}
+			int mySize = Integer.highestOneBit(Math.max(myExact * 2 - 1, 1)) << 1;
+			exact = new Rule[mySize];
+			mask = mySize - 1;
+			for (Rule myRule : theRules) {
+				if (!myRule.isPrefix) {
+					int mySlot = myRule._myHash & mask;
+					while (exact[mySlot] != null) {
+						mySlot = (mySlot + 1) & mask;
+					}
+					exact[mySlot] = myRule;
+				}
+			}
+			prefixes = myPrefixes.toArray(new Rule[0]);
+			size = theRules.size();
+		}
+	}
+
+	private static final int FNV_OFFSET = 0x811C9DC5;
+
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final ArrayList<Rule> _myRules = new ArrayList<Rule>();
+
+	private volatile Table _myTable = new Table(_myRules);
+
+	private final AtomicLong _myDrops = new AtomicLong();
+
+	/**
+	 * drop messages whose address matches thePattern.
+	 * 
+	 * @param thePattern String, an address or a prefix followed by '*'
+	 */
+	public synchronized void drop(final String thePattern) {
+		for (Rule myRule : _myRules) {
+			if (myRule.pattern.equals(thePattern)) {
+				return;
+			}
+		}
+		_myRules.add(new Rule(thePattern));
+		_myTable = new Table(_myRules);
+	}
+
+	/**
+	 * stop dropping messages for a pattern previously passed to drop().
+	 * 
+	 * @param thePattern String
+	 * @return boolean, false if there was no such rule
+	 */
+	public synchronized boolean pass(final String thePattern) {
+		for (int i = 0; i < _myRules.size(); i++) {
+			if (_myRules.get(i).pattern.equals(thePattern)) {
+				_myRules.remove(i);
+				_myTable = new Table(_myRules);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized void clear() {
+		_myRules.clear();
+		_myTable = new Table(_myRules);
+	}
+
+	public boolean isEmpty() {
+		return _myTable.size == 0;
+	}
+
+	/**
+	 * check the address of the message between theOffset and theEnd. bundles
+	 * are accepted here, their messages are checked one by one when the
+	 * bundle is parsed.
+	 * 
+	 * @param theBuffer ByteBuffer
+	 * @param theOffset int
+	 * @param theEnd int
+	 * @return boolean, false if the message is dropped
+	 */
+	public boolean accept(final ByteBuffer theBuffer, final int theOffset, final int theEnd) {
+		final Table myTable = _myTable;
+		if (myTable.size == 0) {
+			return true;
+		}
+		int myHash = FNV_OFFSET;
+		int myEnd = theOffset;
+		while (myEnd < theEnd) {
+			final byte b = theBuffer.get(myEnd);
+			if (b == 0) {
+				break;
+			}
+			myHash = (myHash ^ (b & 0xff)) * FNV_PRIME;
+			myEnd++;
+		}
+		final int myLength = myEnd - theOffset;
+		for (int mySlot = myHash & myTable.mask;; mySlot = (mySlot + 1) & myTable.mask) {
+			final Rule myRule = myTable.exact[mySlot];
+			if (myRule == null) {
+				break;
+			}
+			if (myRule._myHash == myHash && myRule._myBytes.length == myLength && matches(theBuffer, theOffset, myRule._myBytes)) {
+				return dropped(myRule);
+			}
+		}
+		final Rule[] myPrefixes = myTable.prefixes;
+		for (int i = 0; i < myPrefixes.length; i++) {
+			if (myPrefixes[i]._myBytes.length <= myLength && matches(theBuffer, theOffset, myPrefixes[i]._myBytes)) {
+				return dropped(myPrefixes[i]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param theBuffer ByteBuffer, the message between position and limit
+	 * @return boolean, false if the message is dropped
+	 */
+	public boolean accept(final ByteBuffer theBuffer) {
+		return accept(theBuffer, theBuffer.position(), theBuffer.limit());
+	}
+
+	private static boolean matches(final ByteBuffer theBuffer, final int theOffset, final byte[] theBytes) {
+		for (int i = 0; i < theBytes.length; i++) {
+			if (theBuffer.get(theOffset + i) != theBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean dropped(final Rule theRule) {
+		theRule._myDrops.incrementAndGet();
+		_myDrops.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * @return long, messages dropped since the filter was created
+	 */
+	public long drops() {
+		return _myDrops.get();
+	}
+
+	/**
+	 * @return Rule[], the current rules with their drop counts
+	 */
+	public synchronized Rule[] rules() {
+		return _myRules.toArray(new Rule[0]);
+	}
+
+	public synchronized String toString() {
+		StringBuffer myString = new StringBuffer("OscFilter: " + drops() + " dropped");
+		for (Rule myRule : _myRules) {
+			myString.append(", ").append(myRule);
+		}
+		return myString.toString();
+	}
+}
@@ -29,6 +29,7 @@ package oscP5;
 import java.net.DatagramPacket;
 
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import netP5.Bytes;
 import netP5.Logger;
 import netP5.TcpClient;
@@ -81,6 +82,7 @@ public class OscMessage extends OscPacket {
         _myAddrPattern = theOscMessage._myAddrPattern;
         _myTypetag = theOscMessage._myTypetag;
         _myData = theOscMessage._myData;
+        _myOffsets = theOscMessage._myOffsets;
         _myArguments = theOscMessage._myArguments;
         isValid = true;
     }
@@ -145,6 +147,23 @@ public class OscMessage extends OscPacket {
         parseMessage(theBytes);
     }
 
+    protected OscMessage(final ByteBuffer theBuffer,
+                         final int theOffset,
+                         final int theLength,
+                         final InetAddress theInetAddress,
+                         final int thePort,
+                         final long theTimetag,
+                         final TcpClient theClient
+            ) {
+        _myTcpClient = theClient;
+        inetAddress = theInetAddress;
+        port = thePort;
+        hostAddress = inetAddress.toString();
+        timetag = theTimetag;
+        parseMessage(theBuffer, theOffset, theLength);
+        _myType = MESSAGE;
+    }
+
     protected OscMessage(final byte[] theBytes,
                          final InetAddress theInetAddress,
                          final int thePort,
@@ -180,6 +199,7 @@ public class OscMessage extends OscPacket {
     public void clearArguments() {
     	_myTypetag = new byte[0];
         _myData = new byte[0];
+        _myOffsets = null;
         _myArguments = new Object[0];
     }
 
@@ -195,9 +215,9 @@ public class OscMessage extends OscPacket {
     	System.out.println("Typetag:\t" + _myTypetag.length);
     	System.out.println("Arguments:\t");
     	Bytes.printBytes(_myData);
-    	System.out.println(_myArguments.length);
-    	for(int i=0;i<_myArguments.length;i++) {
-    		System.out.println(_myArguments[i]);
+    	System.out.println(arguments().length);
+    	for(int i=0;i<arguments().length;i++) {
+    		System.out.println(arguments()[i]);
     	}
     }
 
@@ -307,37 +327,49 @@ public class OscMessage extends OscPacket {
     }
 
     /**
-     *
+     * the arguments of a received message are decoded on the first call.
      * @return Object[]
      */
     public Object[] arguments() {
+        if (_myArguments == null) {
+            _myArguments = _myOffsets != null ? decodeArguments() : new Object[0];
+        }
         return _myArguments;
     }
 
 
+    /**
+     * @return int, the number of arguments
+     */
+    public int size() {
+        return _myArguments == null && _myOffsets != null ? _myOffsets.length : arguments().length;
+    }
+
+
     /**
      * supported arrays see OscPlug.getArgs
      * @return Object[]
      */
     protected Object[] argsAsArray() {
+        final Object[] myArguments = arguments();
         switch (_myTypetag[0]) {
         case (0X66): // float f
-            final float[] myFloatArray = new float[_myArguments.length];
+            final float[] myFloatArray = new float[myArguments.length];
             for (int i = 0; i < myFloatArray.length; i++) {
-                myFloatArray[i] = ((Float) _myArguments[i]).floatValue();
+                myFloatArray[i] = ((Float) myArguments[i]).floatValue();
             }
             return new Object[] {myFloatArray};
         case (0x69): // int i
-            final int[] myIntArray = new int[_myArguments.length];
+            final int[] myIntArray = new int[myArguments.length];
             for (int i = 0; i < myIntArray.length; i++) {
-                myIntArray[i] = ((Integer) _myArguments[i]).intValue();
+                myIntArray[i] = ((Integer) myArguments[i]).intValue();
             }
             return new Object[] {myIntArray};
         case (0x53): // Symbol S
         case (0x73): // String s
-            final String[] myStringArray = new String[_myArguments.length];
+            final String[] myStringArray = new String[myArguments.length];
             for (int i = 0; i < myStringArray.length; i++) {
-                myStringArray[i] = ((String) _myArguments[i]);
+                myStringArray[i] = ((String) myArguments[i]);
             }
             return new Object[] {myStringArray};
         default:
@@ -391,7 +423,7 @@ public class OscMessage extends OscPacket {
 
     
     protected Object[]  increase(int theAmount) {
-    	if(_myArguments.length<1 || _myArguments == null) {
+    	if(arguments().length<1) {
     		return new Object[1];
     	}
     	Object[] myArguments = new Object[_myArguments.length + theAmount];
@@ -725,11 +757,25 @@ public class OscMessage extends OscPacket {
      * @return OscArgument
      */
     public OscArgument get(final int theIndex) {
-        if (theIndex < arguments().length) {
-            _myOscArgument.value = arguments()[theIndex];
-            return _myOscArgument;
+        if (theIndex >= size()) {
+            return null;
         }
-        return null;
+        if (_myArguments == null) {
+            /* decoded from _myData by the OscArgument when its value is read */
+            _myOscArgument.message = this;
+            _myOscArgument.index = theIndex;
+            _myOscArgument.value = null;
+        }
+        else {
+            _myOscArgument.message = null;
+            _myOscArgument.value = _myArguments[theIndex];
+        }
+        return _myOscArgument;
+    }
+
+
+    protected Object argumentAt(final int theIndex) {
+        return _myArguments != null ? _myArguments[theIndex] : decodeArgument(theIndex);
     }
 
 
@@ -754,7 +800,7 @@ public class OscMessage extends OscPacket {
         Logger.println("received from\t" + hostAddress + ":" + port);
         Logger.println("addrpattern\t" + Bytes.getAsString(_myAddrPattern));
         Logger.println("typetag\t" + Bytes.getAsString(_myTypetag));
-        Logger.println(Bytes.getAsString(_myArguments));
+        Logger.println(Bytes.getAsString(arguments()));
         Logger.println("---------------------");
     }
     
@@ -26,6 +26,14 @@
 package oscP5;
 
 import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
 import java.util.ArrayList;
 
 import netP5.AbstractMulticast;
@@ -34,10 +42,13 @@ import netP5.Logger;
 import netP5.Multicast;
 import netP5.NetAddress;
 import netP5.NetAddressList;
+import netP5.TcpChannelServer;
 import netP5.TcpClient;
 import netP5.TcpPacket;
 import netP5.TcpPacketListener;
 import netP5.TcpServer;
+import netP5.UdpBufferListener;
+import netP5.UdpChannelServer;
 import netP5.UdpClient;
 import netP5.UdpPacketListener;
 import netP5.UdpServer;
@@ -48,7 +59,7 @@ import netP5.UdpServer;
  */
 
 public class OscNetManager
-    implements UdpPacketListener, TcpPacketListener {
+    implements UdpPacketListener, UdpBufferListener, TcpPacketListener {
 
   protected OscProperties _myOscProperties;
 
@@ -56,8 +67,18 @@ public class OscNetManager
 
   protected UdpServer _myUdpServer = null;
 
+  protected UdpChannelServer _myUdpChannelServer = null;
+
+  private DatagramChannel _mySendChannel = null;
+
+  protected final OscBundler _myBundler = new OscBundler(this);
+
+  protected OscSender _mySender = null;
+
   protected TcpServer _myTcpServer = null;
 
+  protected TcpChannelServer _myTcpChannelServer = null;
+
   protected TcpClient _myTcpClient = null;
 
   protected boolean isTcpClient = false;
@@ -68,6 +89,8 @@ public class OscNetManager
 
   protected ArrayList<UdpPacketListener> _myUdpListener = new ArrayList<UdpPacketListener>();
 
+  protected ArrayList<UdpBufferListener> _myUdpBufferListener = new ArrayList<UdpBufferListener>();
+
   protected ArrayList<TcpPacketListener> _myTcpListener = new ArrayList<TcpPacketListener>();
 
   public final static int NONE = 0;
@@ -92,6 +115,11 @@ public class OscNetManager
 
 
   protected void stop() {
+    if (_mySender != null) {
+      _mySender.dispose();
+      _mySender = null;
+    }
+    _myBundler.setEnabled(false);
     _myUdpClient = null;
     if (_myMulticast != null) {
     	Logger.printDebug("OscP5.stop", "multicast.");
@@ -101,8 +129,27 @@ public class OscNetManager
     	Logger.printDebug("OscP5.stop", "stopping udpserver.");
       _myUdpServer.dispose();
     }
+    if (_myUdpChannelServer != null) {
+    	Logger.printDebug("OscP5.stop", "stopping udpchannelserver.");
+      _myUdpChannelServer.dispose();
+    }
+    if (_mySendChannel != null) {
+      try {
+        _mySendChannel.close();
+      }
+      catch (IOException e) {
+        Logger.printError("OscP5.stop", "ioexception while closing send channel.");
+      }
+    }
+    if (_myTcpChannelServer != null) {
+    	Logger.printDebug("OscP5.stop", "stopping tcpchannelserver.");
+      _myTcpChannelServer.dispose();
+    }
     _myMulticast = null;
     _myUdpServer = null;
+    _myTcpChannelServer = null;
+    _myUdpChannelServer = null;
+    _mySendChannel = null;
     Logger.printProcess("OscP5", "stopped.");
   }
 
@@ -116,13 +163,27 @@ public class OscNetManager
     }
 
     if (_myOscProperties.listeningPort() > 0) {
-      _myUdpServer = new UdpServer(this, _myOscProperties.listeningPort(), _myOscProperties.datagramSize());
+      if (_myOscProperties.nio()) {
+        _myUdpChannelServer = new UdpChannelServer(this, _myOscProperties.listeningPort(), _myOscProperties.datagramSize(), _myOscProperties.bufferPoolSize());
+      }
+      else {
+        _myUdpServer = new UdpServer(this, _myOscProperties.listeningPort(), _myOscProperties.datagramSize());
+      }
     }
   }
 
 
   private void newTcp() {
-    if (_myOscProperties.listeningPort() > 0) {
+    if (_myOscProperties.listeningPort() > 0 && _myOscProperties.nio()) {
+      _myTcpChannelServer = new TcpChannelServer(
+          this,
+          _myOscProperties.listeningPort(),
+          _myOscProperties.tcpFraming(),
+          _myOscProperties.datagramSize(),
+          _myOscProperties.tcpQueueSize());
+      isTcpServer = true;
+    }
+    else if (_myOscProperties.listeningPort() > 0) {
       _myTcpServer = new TcpServer(this, _myOscProperties.listeningPort(), TcpServer.MODE_STREAM);
       isTcpServer = true;
     }
@@ -164,11 +225,40 @@ public class OscNetManager
   }
 
 
+  public OscBundler bundler() {
+    return _myBundler;
+  }
+
+
+  public OscSender startSender(final int theCapacity) {
+    if (_mySender == null) {
+      _mySender = new OscSender(this, theCapacity);
+      _mySender.start();
+    }
+    return _mySender;
+  }
+
+
+  public OscSender sender() {
+    return _mySender;
+  }
+
+
+  public UdpChannelServer udpChannelServer() {
+    return _myUdpChannelServer;
+  }
+
+
   public TcpServer tcpServer() {
     return _myTcpServer;
   }
 
 
+  public TcpChannelServer tcpChannelServer() {
+    return _myTcpChannelServer;
+  }
+
+
   public TcpClient tcpClient() {
     return _myTcpClient;
   }
@@ -190,6 +280,22 @@ public class OscNetManager
   }
 
 
+  /**
+   * @param theListener UdpBufferListener
+   */
+  public void addUdpBufferListener(final UdpBufferListener theListener) {
+    _myUdpBufferListener.add(theListener);
+  }
+
+
+  /**
+   * @param theListener UdpBufferListener
+   */
+  public void removeUdpBufferListener(final UdpBufferListener theListener) {
+    _myUdpBufferListener.remove(theListener);
+  }
+
+
   /**
    * @param theListener TcpPacketListener
    */
@@ -218,7 +324,13 @@ public class OscNetManager
       try {
         switch (_myOscProperties.networkProtocol()) {
           case (OscProperties.UDP):
-            if (_myOscProperties.srsp()) {
+            if (_myOscProperties.srsp() && _myUdpChannelServer != null) {
+              _myUdpChannelServer.send(
+                  thePacket.getBytes(),
+                  _myOscProperties.remoteAddress().inetaddress(),
+                  _myOscProperties.remoteAddress().port());
+            }
+            else if (_myOscProperties.srsp()) {
               _myUdpServer.send(
                   thePacket.getBytes(),
                   _myOscProperties.remoteAddress().inetaddress(),
@@ -233,7 +345,10 @@ public class OscNetManager
             }
             break;
           case (OscProperties.TCP):
-            if (isTcpServer) {
+            if (_myTcpChannelServer != null) {
+              _myTcpChannelServer.send(thePacket.getBytes());
+            }
+            else if (isTcpServer) {
               _myTcpServer.send(thePacket.getBytes());
             }
             else if (isTcpClient) {
@@ -253,7 +368,12 @@ public class OscNetManager
 
 
   public void send(final DatagramPacket thePacket) {
-    if (_myOscProperties.srsp()) {
+    if (_myOscProperties.srsp() && _myUdpChannelServer != null) {
+      _myUdpChannelServer.send(
+          ByteBuffer.wrap(thePacket.getData(), thePacket.getOffset(), thePacket.getLength()),
+          (InetSocketAddress) thePacket.getSocketAddress());
+    }
+    else if (_myOscProperties.srsp()) {
       _myUdpServer.send(thePacket);
     }
     else {
@@ -271,7 +391,10 @@ public class OscNetManager
     try {
       switch (_myOscProperties.networkProtocol()) {
         case (OscProperties.UDP):
-          if (_myOscProperties.srsp()) {
+          if (_myOscProperties.srsp() && _myUdpChannelServer != null) {
+            _myUdpChannelServer.send(thePacket.getBytes(), InetAddress.getByName(theAddress), thePort);
+          }
+          else if (_myOscProperties.srsp()) {
             _myUdpServer.send(thePacket.getBytes(), theAddress, thePort);
           }
           else {
@@ -288,6 +411,9 @@ public class OscNetManager
           break;
       }
     }
+    catch (final UnknownHostException e) {
+      Logger.printError("OscP5.send", "while sending to " + theAddress + " " + e);
+    }
     catch (final NullPointerException e) {
       Logger.printError("OscP5.send", "NullPointerException " + e);
     }
@@ -328,6 +454,13 @@ public class OscNetManager
       case (OscProperties.UDP):
         if (theHost.isvalid()) {
           final byte[] myBytes = thePacket.getBytes();
+          if (_mySender != null) {
+            _mySender.offer(ByteBuffer.wrap(myBytes), theHost);
+            break;
+          }
+          if (_myBundler.isEnabled() && _myBundler.add(ByteBuffer.wrap(myBytes), theHost)) {
+            break;
+          }
           final DatagramPacket myPacket = new DatagramPacket(myBytes, myBytes.length);
           myPacket.setAddress(theHost.inetaddress());
           myPacket.setPort(theHost.port());
@@ -335,12 +468,111 @@ public class OscNetManager
         }
         break;
       case (OscProperties.TCP):
-        Logger.printWarning("OscP5.send", "send(OscPacket thePacket,NetAddress theHost) is not supported in TCP mode.");
+        if (_myTcpChannelServer != null) {
+          _myTcpChannelServer.send(ByteBuffer.wrap(thePacket.getBytes()), theHost.socketAddress());
+          break;
+        }
+        Logger.printWarning("OscP5.send", "send(OscPacket thePacket,NetAddress theHost) is only supported in TCP mode with nio enabled.");
         break;
     }
   }
 
 
+  /**
+   * send an encoded packet without copying it, or queue it in the sender
+   * thread or bundler when those are in use. uses the receiving channel in
+   * srsp mode, otherwise the host's connected channel or a datagram channel
+   * that is opened on first use. in tcp nio mode the packet goes to the
+   * client connected from theHost.
+   *
+   * @param theBuffer ByteBuffer, sent from its position to its limit
+   * @param theHost NetAddress
+   */
+  public void send(final ByteBuffer theBuffer, final NetAddress theHost) {
+    if (_myTcpChannelServer != null) {
+      _myTcpChannelServer.send(theBuffer, theHost.socketAddress());
+      return;
+    }
+    if (_myOscProperties.networkProtocol() != OscProperties.UDP) {
+      Logger.printWarning("OscP5.send", "send(ByteBuffer theBuffer,NetAddress theHost) is only supported in UDP mode.");
+      return;
+    }
+    if (!theHost.isvalid()) {
+      return;
+    }
+    if (_mySender != null) {
+      _mySender.offer(theBuffer, theHost);
+    }
+    else if (!_myBundler.add(theBuffer, theHost)) {
+      sendNow(theBuffer, theHost);
+    }
+  }
+
+
+  /**
+   * send whatever is pending in the bundler. with a sender thread running
+   * this happens on that thread once it has caught up with the queue.
+   */
+  public void flushOutgoing() {
+    if (_mySender != null) {
+      _mySender.flush();
+    }
+    else {
+      _myBundler.flush();
+    }
+  }
+
+
+  /* send theBuffer to theHost right away, bypassing the bundler. */
+  protected void sendNow(final ByteBuffer theBuffer, final NetAddress theHost) {
+    if (_myOscProperties.srsp() && _myUdpChannelServer != null) {
+      _myUdpChannelServer.send(theBuffer, theHost.socketAddress());
+    }
+    else if (_myOscProperties.srsp()) {
+      final byte[] myBytes = new byte[theBuffer.remaining()];
+      theBuffer.get(myBytes);
+      _myUdpServer.send(myBytes, theHost.inetaddress(), theHost.port());
+    }
+    else {
+      try {
+        final DatagramChannel myChannel = theHost.channel();
+        if (myChannel != null) {
+          final int myPosition = theBuffer.position();
+          try {
+            myChannel.write(theBuffer);
+          }
+          catch (ClosedChannelException e) {
+            /* theHost was reconnected while writing; send once more on its new channel. */
+            final DatagramChannel myNewChannel = theHost.channel();
+            if (myNewChannel == null || myNewChannel == myChannel) {
+              throw e;
+            }
+            theBuffer.position(myPosition);
+            myNewChannel.write(theBuffer);
+          }
+        }
+        else {
+          sendChannel().send(theBuffer, theHost.socketAddress());
+        }
+      }
+      catch (PortUnreachableException e) {
+        /* a connected channel reports an earlier packet that nobody received, nothing to do. */
+      }
+      catch (IOException e) {
+        Logger.printError("OscNetManager.send", "ioexception while sending packet to " + theHost + " " + e);
+      }
+    }
+  }
+
+
+  private synchronized DatagramChannel sendChannel() throws IOException {
+    if (_mySendChannel == null) {
+      _mySendChannel = DatagramChannel.open();
+    }
+    return _mySendChannel;
+  }
+
+
   /**
    * @param theAddrPattern String
    * @param theArguments Object[]
@@ -372,6 +604,15 @@ public class OscNetManager
   }
 
 
+  public void process(final ByteBuffer theBuffer, final InetSocketAddress theSender, final int thePort) {
+    for (int i = 0; i < _myUdpBufferListener.size(); i++) {
+      theBuffer.mark();
+      _myUdpBufferListener.get(i).process(theBuffer, theSender, thePort);
+      theBuffer.reset();
+    }
+  }
+
+
   public void process(final TcpPacket thePacket, final int thePort) {
     for (int i = 0; i < _myTcpListener.size(); i++) {
       _myTcpListener.get(i).process(thePacket, thePort);
@@ -28,8 +28,10 @@ package oscP5;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -37,13 +39,16 @@ import java.util.Vector;
 
 import netP5.AbstractTcpClient;
 import netP5.Logger;
+import netP5.Multicast;
 import netP5.NetAddress;
 import netP5.NetAddressList;
 import netP5.NetInfo;
+import netP5.TcpChannelServer;
 import netP5.TcpClient;
 import netP5.TcpPacket;
 import netP5.TcpPacketListener;
 import netP5.TcpServer;
+import netP5.UdpBufferListener;
 import netP5.UdpPacketListener;
 
 /**
@@ -67,7 +72,7 @@ import netP5.UdpPacketListener;
  * http://forum.processing.org/topic/oscp5-major-problems-with-error-handling#
  * 25080000000811163
  */
-public class OscP5 implements UdpPacketListener, TcpPacketListener {
+public class OscP5 implements UdpPacketListener, UdpBufferListener, TcpPacketListener {
 
 	/*
 	 * @TODO implement polling option to avoid threading and synchronization
@@ -125,6 +130,22 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 
 	private boolean isOscIn = false;
 
+	private volatile OscRecorder _myRecorder;
+
+	private OscReplay _myReplay;
+
+	private final OscStats _myStats = new OscStats();
+
+	private volatile long _myReceiveTime;
+
+	private final ArrayList<Multicast> _myGroups = new ArrayList<Multicast>();
+
+	private volatile OscScheduler _myScheduler;
+
+	private final OscFilter _myFilter = new OscFilter();
+
+	private final ArrayList<TcpChannelServer> _myTcpServers = new ArrayList<TcpChannelServer>();
+
 	/**
 	 * @invisible
 	 */
@@ -146,8 +167,11 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 		_myOscNetManager.start(_myOscProperties);
 		if (_myOscProperties.networkProtocol() == OscProperties.TCP) {
 			_myOscNetManager.addTcpListener(this);
+			/* in nio mode packets arrive as buffers from the TcpChannelServer */
+			_myOscNetManager.addUdpBufferListener(this);
 		} else {
 			_myOscNetManager.addUdpListener(this);
+			_myOscNetManager.addUdpBufferListener(this);
 		}
 		isEventMethod = checkEventMethod();
 		if (_myOscProperties.networkProtocol() == OscProperties.MULTICAST) {
@@ -346,6 +370,8 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 	 * @invisible
 	 */
 	public void dispose() {
+		stopReplay();
+		stopRecording();
 		stop();
 	}
 
@@ -494,7 +520,11 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 				OscPlug myPlug = (OscPlug) myOscPlugList.get(i);
 				if (!myPlug.isArray && myPlug.checkMethod(theOscMessage, false)) {
 					theOscMessage.isPlugged = true;
-					invoke(myPlug.getObject(), myPlug.getMethod(), theOscMessage.arguments());
+					if (myPlug.invoker != null) {
+						invoke(myPlug, theOscMessage);
+					} else {
+						invoke(myPlug.getObject(), myPlug.getMethod(), theOscMessage.arguments());
+					}
 				}
 			}
 		}
@@ -516,6 +546,16 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 		}
 	}
 
+	private void invoke(final OscPlug thePlug, final OscMessage theOscMessage) {
+		try {
+			thePlug.invoker.invokeExact(theOscMessage);
+		} catch (Throwable e) {
+			Logger.printError("OscP5", "ERROR. an error occured while forwarding an OscMessage\n " + "to a method in your program. please check your code for any \n"
+					+ "possible errors that might occur in the method where incoming\n " + "OscMessages are parsed e.g. check for casting errors, possible\n "
+					+ "nullpointers, array overflows ... .\n" + "method in charge : " + thePlug.getMethod().getName() + "  " + e);
+		}
+	}
+
 	private void invoke(final Object theObject, final Method theMethod, final Object[] theArgs) {
 		try {
 			theMethod.invoke(theObject, theArgs);
@@ -539,37 +579,109 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 	 * @param thePort int
 	 */
 	public void process(final DatagramPacket thePacket, final int thePort) {
+		final OscRecorder myRecorder = _myRecorder;
+		if (myRecorder != null) {
+			myRecorder.record(thePacket);
+		}
+		if (!_myFilter.isEmpty()) {
+			/* filtered from the packet's bytes, before taking the lock */
+			final ByteBuffer myBuffer = ByteBuffer.wrap(thePacket.getData(), thePacket.getOffset(), thePacket.getLength());
+			if (_myFilter.accept(myBuffer)) {
+				process(myBuffer, (InetSocketAddress) thePacket.getSocketAddress(), thePort, false);
+			}
+			return;
+		}
 		synchronized (this) {
+			final long myStart = System.nanoTime();
+			_myReceiveTime = myStart;
 			OscPacket p = OscPacket.parse(thePacket);
-			if (p.isValid()) {
-				if (p.type() == OscPacket.BUNDLE) {
-					for (int i = 0; i < ((OscBundle) p).size(); i++) {
-						callMethod(((OscBundle) p).getMessage(i));
-					}
-				} else {
-					callMethod((OscMessage) p);
-				}
-			}
+			dispatch(p, thePacket.getLength(), myStart);
 			notifyAll();
 		}
 	}
 
+	/**
+	 * incoming osc packets received in nio mode are parsed straight from the
+	 * pooled receive buffer and forwarded to the parent.
+	 * 
+	 * @invisible
+	 * @param theBuffer ByteBuffer
+	 * @param theSender InetSocketAddress
+	 * @param thePort int
+	 */
+	public void process(final ByteBuffer theBuffer, final InetSocketAddress theSender, final int thePort) {
+		process(theBuffer, theSender, thePort, true);
+	}
+
+	private void process(final ByteBuffer theBuffer, final InetSocketAddress theSender, final int thePort, final boolean isRecording) {
+		final OscRecorder myRecorder = _myRecorder;
+		if (myRecorder != null && isRecording) {
+			myRecorder.record(theBuffer, theSender);
+		}
+		final OscFilter myFilter = _myFilter.isEmpty() ? null : _myFilter;
+		if (myFilter != null && !myFilter.accept(theBuffer)) {
+			return;
+		}
+		synchronized (this) {
+			final long myStart = System.nanoTime();
+			_myReceiveTime = myStart;
+			final int myBytes = theBuffer.remaining();
+			OscPacket p = OscPacket.parse(theBuffer, theSender, myFilter);
+			dispatch(p, myBytes, myStart);
+			notifyAll();
+		}
+	}
+
+	/* forward a parsed packet and count it in the stats when those are enabled. */
+	private void dispatch(final OscPacket thePacket, final int theBytes, final long theStart) {
+		if (!thePacket.isValid()) {
+			return;
+		}
+		final OscScheduler myScheduler = _myScheduler;
+		if (myScheduler != null && thePacket.type() == OscPacket.BUNDLE && myScheduler.schedule((OscBundle) thePacket, theBytes)) {
+			return;
+		}
+		deliver(thePacket, theBytes, theStart);
+	}
+
+	/* called from the scheduler thread when a held bundle is due. */
+	void release(final OscBundle theBundle, final int theBytes, final long theStart) {
+		synchronized (this) {
+			_myReceiveTime = theStart;
+			deliver(theBundle, theBytes, theStart);
+			notifyAll();
+		}
+	}
+
+	private void deliver(final OscPacket thePacket, final int theBytes, final long theStart) {
+		final boolean isCounting = _myStats.isEnabled();
+		final int mySize = thePacket.type() == OscPacket.BUNDLE ? ((OscBundle) thePacket).size() : 1;
+		long myTime = isCounting ? System.nanoTime() : 0;
+		final long myParseTime = (myTime - theStart) / Math.max(1, mySize);
+		if (isCounting) {
+			_myStats.packet();
+		}
+		for (int i = 0; i < mySize; i++) {
+			final OscMessage myMessage = thePacket.type() == OscPacket.BUNDLE ? ((OscBundle) thePacket).getMessage(i) : (OscMessage) thePacket;
+			callMethod(myMessage);
+			if (isCounting) {
+				final long myNow = System.nanoTime();
+				_myStats.message(myMessage.addrPattern(), theBytes / mySize, myParseTime, myNow - myTime);
+				myTime = myNow;
+			}
+		}
+	}
+
 	/**
 	 * @invisible
 	 * @see netP5.TcpPacketListener#process(netP5.TcpPacket, int)
 	 */
 	public void process(final TcpPacket thePacket, final int thePort) {
 		synchronized (this) {
+			final long myStart = System.nanoTime();
+			_myReceiveTime = myStart;
 			OscPacket p = OscPacket.parse(thePacket);
-			if (p.isValid()) {
-				if (p.type() == OscPacket.BUNDLE) {
-					for (int i = 0; i < ((OscBundle) p).size(); i++) {
-						callMethod(((OscBundle) p).getMessage(i));
-					}
-				} else {
-					callMethod((OscMessage) p);
-				}
-			}
+			dispatch(p, thePacket.getData().length, myStart);
 			notifyAll();
 		}
 	}
@@ -716,6 +828,317 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 		_myOscNetManager.send(thePacket, theNetAddress);
 	}
 
+	/**
+	 * the per destination bundler for outgoing messages. enable it and call
+	 * flushOutgoing() once per frame to send each destination's messages of that
+	 * frame as a few bundles instead of one datagram per message.
+	 * 
+	 * @return OscBundler
+	 */
+	public OscBundler bundler() {
+		return _myOscNetManager.bundler();
+	}
+
+	/**
+	 * send outgoing packets from a dedicated thread instead of the calling
+	 * one. packets are copied into a queue of theCapacity slots, when it is
+	 * full further packets are dropped.
+	 * 
+	 * @param theCapacity int
+	 * @return OscSender
+	 */
+	public OscSender startSender(final int theCapacity) {
+		return _myOscNetManager.startSender(theCapacity);
+	}
+
+	/**
+	 * @return OscSender, null if startSender() was not called
+	 */
+	public OscSender sender() {
+		return _myOscNetManager.sender();
+	}
+
+	/**
+	 * send what the bundler has collected, call once per frame.
+	 */
+	public void flushOutgoing() {
+		_myOscNetManager.flushOutgoing();
+	}
+
+	/**
+	 * hold received bundles with a timetag in the future and dispatch them
+	 * when they are due, instead of right away. lets a sender schedule
+	 * events ahead by more than the network jitter so they happen at the
+	 * intended time. bundles with the immediate timetag are not affected.
+	 * 
+	 * @param theTickMillis float, resolution of the scheduler
+	 * @return OscScheduler
+	 */
+	public OscScheduler startScheduler(final float theTickMillis) {
+		stopScheduler();
+		OscScheduler myScheduler = new OscScheduler(this, (long) (theTickMillis * 1000000L));
+		myScheduler.start();
+		_myScheduler = myScheduler;
+		return myScheduler;
+	}
+
+	/**
+	 * dispatch bundles when they arrive again, pending bundles are
+	 * dispatched right away.
+	 */
+	public void stopScheduler() {
+		final OscScheduler myScheduler = _myScheduler;
+		_myScheduler = null;
+		if (myScheduler != null) {
+			myScheduler.dispose();
+		}
+	}
+
+	/**
+	 * @return OscScheduler, null if startScheduler() was not called
+	 */
+	public OscScheduler scheduler() {
+		return _myScheduler;
+	}
+
+	/**
+	 * receive from a multicast group in addition to the regular socket.
+	 * packets from the group are dispatched like any other, so plugs and
+	 * oscEvent see them unchanged. the sender does not need to know about
+	 * this receiver, any number of receivers can join the same group and
+	 * port.
+	 * 
+	 * @param theGroup String, a multicast address e.g. 239.255.0.1
+	 * @param thePort int
+	 * @return Multicast, null if theGroup is not a multicast address
+	 */
+	public Multicast joinGroup(final String theGroup, final int thePort) {
+		NetAddress myAddress = new NetAddress(theGroup, thePort);
+		if (!myAddress.isvalid() || !myAddress.isMulticast()) {
+			Logger.printError("OscP5.joinGroup", theGroup + " is not a multicast address.");
+			return null;
+		}
+		Multicast myGroup = new Multicast((UdpPacketListener) this, theGroup, thePort, _myOscProperties.datagramSize());
+		synchronized (_myGroups) {
+			_myGroups.add(myGroup);
+		}
+		return myGroup;
+	}
+
+	/**
+	 * @param theGroup String
+	 * @param thePort int
+	 */
+	public void leaveGroup(final String theGroup, final int thePort) {
+		synchronized (_myGroups) {
+			for (int i = _myGroups.size() - 1; i >= 0; i--) {
+				Multicast myGroup = _myGroups.get(i);
+				if (myGroup.netAddress().address().equals(theGroup) && myGroup.netAddress().port() == thePort) {
+					myGroup.close();
+					_myGroups.remove(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * accept tcp connections in addition to the regular socket, e.g. for
+	 * control surfaces or recorders that need every message delivered.
+	 * clients are served by a single selector thread and their packets are
+	 * dispatched like any other. replies go back over the same
+	 * connection through sendTcp(OscPacket,NetAddress) with the NetAddress of
+	 * the received message; send() would answer over udp.
+	 * 
+	 * @param thePort int
+	 * @param theFraming int, TcpChannelServer.FRAMING_LENGTH or
+	 *            TcpChannelServer.FRAMING_SLIP
+	 * @return TcpChannelServer
+	 */
+	public TcpChannelServer listenTcp(final int thePort, final int theFraming) {
+		TcpChannelServer myServer = new TcpChannelServer(this, thePort, theFraming, _myOscProperties.datagramSize(), _myOscProperties.tcpQueueSize());
+		synchronized (_myTcpServers) {
+			_myTcpServers.add(myServer);
+		}
+		return myServer;
+	}
+
+	/**
+	 * send a packet to a client connected to one of the servers started
+	 * with listenTcp().
+	 * 
+	 * @param thePacket OscPacket
+	 * @param theClient NetAddress
+	 * @return boolean, false if no server has a client at theClient or its
+	 *         send queue is full
+	 */
+	public boolean sendTcp(final OscPacket thePacket, final NetAddress theClient) {
+		return sendTcp(ByteBuffer.wrap(thePacket.getBytes()), theClient);
+	}
+
+	/**
+	 * send a message encoded with an OscWriter to a client connected to one
+	 * of the servers started with listenTcp().
+	 * 
+	 * @param theWriter OscWriter
+	 * @param theClient NetAddress
+	 * @return boolean, false if no server has a client at theClient or its
+	 *         send queue is full
+	 */
+	public boolean sendTcp(final OscWriter theWriter, final NetAddress theClient) {
+		return sendTcp(theWriter.packet(), theClient);
+	}
+
+	private boolean sendTcp(final ByteBuffer theBuffer, final NetAddress theClient) {
+		synchronized (_myTcpServers) {
+			for (int i = 0; i < _myTcpServers.size(); i++) {
+				if (_myTcpServers.get(i).send(theBuffer, theClient.socketAddress())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param theClient NetAddress, e.g. the netAddress() of a received message
+	 * @return boolean, true if theClient is connected to one of the servers
+	 *         started with listenTcp(), so replies to it belong on sendTcp()
+	 */
+	public boolean isTcpClient(final NetAddress theClient) {
+		synchronized (_myTcpServers) {
+			for (int i = 0; i < _myTcpServers.size(); i++) {
+				if (_myTcpServers.get(i).isConnected(theClient.socketAddress())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void closeTcpServers() {
+		synchronized (_myTcpServers) {
+			for (int i = 0; i < _myTcpServers.size(); i++) {
+				_myTcpServers.get(i).dispose();
+			}
+			_myTcpServers.clear();
+		}
+	}
+
+	private void leaveGroups() {
+		synchronized (_myGroups) {
+			for (int i = 0; i < _myGroups.size(); i++) {
+				_myGroups.get(i).close();
+			}
+			_myGroups.clear();
+		}
+	}
+
+	/**
+	 * drop rules applied to received messages before they are parsed. use
+	 * filter().drop("/some/address") or filter().drop("/some/prefix/*") for
+	 * streams nothing listens to, and filter().pass() to receive them again.
+	 * 
+	 * @return OscFilter
+	 */
+	public OscFilter filter() {
+		return _myFilter;
+	}
+
+	/**
+	 * per address counters and timings of received messages, disabled until
+	 * stats().setEnabled(true) is called.
+	 * 
+	 * @return OscStats
+	 */
+	public OscStats stats() {
+		return _myStats;
+	}
+
+	/**
+	 * the System.nanoTime() at which the packet currently being dispatched
+	 * was received. only meaningful when called from a plug method or
+	 * oscEvent.
+	 * 
+	 * @return long
+	 */
+	public long receiveTime() {
+		return _myReceiveTime;
+	}
+
+	/**
+	 * record every incoming packet to theFilename before it is parsed, see
+	 * replay() for playing it back.
+	 * 
+	 * @param theFilename String, an existing file is overwritten
+	 * @return boolean, false if the file could not be opened
+	 */
+	public boolean startRecording(final String theFilename) {
+		stopRecording();
+		try {
+			_myRecorder = new OscRecorder(theFilename);
+			return true;
+		} catch (IOException e) {
+			Logger.printError("OscP5.startRecording", "can't record to " + theFilename + " " + e);
+			return false;
+		}
+	}
+
+	public void stopRecording() {
+		final OscRecorder myRecorder = _myRecorder;
+		_myRecorder = null;
+		if (myRecorder != null) {
+			myRecorder.close();
+		}
+	}
+
+	/**
+	 * @return OscRecorder, null when not recording
+	 */
+	public OscRecorder recorder() {
+		return _myRecorder;
+	}
+
+	/**
+	 * feed a log written by startRecording() back through this instance as
+	 * if the packets had just been received.
+	 * 
+	 * @param theFilename String
+	 * @param theSpeed float, 1 for real time, N for N times faster, 0 for as
+	 *            fast as possible
+	 * @return OscReplay
+	 */
+	public OscReplay replay(final String theFilename, final float theSpeed) {
+		stopReplay();
+		/* replayed packets are dispatched like received ones but not recorded again */
+		_myReplay = new OscReplay(theFilename, new UdpBufferListener() {
+			public void process(final ByteBuffer theBuffer, final InetSocketAddress theSender, final int thePort) {
+				OscP5.this.process(theBuffer, theSender, thePort, false);
+			}
+		}, _myOscProperties.listeningPort());
+		_myReplay.setSpeed(theSpeed);
+		_myReplay.start();
+		return _myReplay;
+	}
+
+	public void stopReplay() {
+		if (_myReplay != null) {
+			_myReplay.stop();
+			_myReplay = null;
+		}
+	}
+
+	/**
+	 * send a message encoded with an OscWriter. the writer's buffer is sent
+	 * as is, no byte arrays are created on the way.
+	 * 
+	 * @param theWriter OscWriter
+	 * @param theNetAddress NetAddress
+	 * @usage Application
+	 */
+	public void send(final OscWriter theWriter, final NetAddress theNetAddress) {
+		_myOscNetManager.send(theWriter.packet(), theNetAddress);
+	}
+
 	/**
 	 * @param thePacket OscPacket
 	 * @usage Application
@@ -811,6 +1234,9 @@ public class OscP5 implements UdpPacketListener, TcpPacketListener {
 	 */
 	public void stop() {
 		Logger.printDebug("OscP5.stop", "starting to stop oscP5.");
+		leaveGroups();
+		closeTcpServers();
+		stopScheduler();
 		_myOscNetManager.stop();
 		Logger.printDebug("OscP5.stop", "stopping oscP5.");
 	}
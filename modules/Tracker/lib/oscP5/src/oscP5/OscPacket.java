@@ -27,6 +27,8 @@ package oscP5;
 
 import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import netP5.Bytes;
 import netP5.NetAddress;
 import netP5.TcpPacket;
@@ -81,6 +83,46 @@ public abstract class OscPacket extends OscPatcher {
     }
 
 
+    /**
+     * parse a packet straight from a receive buffer. the packet is read
+     * between the buffer's position and limit, the buffer itself is not
+     * modified and may be reused once parse returns.
+     */
+    protected static OscPacket parse(ByteBuffer theBuffer, InetSocketAddress theSender) {
+        return parse(theBuffer, theSender, null);
+    }
+
+
+    /**
+     * parse a packet, the messages of a bundle that theFilter drops are
+     * skipped. a single message is expected to have been checked by the
+     * caller, before taking any lock. a bundle whose messages are all
+     * dropped is returned empty and invalid.
+     */
+    protected static OscPacket parse(ByteBuffer theBuffer, InetSocketAddress theSender, OscFilter theFilter) {
+        final int myOffset = theBuffer.position();
+        final int myLength = theBuffer.remaining();
+        if (evaluatePacket(theBuffer, myOffset, myLength) == MESSAGE) {
+            return new OscMessage(theBuffer, myOffset, myLength, theSender.getAddress(), theSender.getPort(), 1, null);
+        } else {
+            return new OscBundle(theBuffer, myOffset, myLength, theSender, theFilter);
+        }
+    }
+
+
+    private static int evaluatePacket(ByteBuffer theBuffer, int theOffset, int theLength) {
+        if (theLength < OscBundle.BUNDLE_AS_BYTES.length) {
+            return MESSAGE;
+        }
+        for (int i = 0; i < OscBundle.BUNDLE_AS_BYTES.length; i++) {
+            if (theBuffer.get(theOffset + i) != OscBundle.BUNDLE_AS_BYTES[i]) {
+                return MESSAGE;
+            }
+        }
+        return BUNDLE;
+    }
+
+
     private static int evaluatePacket(byte[] theBytes) {
         return (Bytes.areEqual(OscBundle.BUNDLE_AS_BYTES, Bytes.copy(theBytes, 0, OscBundle.BUNDLE_AS_BYTES.length))) ? BUNDLE
                 : MESSAGE;
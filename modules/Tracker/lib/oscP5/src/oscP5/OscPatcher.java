@@ -26,6 +26,7 @@
 package oscP5;
 
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import netP5.Bytes;
 import netP5.TcpClient;
@@ -56,6 +57,10 @@ protected static final byte ZEROBYTE = 0x00;
   protected byte[] _myData = new byte[0];
 
   protected Object[] _myArguments;
+
+  /* offsets of the arguments in _myData, -1 for T F N and I. a received
+     message keeps _myArguments null until the arguments are asked for. */
+  protected int[] _myOffsets;
   
   protected boolean isValid = false;
 
@@ -72,26 +77,55 @@ protected static final byte ZEROBYTE = 0x00;
   protected int parseBundle(final byte[] theBytes,
                             final InetAddress theAddress, final int thePort,
                             final TcpClient theClient) {
-    if (theBytes.length > OscBundle.BUNDLE_HEADER_SIZE) {
-      timetag = (new Long(Bytes.toLong(Bytes.copy(theBytes, 8, 8)))).longValue();
-      int myPosition = OscBundle.BUNDLE_HEADER_SIZE;
-      messages = new ArrayList<OscMessage>();
-      int myMessageLength = Bytes.toInt(Bytes.copy(theBytes, myPosition,4));
-      while (myMessageLength != 0 && (myMessageLength % 4 == 0)
-             && myPosition < theBytes.length) {
+    return parseBundle(ByteBuffer.wrap(theBytes), 0, theBytes.length,
+                       theAddress, thePort, theClient);
+  }
+
+
+  /**
+   * parse a bundle straight from a buffer. the messages inside the bundle
+   * are parsed from their offsets, no intermediate byte arrays are created.
+   * the buffer's position and limit are left untouched.
+   */
+  protected int parseBundle(final ByteBuffer theBuffer, final int theOffset,
+                            final int theLength, final InetAddress theAddress,
+                            final int thePort, final TcpClient theClient) {
+    return parseBundle(theBuffer, theOffset, theLength, theAddress, thePort,
+                       theClient, null);
+  }
+
+
+  /**
+   * parse a bundle, messages dropped by theFilter are skipped without
+   * being parsed.
+   */
+  protected int parseBundle(final ByteBuffer theBuffer, final int theOffset,
+                            final int theLength, final InetAddress theAddress,
+                            final int thePort, final TcpClient theClient,
+                            final OscFilter theFilter) {
+    final int myEnd = theOffset + theLength;
+    messages = new ArrayList<OscMessage>();
+    if (theLength > OscBundle.BUNDLE_HEADER_SIZE) {
+      timetag = theBuffer.getLong(theOffset + 8);
+      int myPosition = theOffset + OscBundle.BUNDLE_HEADER_SIZE;
+      while (myPosition + 4 <= myEnd) {
+        int myMessageLength = theBuffer.getInt(myPosition);
+        if (myMessageLength == 0 || (myMessageLength % 4 != 0)
+            || myPosition + 4 + myMessageLength > myEnd) {
+          break;
+        }
         myPosition += 4;
-        messages.add(new OscMessage(Bytes.copy(theBytes, myPosition,myMessageLength),
-                                    theAddress,
-                                    thePort,
-                                    timetag,
-                                    theClient));
+        if (theFilter != null && !theFilter.accept(theBuffer, myPosition, myPosition + myMessageLength)) {
+          myPosition += myMessageLength;
+          continue;
+        }
+        OscMessage myMessage = new OscMessage(theBuffer, myPosition,
+                                              myMessageLength, theAddress,
+                                              thePort, timetag, theClient);
+        if (myMessage.isValid) {
+          messages.add(myMessage);
+        }
         myPosition += myMessageLength;
-        myMessageLength = Bytes.toInt(Bytes.copy(theBytes, myPosition,4));
-      }
-    }
-    for (int i = 0; i < messages.size(); i++) {
-      if (!messages.get(i).isValid) {
-        messages.remove(messages.get(i));
       }
     }
 
@@ -103,15 +137,25 @@ protected static final byte ZEROBYTE = 0x00;
 
 
   protected void parseMessage(final byte[] theBytes) {
-    int myLength = theBytes.length;
-    int myIndex = 0;
-    myIndex = parseAddrPattern(theBytes, myLength, myIndex);
+    parseMessage(ByteBuffer.wrap(theBytes), 0, theBytes.length);
+  }
+
+
+  /**
+   * parse a message from theLength bytes starting at theOffset. values are
+   * read with absolute gets, the buffer's position and limit are left
+   * untouched so the buffer can be handed back to its pool afterwards.
+   * the arguments are only indexed, see indexArguments.
+   */
+  protected void parseMessage(final ByteBuffer theBuffer, final int theOffset,
+                              final int theLength) {
+    final int myEnd = theOffset + theLength;
+    int myIndex = parseAddrPattern(theBuffer, theOffset, myEnd);
     if (myIndex != -1) {
-      myIndex = parseTypetag(theBytes, myLength, myIndex);
+      myIndex = parseTypetag(theBuffer, theOffset, myEnd, myIndex);
     }
-    if (myIndex != -1) {
-      _myData = Bytes.copy(theBytes, myIndex);
-      _myArguments = parseArguments(_myData);
+    if (myIndex != -1 && indexArguments(theBuffer, myEnd, myIndex)) {
+      _myArguments = null;
       isValid = true;
     }
   }
@@ -119,13 +163,19 @@ protected static final byte ZEROBYTE = 0x00;
 
   protected int parseAddrPattern(final byte[] theBytes, final int theLength,
                                  final int theIndex) {
-    if (theLength > 4 && theBytes[4] == KOMMA) {
-      _myAddrInt = Bytes.toInt(Bytes.copy(theBytes, 0, 4));
+    return parseAddrPattern(ByteBuffer.wrap(theBytes), theIndex, theLength);
+  }
+
+
+  private int parseAddrPattern(final ByteBuffer theBuffer, final int theOffset,
+                               final int theEnd) {
+    if (theEnd - theOffset > 4 && theBuffer.get(theOffset + 4) == KOMMA) {
+      _myAddrInt = theBuffer.getInt(theOffset);
     }
-    for (int i = theIndex; i < theLength; i++) {
-      if (theBytes[i] == ZEROBYTE) {
-        _myAddrPattern = Bytes.copy(theBytes, theIndex, i);
-        return i + align(i);
+    for (int i = theOffset; i < theEnd; i++) {
+      if (theBuffer.get(i) == ZEROBYTE) {
+        _myAddrPattern = copy(theBuffer, theOffset, i - theOffset);
+        return i + align(i - theOffset);
       }
     }
     return -1;
@@ -134,12 +184,18 @@ protected static final byte ZEROBYTE = 0x00;
 
   protected int parseTypetag(final byte[] theBytes, final int theLength,
                              int theIndex) {
-    if (theBytes[theIndex] == KOMMA) {
+    return parseTypetag(ByteBuffer.wrap(theBytes), 0, theLength, theIndex);
+  }
+
+
+  private int parseTypetag(final ByteBuffer theBuffer, final int theOffset,
+                           final int theEnd, int theIndex) {
+    if (theIndex < theEnd && theBuffer.get(theIndex) == KOMMA) {
       theIndex++;
-      for (int i = theIndex; i < theLength; i++) {
-        if (theBytes[i] == ZEROBYTE) {
-          _myTypetag = Bytes.copy(theBytes, theIndex, i - theIndex);
-          return i + align(i);
+      for (int i = theIndex; i < theEnd; i++) {
+        if (theBuffer.get(i) == ZEROBYTE) {
+          _myTypetag = copy(theBuffer, theIndex, i - theIndex);
+          return i + align(i - theOffset);
         }
       }
     }
@@ -155,12 +211,36 @@ protected static final byte ZEROBYTE = 0x00;
    * @return
    */
   protected Object[] parseArguments(final byte[] theBytes) {
-    Object[] myArguments = new Object[0];
-    int myTagIndex = 0;
-    int myIndex = 0;
-    myArguments = new Object[_myTypetag.length];
+    return parseArguments(ByteBuffer.wrap(theBytes), 0, theBytes.length, 0);
+  }
+
+
+  /**
+   * cast the arguments starting at theStart and store them in an object
+   * array. _myData is set to the bytes consumed by the arguments.
+   */
+  private Object[] parseArguments(final ByteBuffer theBuffer,
+                                  final int theOffset, final int theEnd,
+                                  final int theStart) {
+    if (!indexArguments(theBuffer, theEnd, theStart)) {
+      return new Object[0];
+    }
+    return decodeArguments();
+  }
+
+
+  /**
+   * find where each argument starts without decoding it. the argument bytes
+   * are copied once into _myData, which is not a view: the receive buffer is
+   * not referenced afterwards. returns false if an argument runs past theEnd,
+   * including a string without its terminating zero.
+   */
+  private boolean indexArguments(final ByteBuffer theBuffer, final int theEnd,
+                                 final int theStart) {
+    final int[] myOffsets = new int[_myTypetag.length];
+    int myIndex = theStart;
     isArray = (_myTypetag.length > 0) ? true : false;
-    while (myTagIndex < _myTypetag.length) {
+    for (int myTagIndex = 0; myTagIndex < _myTypetag.length; myTagIndex++) {
       /* check if we still save the arguments as an array */
       if (myTagIndex == 0) {
         _myArrayType = _myTypetag[myTagIndex];
@@ -169,73 +249,158 @@ protected static final byte ZEROBYTE = 0x00;
           isArray = false;
         }
       }
+      myOffsets[myTagIndex] = myIndex - theStart;
       switch (_myTypetag[myTagIndex]) {
       case (0x63): // char c
-        myArguments[myTagIndex] = (new Character((char) (Bytes
-                .toInt(Bytes.copy(theBytes, myIndex, 4)))));
-        myIndex += 4;
-        break;
       case (0x69): // int i
-        myArguments[myTagIndex] = (new Integer(Bytes.toInt(Bytes.copy(
-                theBytes, myIndex, 4))));
-        myIndex += 4;
-        break;
       case (0x66): // float f
-        myArguments[myTagIndex] = (new Float(Bytes.toFloat(Bytes.copy(
-                theBytes, myIndex, 4))));
+      case 0x6d: // midi m
         myIndex += 4;
-
         break;
       case (0x6c): // long l
       case (0x68): // long h
-        myArguments[myTagIndex] = (new Long(Bytes.toLong(Bytes.copy(
-                theBytes, myIndex, 8))));
-        myIndex += 8;
-        break;
       case (0x64): // double d
-        myArguments[myTagIndex] = (new Double(Bytes.toDouble(Bytes
-                .copy(theBytes, myIndex, 8))));
         myIndex += 8;
         break;
       case (0x53): // Symbol S
       case (0x73): // String s
         int newIndex = myIndex;
-        StringBuffer stringBuffer = new StringBuffer();
-
-        stringLoop:
-                do {
-          if (theBytes[newIndex] == 0x00) {
-            break stringLoop;
-          } else {
-            stringBuffer.append((char) theBytes[newIndex]);
-          }
+        while (newIndex < theEnd && theBuffer.get(newIndex) != 0x00) {
           newIndex++;
-        } while (newIndex < theBytes.length);
-
-        myArguments[myTagIndex] = (stringBuffer.toString());
-        myIndex = newIndex + align(newIndex);
+        }
+        if (newIndex == theEnd) {
+          /* no terminator before the end of the packet */
+          return false;
+        }
+        /* the last string or blob may leave out its padding */
+        myIndex = Math.min(newIndex + align(newIndex - theStart), theEnd);
         break;
       case 0x62: // byte[] b - blob
-        int myLen = Bytes.toInt(Bytes.copy(theBytes, myIndex, 4));
-        myIndex += 4;
-        myArguments[myTagIndex] = Bytes.copy(theBytes, myIndex, myLen);
-        myIndex += myLen + (align(myLen) % 4);
-        break;
-      case 0x6d: // midi m
-        myArguments[myTagIndex] = Bytes.copy(theBytes, myIndex, 4);
-        myIndex += 4;
+        if (myIndex + 4 > theEnd) {
+          return false;
+        }
+        int myLen = theBuffer.getInt(myIndex);
+        if (myLen < 0 || myIndex + 4 + myLen > theEnd) {
+          return false;
+        }
+        myIndex = Math.min(myIndex + 4 + myLen + (align(myLen) % 4), theEnd);
         break;
+      default:
         /*
          * no arguments for typetags T,F,N T = true F = false N = false
          */
+        myOffsets[myTagIndex] = -1;
+      }
+      if (myIndex > theEnd) {
+        return false;
+      }
+    }
+    _myOffsets = myOffsets;
+    _myData = copy(theBuffer, theStart, myIndex - theStart);
+    return true;
+  }
+
+
+  /**
+   * decode one argument from _myData.
+   */
+  protected Object decodeArgument(final int theIndex) {
+    final int myOffset = _myOffsets[theIndex];
+    switch (_myTypetag[theIndex]) {
+    case (0x63): // char c
+      return new Character(charAt(myOffset));
+    case (0x69): // int i
+      return new Integer(intAt(myOffset));
+    case (0x66): // float f
+      return new Float(floatAt(myOffset));
+    case (0x6c): // long l
+    case (0x68): // long h
+      return new Long(longAt(myOffset));
+    case (0x64): // double d
+      return new Double(doubleAt(myOffset));
+    case (0x53): // Symbol S
+    case (0x73): // String s
+      StringBuffer stringBuffer = new StringBuffer();
+      for (int i = myOffset; i < _myData.length && _myData[i] != 0x00; i++) {
+        stringBuffer.append((char) _myData[i]);
       }
-      myTagIndex++;
+      return stringBuffer.toString();
+    case 0x62: // byte[] b - blob
+      int myLen = Math.min(intAt(myOffset), _myData.length - myOffset - 4);
+      return Bytes.copy(_myData, myOffset + 4, myLen);
+    case 0x6d: // midi m
+      return Bytes.copy(_myData, myOffset, 4);
+    default:
+      return null;
+    }
+  }
+
+
+  /*
+   * typed accessors used by decodeArgument() and OscPlug to read arguments
+   * straight from the message data without boxing or wrapping it.
+   * theOffset is a byte offset into the data.
+   */
+
+  protected int intAt(final int theOffset) {
+    return ((_myData[theOffset] & 0xff) << 24)
+            | ((_myData[theOffset + 1] & 0xff) << 16)
+            | ((_myData[theOffset + 2] & 0xff) << 8)
+            | (_myData[theOffset + 3] & 0xff);
+  }
+
+
+  protected float floatAt(final int theOffset) {
+    return Float.intBitsToFloat(intAt(theOffset));
+  }
+
+
+  protected char charAt(final int theOffset) {
+    return (char) intAt(theOffset);
+  }
+
+
+  protected long longAt(final int theOffset) {
+    return ((long) intAt(theOffset) << 32) | (intAt(theOffset + 4) & 0xffffffffL);
+  }
+
+
+  protected double doubleAt(final int theOffset) {
+    return Double.longBitsToDouble(longAt(theOffset));
+  }
+
+
+  /**
+   * decode all arguments from _myData.
+   */
+  protected Object[] decodeArguments() {
+    final Object[] myArguments = new Object[_myTypetag.length];
+    for (int i = 0; i < myArguments.length; i++) {
+      myArguments[i] = decodeArgument(i);
     }
-    _myData = Bytes.copy(_myData, 0, myIndex);
     return myArguments;
   }
 
 
+  /**
+   * copy theLength bytes starting at theIndex without moving the buffer's
+   * position.
+   */
+  protected static byte[] copy(final ByteBuffer theBuffer, final int theIndex,
+                               final int theLength) {
+    final byte[] myBytes = new byte[theLength];
+    if (theBuffer.hasArray()) {
+      System.arraycopy(theBuffer.array(), theBuffer.arrayOffset() + theIndex,
+                       myBytes, 0, theLength);
+      return myBytes;
+    }
+    for (int i = 0; i < theLength; i++) {
+      myBytes[i] = theBuffer.get(theIndex + i);
+    }
+    return myBytes;
+  }
+
+
   protected static int align(int theInt) {
     return (4 - (theInt % 4));
   }
@@ -25,7 +25,11 @@
 
 package oscP5;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import netP5.Logger;
 
 /**
@@ -48,6 +52,13 @@ public class OscPlug {
 	
 	public Method method = null;
 
+	/**
+	 * (OscMessage)void handle that reads the typed arguments straight from the
+	 * message and calls the plugged method. null if the typetag can not be
+	 * dispatched this way, the reflective method is used then.
+	 */
+	protected MethodHandle invoker = null;
+
 	private int _myChecker = 0;
 
 	protected boolean isArray = false;
@@ -58,6 +69,22 @@ public class OscPlug {
 
 	private static final int CHECK_TYPETAG = 2;
 
+	private static MethodHandle INT_AT, FLOAT_AT, CHAR_AT, LONG_AT, DOUBLE_AT, ARGUMENT_AT;
+
+	static {
+		try {
+			MethodHandles.Lookup myLookup = MethodHandles.lookup();
+			INT_AT = myLookup.findVirtual(OscMessage.class, "intAt", MethodType.methodType(int.class, int.class));
+			FLOAT_AT = myLookup.findVirtual(OscMessage.class, "floatAt", MethodType.methodType(float.class, int.class));
+			CHAR_AT = myLookup.findVirtual(OscMessage.class, "charAt", MethodType.methodType(char.class, int.class));
+			LONG_AT = myLookup.findVirtual(OscMessage.class, "longAt", MethodType.methodType(long.class, int.class));
+			DOUBLE_AT = myLookup.findVirtual(OscMessage.class, "doubleAt", MethodType.methodType(double.class, int.class));
+			ARGUMENT_AT = myLookup.findVirtual(OscMessage.class, "argumentAt", MethodType.methodType(Object.class, int.class));
+		} catch (Exception e) {
+			Logger.printError("OscPlug", "could not look up argument accessors " + e);
+		}
+	}
+
 	public void plug(final Object theObject, final String theMethodName,
 			final String theAddrPattern) {
 		_myObject = theObject;
@@ -119,6 +146,7 @@ public class OscPlug {
 			method = theObjectsClass.getDeclaredMethod(_myMethodName, theClass);
 			_myPattern = _myAddrPattern + _myTypetag;
 			method.setAccessible(true);
+			makeInvoker();
 			Logger.printProcess("OscPlug", "plugging " + theObjectsClass
 					+ " | " + "addrPattern:" + _myAddrPattern + " typetag:"
 					+ _myTypetag + " method:" + _myMethodName);
@@ -167,6 +195,91 @@ public class OscPlug {
 	public Method getMethod() {
 		return method;
 	}
+
+	/**
+	 * build the invoker for the plugged method. arguments of fixed size that
+	 * precede the first string or blob are read from the message data at
+	 * offsets computed here once, everything else is read from the parsed
+	 * argument list.
+	 */
+	private void makeInvoker() {
+		invoker = null;
+		if (isArray || _myChecker != CHECK_ADDRPATTERN_TYPETAG || INT_AT == null) {
+			return;
+		}
+		try {
+			MethodHandle myTarget = MethodHandles.lookup().unreflect(method);
+			if (!Modifier.isStatic(method.getModifiers())) {
+				myTarget = myTarget.bindTo(_myObject);
+			}
+			Class<?>[] myParams = method.getParameterTypes();
+			if (myParams.length != _myTypetag.length()) {
+				return;
+			}
+			MethodHandle[] myGetters = new MethodHandle[myParams.length];
+			int myOffset = 0;
+			for (int i = 0; i < myParams.length; i++) {
+				char myType = _myTypetag.charAt(i);
+				MethodHandle myGetter = null;
+				int mySize = 0;
+				switch (myType) {
+				case ('i'):
+					myGetter = INT_AT;
+					mySize = 4;
+					break;
+				case ('f'):
+					myGetter = FLOAT_AT;
+					mySize = 4;
+					break;
+				case ('c'):
+					myGetter = CHAR_AT;
+					mySize = 4;
+					break;
+				case ('h'):
+				case ('l'):
+					myGetter = LONG_AT;
+					mySize = 8;
+					break;
+				case ('d'):
+					myGetter = DOUBLE_AT;
+					mySize = 8;
+					break;
+				case ('s'):
+				case ('S'):
+				case ('b'):
+					myOffset = -1;
+					break;
+				default:
+					return;
+				}
+				if (myOffset < 0) {
+					myGetters[i] = MethodHandles.insertArguments(ARGUMENT_AT, 1, i);
+				} else {
+					myGetters[i] = MethodHandles.insertArguments(myGetter, 1, myOffset);
+					myOffset += mySize;
+				}
+				myGetters[i] = MethodHandles.explicitCastArguments(myGetters[i], MethodType.methodType(myParams[i], OscMessage.class));
+			}
+			MethodHandle myInvoker;
+			if (myGetters.length == 0) {
+				myInvoker = MethodHandles.dropArguments(myTarget, 0, OscMessage.class);
+			} else {
+				myInvoker = MethodHandles.filterArguments(myTarget, 0, myGetters);
+				myInvoker = MethodHandles.permuteArguments(myInvoker, MethodType.methodType(myTarget.type().returnType(), OscMessage.class), new int[myGetters.length]);
+			}
+			invoker = myInvoker.asType(MethodType.methodType(void.class, OscMessage.class));
+		} catch (Exception e) {
+			Logger.printWarning("OscPlug", "falling back to reflection for " + _myMethodName + " " + e);
+			invoker = null;
+		}
+	}
+
+	/**
+	 * @return MethodHandle, null if the plug is dispatched through reflection.
+	 */
+	public MethodHandle getInvoker() {
+		return invoker;
+	}
 	
 	
 	public String checkType(final String theName) {
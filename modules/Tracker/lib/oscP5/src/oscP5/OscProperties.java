@@ -28,6 +28,7 @@ package oscP5;
 
 import netP5.Logger;
 import netP5.NetAddress;
+import netP5.TcpChannelServer;
 import java.util.Vector;
 
 /**
@@ -80,6 +81,14 @@ public class OscProperties {
 
   private boolean _mySRSP = OFF; // (S)end (R)eceive (S)ame (P)ort
 
+  private boolean _myNIO = OFF;
+
+  private int _myBufferPoolSize = 4;
+
+  private int _myTcpFraming = TcpChannelServer.FRAMING_LENGTH;
+
+  private int _myTcpQueueSize = TcpChannelServer.DEFAULT_QUEUE_SIZE;
+
   public OscProperties(OscEventListener theParent) {
     this();
     listeners.add(theParent);
@@ -231,6 +240,125 @@ public class OscProperties {
 
 
 
+  /**
+   * receive udp packets through a java.nio DatagramChannel into a pool of
+   * reusable direct byte buffers instead of a DatagramSocket. incoming
+   * packets are parsed straight from the buffer, no byte array is
+   * allocated per packet. with TCP, clients are served by a single
+   * selector thread, see setTcpFraming(). can only be set before
+   * initializing oscP5.
+   * @param theFlag boolean
+   * @related OscProperties
+   */
+  public void setNIO(final boolean theFlag) {
+    if (!isLocked) {
+      _myNIO = theFlag;
+    }
+    else {
+      Logger.printWarning("OscProperties.setNIO",
+                          "nio mode can only be set before initializing oscP5.");
+    }
+  }
+
+
+
+  /**
+   * @return boolean
+   * @related OscProperties
+   */
+  public boolean nio() {
+    return _myNIO;
+  }
+
+
+
+  /**
+   * set the number of receive buffers kept in the pool when running in
+   * nio mode. the default is 4.
+   * @param theSize int
+   * @related OscProperties
+   */
+  public void setBufferPoolSize(final int theSize) {
+    if (!isLocked) {
+      _myBufferPoolSize = theSize;
+    }
+    else {
+      Logger.printWarning("OscProperties.setBufferPoolSize",
+                          "buffer pool size can only be set before initializing oscP5.");
+    }
+  }
+
+
+
+  /**
+   * @return int
+   * @related OscProperties
+   */
+  public int bufferPoolSize() {
+    return _myBufferPoolSize;
+  }
+
+
+
+  /**
+   * select how packets are delimited on a tcp stream when running tcp in
+   * nio mode, TcpChannelServer.FRAMING_LENGTH (an int32 size before each
+   * packet, osc 1.0) or TcpChannelServer.FRAMING_SLIP (osc 1.1). the
+   * default is FRAMING_LENGTH.
+   * @param theFraming int
+   * @related OscProperties
+   */
+  public void setTcpFraming(final int theFraming) {
+    if (!isLocked) {
+      _myTcpFraming = theFraming;
+    }
+    else {
+      Logger.printWarning("OscProperties.setTcpFraming",
+                          "tcp framing can only be set before initializing oscP5.");
+    }
+  }
+
+
+
+  /**
+   * @return int
+   * @related OscProperties
+   */
+  public int tcpFraming() {
+    return _myTcpFraming;
+  }
+
+
+
+  /**
+   * set how many outgoing packets are queued for each tcp client when
+   * running tcp in nio mode. packets sent to a client whose queue is full
+   * are dropped. the default is 256.
+   * @param theSize int
+   * @related OscProperties
+   */
+  public void setTcpQueueSize(final int theSize) {
+    if (!isLocked) {
+      _myTcpQueueSize = theSize;
+    }
+    else {
+      Logger.printWarning("OscProperties.setTcpQueueSize",
+                          "tcp queue size can only be set before initializing oscP5.");
+    }
+  }
+
+
+
+  /**
+   * @return int
+   * @related OscProperties
+   */
+  public int tcpQueueSize() {
+    return _myTcpQueueSize;
+  }
+
+
+
   /**
    * you can send and receive at the same port while on a udp con
    * @return boolean
@@ -312,7 +440,8 @@ public class OscProperties {
     s += "receiveAtPort: " + listeningPort() + "\n";
     s += "datagramSize: " + _myDatagramSize + "\n";
     s += "event Method: " + _myDefaultEventMethodName + "\n";
-    s += "(S)end(R)eceive(S)ame(P)ort: " + this._mySRSP + "\n\n";
+    s += "(S)end(R)eceive(S)ame(P)ort: " + this._mySRSP + "\n";
+    s += "nio: " + this._myNIO + "\n\n";
     return s;
   }
 
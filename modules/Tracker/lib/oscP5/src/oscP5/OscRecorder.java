@@ -0,0 +1,208 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.DatagramPacket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import netP5.Logger;
+
+/**
+ * appends every received packet to a memory-mapped log file, see
+ * OscReplay for reading it back. the file is mapped in regions of
+ * REGION_SIZE bytes and truncated to its used length on close.
+ * 
+ * layout: the 8 byte MAGIC, then one record per packet:
+ * <pre>
+ * long   nanoseconds since recording started
+ * byte[4] sender ipv4 address (0.0.0.0 for other addresses)
+ * int    sender port
+ * int    length
+ * byte[length] packet, padded to 4 bytes
+ * </pre>
+ * all values are big-endian.
+ * 
+ * @invisible
+ */
+public class OscRecorder {
+
+	public static final byte[] MAGIC = { 'O', 'S', 'C', 'R', 'E', 'C', '1', 0 };
+
+	public static final int RECORD_HEADER = 20;
+
+	static final int REGION_SIZE = 64 << 20;
+
+	private final String _myFilename;
+
+	private final RandomAccessFile _myFile;
+
+	private final FileChannel _myChannel;
+
+	private MappedByteBuffer _myRegion;
+
+	private long _myRegionStart;
+
+	private final long _myStartTime = System.nanoTime();
+
+	private long _myPackets = 0;
+
+	private boolean isOpen = true;
+
+	/**
+	 * @param theFilename String, an existing file is overwritten
+	 * @throws IOException
+	 */
+	public OscRecorder(final String theFilename) throws IOException {
+		_myFilename = theFilename;
+		_myFile = new RandomAccessFile(theFilename, "rw");
+		_myFile.setLength(0);
+		_myChannel = _myFile.getChannel();
+		map(0);
+		_myRegion.put(MAGIC);
+		Logger.printProcess("OscRecorder", "recording to " + theFilename);
+	}
+
+	private void map(final long thePosition) throws IOException {
+		_myRegionStart = thePosition;
+		_myRegion = _myChannel.map(FileChannel.MapMode.READ_WRITE, thePosition, REGION_SIZE);
+	}
+
+	/**
+	 * @param thePacket ByteBuffer, recorded from its position to its limit,
+	 *            which are left unchanged
+	 * @param theSender InetSocketAddress
+	 */
+	public synchronized void record(final ByteBuffer thePacket, final InetSocketAddress theSender) {
+		if (!isOpen) {
+			return;
+		}
+		final int myStart = thePacket.position();
+		final int myLength = thePacket.remaining();
+		try {
+			if (!reserve(myLength)) {
+				return;
+			}
+			header(myLength, theSender.getAddress(), theSender.getPort());
+			for (int i = 0; i < myLength; i++) {
+				_myRegion.put(thePacket.get(myStart + i));
+			}
+			pad(myLength);
+		} catch (IOException e) {
+			Logger.printError("OscRecorder.record", "recording stopped " + e);
+			close();
+		}
+	}
+
+	/**
+	 * @param thePacket DatagramPacket
+	 */
+	public synchronized void record(final DatagramPacket thePacket) {
+		if (!isOpen) {
+			return;
+		}
+		final int myLength = thePacket.getLength();
+		try {
+			if (!reserve(myLength)) {
+				return;
+			}
+			header(myLength, thePacket.getAddress(), thePacket.getPort());
+			_myRegion.put(thePacket.getData(), thePacket.getOffset(), myLength);
+			pad(myLength);
+		} catch (IOException e) {
+			Logger.printError("OscRecorder.record", "recording stopped " + e);
+			close();
+		}
+	}
+
+	/* make room for a record, mapping the next region if this one is full. */
+	private boolean reserve(final int theLength) throws IOException {
+		final int mySize = RECORD_HEADER + theLength + 3;
+		if (mySize > REGION_SIZE) {
+			return false;
+		}
+		if (_myRegion.remaining() < mySize) {
+			map(_myRegionStart + _myRegion.position());
+		}
+		return true;
+	}
+
+	private void header(final int theLength, final InetAddress theAddress, final int thePort) {
+		_myRegion.putLong(System.nanoTime() - _myStartTime);
+		if (theAddress instanceof Inet4Address) {
+			_myRegion.put(theAddress.getAddress());
+		} else {
+			_myRegion.putInt(0);
+		}
+		_myRegion.putInt(thePort);
+		_myRegion.putInt(theLength);
+		_myPackets++;
+	}
+
+	private void pad(final int theLength) {
+		for (int i = theLength; i % 4 != 0; i++) {
+			_myRegion.put((byte) 0);
+		}
+	}
+
+	/**
+	 * @return long, packets recorded so far
+	 */
+	public synchronized long packets() {
+		return _myPackets;
+	}
+
+	public String filename() {
+		return _myFilename;
+	}
+
+	/**
+	 * stop recording and truncate the file to what was written.
+	 */
+	public synchronized void close() {
+		if (!isOpen) {
+			return;
+		}
+		isOpen = false;
+		try {
+			long myLength = _myRegionStart + _myRegion.position();
+			_myRegion.force();
+			_myRegion = null;
+			_myFile.setLength(myLength);
+			_myChannel.close();
+			_myFile.close();
+			Logger.printProcess("OscRecorder", "recorded " + _myPackets + " packets, " + myLength + " bytes to " + _myFilename);
+		} catch (IOException e) {
+			Logger.printError("OscRecorder.close", "while closing " + _myFilename + " " + e);
+		}
+	}
+}
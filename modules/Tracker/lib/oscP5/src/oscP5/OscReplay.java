@@ -0,0 +1,226 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import netP5.Logger;
+import netP5.UdpBufferListener;
+
+/**
+ * plays a log written by OscRecorder back into a UdpBufferListener, usually
+ * an OscP5 instance, so the packets take the same parse and dispatch path as
+ * live ones. the original timing is kept and scaled by the speed, a speed
+ * of 0 replays as fast as possible.
+ * 
+ * @invisible
+ */
+public class OscReplay implements Runnable {
+
+	private final String _myFilename;
+
+	private final UdpBufferListener _myListener;
+
+	private final int _myPort;
+
+	private volatile float _mySpeed = 1;
+
+	private boolean isLooping = false;
+
+	private volatile boolean isRunning = false;
+
+	private Thread _myThread;
+
+	private long _myPackets = 0;
+
+	private byte[] _myLastAddress = new byte[4];
+
+	private int _myLastPort = -1;
+
+	private InetSocketAddress _myLastSender;
+
+	/**
+	 * @param theFilename String
+	 * @param theListener UdpBufferListener, gets the packets
+	 * @param thePort int, passed on as the receiving port
+	 */
+	public OscReplay(final String theFilename, final UdpBufferListener theListener, final int thePort) {
+		_myFilename = theFilename;
+		_myListener = theListener;
+		_myPort = thePort;
+	}
+
+	/**
+	 * @param theSpeed float, 1 for real time, N for N times faster, 0 for as
+	 *            fast as possible
+	 */
+	public void setSpeed(final float theSpeed) {
+		_mySpeed = theSpeed;
+	}
+
+	public float speed() {
+		return _mySpeed;
+	}
+
+	/**
+	 * start over at the end of the log instead of stopping.
+	 * 
+	 * @param theFlag boolean
+	 */
+	public void setLooping(final boolean theFlag) {
+		isLooping = theFlag;
+	}
+
+	public void start() {
+		isRunning = true;
+		_myThread = new Thread(this, "OscReplay");
+		_myThread.setDaemon(true);
+		_myThread.start();
+	}
+
+	public void stop() {
+		isRunning = false;
+		if (_myThread != null) {
+			_myThread.interrupt();
+		}
+	}
+
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	/**
+	 * @return long, packets replayed so far
+	 */
+	public long packets() {
+		return _myPackets;
+	}
+
+	public void run() {
+		try {
+			do {
+				replay();
+			} while (isRunning && isLooping);
+		} catch (IOException e) {
+			Logger.printError("OscReplay.run", "while reading " + _myFilename + " " + e);
+		} catch (InterruptedException e) {
+			/* stopped */
+		}
+		isRunning = false;
+		Logger.printProcess("OscReplay", "replayed " + _myPackets + " packets from " + _myFilename);
+	}
+
+	/* one pass over the log. */
+	private void replay() throws IOException, InterruptedException {
+		RandomAccessFile myFile = new RandomAccessFile(_myFilename, "r");
+		try {
+			FileChannel myChannel = myFile.getChannel();
+			final long mySize = myChannel.size();
+			final long myStart = System.nanoTime();
+			long myPosition = OscRecorder.MAGIC.length;
+			if (!checkMagic(myChannel)) {
+				Logger.printError("OscReplay", _myFilename + " is not an OscRecorder log.");
+				isRunning = false;
+				return;
+			}
+			while (isRunning && myPosition < mySize) {
+				/* map up to one recorder region at a time, records never span regions. */
+				long myRegionSize = Math.min(mySize - myPosition, OscRecorder.REGION_SIZE);
+				MappedByteBuffer myRegion = myChannel.map(FileChannel.MapMode.READ_ONLY, myPosition, myRegionSize);
+				ByteBuffer myPacket = myRegion.duplicate();
+				int myOffset = 0;
+				while (isRunning && myOffset + OscRecorder.RECORD_HEADER <= myRegionSize) {
+					long myTime = myRegion.getLong(myOffset);
+					int myLength = myRegion.getInt(myOffset + 16);
+					if (myLength == 0 && myTime == 0) {
+						return; /* zero-filled tail of a log that was not closed, e.g. after a crash */
+					}
+					int myNext = myOffset + OscRecorder.RECORD_HEADER + ((myLength + 3) & ~3);
+					if (myLength < 0 || myNext > myRegionSize) {
+						break;
+					}
+					waitUntil(myStart, myTime);
+					myPacket.limit(myOffset + OscRecorder.RECORD_HEADER + myLength);
+					myPacket.position(myOffset + OscRecorder.RECORD_HEADER);
+					_myListener.process(myPacket, sender(myRegion, myOffset + 8), _myPort);
+					_myPackets++;
+					myOffset = myNext;
+				}
+				if (myOffset == 0) {
+					break; /* truncated record */
+				}
+				myPosition += myOffset;
+			}
+		} finally {
+			myFile.close();
+		}
+	}
+
+	private boolean checkMagic(final FileChannel theChannel) throws IOException {
+		ByteBuffer myMagic = ByteBuffer.allocate(OscRecorder.MAGIC.length);
+		theChannel.read(myMagic, 0);
+		for (int i = 0; i < OscRecorder.MAGIC.length; i++) {
+			if (myMagic.get(i) != OscRecorder.MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* sleep until theTime (nanoseconds into the recording) at the current speed. */
+	private void waitUntil(final long theStart, final long theTime) throws InterruptedException {
+		float mySpeed = _mySpeed;
+		if (mySpeed <= 0) {
+			return;
+		}
+		long myDelay = theStart + (long) (theTime / mySpeed) - System.nanoTime();
+		if (myDelay > 1000000) {
+			Thread.sleep(myDelay / 1000000, (int) (myDelay % 1000000));
+		}
+	}
+
+	/* sender of the record at theOffset, reused while it does not change. */
+	private InetSocketAddress sender(final ByteBuffer theRegion, final int theOffset) throws IOException {
+		boolean isSame = _myLastSender != null && theRegion.getInt(theOffset + 4) == _myLastPort;
+		for (int i = 0; i < 4 && isSame; i++) {
+			isSame = theRegion.get(theOffset + i) == _myLastAddress[i];
+		}
+		if (!isSame) {
+			for (int i = 0; i < 4; i++) {
+				_myLastAddress[i] = theRegion.get(theOffset + i);
+			}
+			_myLastPort = theRegion.getInt(theOffset + 4);
+			_myLastSender = new InetSocketAddress(InetAddress.getByAddress(_myLastAddress), _myLastPort);
+		}
+		return _myLastSender;
+	}
+}
@@ -0,0 +1,366 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.util.ArrayList;
+
+import netP5.Logger;
+
+/**
+ * routes incoming osc messages to handlers by address. routes are compiled
+ * once into a trie over the address segments, a message is then dispatched in
+ * a single pass over its address string without splitting it.
+ * 
+ * a route segment can be
+ * <ul>
+ * <li>a literal, e.g. /video/navier/scale</li>
+ * <li>an integer capture {name}, e.g. /proj/{n}/save. the captured values are
+ * handed to the handler in order of appearance.</li>
+ * <li>an osc pattern using * ? [abc] [a-z] [!abc] {foo,bar}</li>
+ * </ul>
+ * literals are tried before captures, captures before patterns. a route added
+ * with addPrefix also receives every address below it that no more specific
+ * route takes.
+ * 
+ * dispatch uses a shared capture array, route from one thread at a time.
+ * 
+ * @invisible
+ */
+public class OscRouter {
+
+	/**
+	 * called for a routed message. theCaptures holds the integer captures of
+	 * the route and is only valid during the call.
+	 */
+	public interface Handler {
+		public void handle(OscMessage theMessage, int[] theCaptures);
+	}
+
+	private static final int LITERAL = 0;
+
+	private static final int CAPTURE = 1;
+
+	private static final int PATTERN = 2;
+
+	private final Node _myRoot = new Node(LITERAL, "");
+
+	private int[] _myCaptures = new int[0];
+
+	private int _myRoutes = 0;
+
+	/**
+	 * route messages that match thePattern exactly.
+	 * 
+	 * @param thePattern String
+	 * @param theHandler Handler
+	 */
+	public void add(final String thePattern, final Handler theHandler) {
+		Node myNode = compile(thePattern);
+		if (myNode.handler != null) {
+			Logger.printWarning("OscRouter.add", "replacing route " + thePattern);
+		}
+		myNode.handler = theHandler;
+	}
+
+	/**
+	 * route messages that match thePattern or any address below it.
+	 * 
+	 * @param thePattern String
+	 * @param theHandler Handler
+	 */
+	public void addPrefix(final String thePattern, final Handler theHandler) {
+		Node myNode = compile(thePattern);
+		if (myNode.prefixHandler != null) {
+			Logger.printWarning("OscRouter.addPrefix", "replacing route " + thePattern);
+		}
+		myNode.prefixHandler = theHandler;
+	}
+
+	/**
+	 * dispatch theMessage to the most specific matching route.
+	 * 
+	 * @param theMessage OscMessage
+	 * @return boolean, false if no route matched
+	 */
+	public boolean route(final OscMessage theMessage) {
+		String myAddress = theMessage.addrPattern();
+		if (myAddress == null || myAddress.length() < 2 || myAddress.charAt(0) != '/') {
+			return false;
+		}
+		return match(_myRoot, myAddress, 1, 0, theMessage);
+	}
+
+	/**
+	 * @return int, number of distinct routes
+	 */
+	public int size() {
+		return _myRoutes;
+	}
+
+	private Node compile(final String thePattern) {
+		if (thePattern.length() < 2 || thePattern.charAt(0) != '/') {
+			throw new IllegalArgumentException("OscRouter: bad route " + thePattern);
+		}
+		Node myNode = _myRoot;
+		int myCaptures = 0;
+		int myStart = 1;
+		while (myStart >= 0) {
+			int myEnd = thePattern.indexOf('/', myStart);
+			String mySegment = thePattern.substring(myStart, myEnd < 0 ? thePattern.length() : myEnd);
+			int myKind = kind(mySegment);
+			if (myKind == CAPTURE) {
+				myCaptures++;
+			}
+			myNode = myNode.child(myKind, mySegment);
+			myStart = myEnd < 0 ? -1 : myEnd + 1;
+		}
+		if (myNode.handler == null && myNode.prefixHandler == null) {
+			_myRoutes++;
+		}
+		if (myCaptures > _myCaptures.length) {
+			_myCaptures = new int[myCaptures];
+		}
+		return myNode;
+	}
+
+	private static int kind(final String theSegment) {
+		int myLength = theSegment.length();
+		if (myLength > 2 && theSegment.charAt(0) == '{' && theSegment.charAt(myLength - 1) == '}'
+				&& theSegment.indexOf(',') < 0) {
+			return CAPTURE;
+		}
+		for (int i = 0; i < myLength; i++) {
+			switch (theSegment.charAt(i)) {
+			case '*':
+			case '?':
+			case '[':
+			case '{':
+				return PATTERN;
+			}
+		}
+		return LITERAL;
+	}
+
+	private boolean match(final Node theNode, final String theAddress, final int theStart,
+			final int theCaptureCount, final OscMessage theMessage) {
+		if (theStart < 0) {
+			Handler myHandler = theNode.handler != null ? theNode.handler : theNode.prefixHandler;
+			if (myHandler == null) {
+				return false;
+			}
+			myHandler.handle(theMessage, _myCaptures);
+			return true;
+		}
+		int myEnd = theAddress.indexOf('/', theStart);
+		int myNext = myEnd + 1;
+		if (myEnd < 0) {
+			myEnd = theAddress.length();
+			myNext = -1;
+		}
+		int myLength = myEnd - theStart;
+		Node[] myChildren = theNode.children;
+		for (int i = 0; i < myChildren.length; i++) {
+			Node myChild = myChildren[i];
+			switch (myChild.kind) {
+			case LITERAL:
+				if (myChild.segment.length() == myLength
+						&& theAddress.regionMatches(theStart, myChild.segment, 0, myLength)
+						&& match(myChild, theAddress, myNext, theCaptureCount, theMessage)) {
+					return true;
+				}
+				break;
+			case CAPTURE:
+				if (parseInt(theAddress, theStart, myEnd, theCaptureCount)
+						&& match(myChild, theAddress, myNext, theCaptureCount + 1, theMessage)) {
+					return true;
+				}
+				break;
+			case PATTERN:
+				if (glob(myChild.segment, 0, theAddress, theStart, myEnd)
+						&& match(myChild, theAddress, myNext, theCaptureCount, theMessage)) {
+					return true;
+				}
+				break;
+			}
+		}
+		if (theNode.prefixHandler != null) {
+			theNode.prefixHandler.handle(theMessage, _myCaptures);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean parseInt(final String theAddress, int theStart, final int theEnd, final int theIndex) {
+		boolean isNegative = theStart < theEnd && theAddress.charAt(theStart) == '-';
+		if (isNegative) {
+			theStart++;
+		}
+		if (theStart == theEnd || theEnd - theStart > 9) {
+			return false;
+		}
+		int myValue = 0;
+		for (int i = theStart; i < theEnd; i++) {
+			char c = theAddress.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+			myValue = myValue * 10 + (c - '0');
+		}
+		_myCaptures[theIndex] = isNegative ? -myValue : myValue;
+		return true;
+	}
+
+	/**
+	 * match the osc pattern thePattern, starting at thePatternIndex, against
+	 * theString between theStart and theEnd.
+	 */
+	static boolean glob(final String thePattern, int thePatternIndex, final String theString, int theStart,
+			final int theEnd) {
+		final int myPatternEnd = thePattern.length();
+		while (thePatternIndex < myPatternEnd) {
+			char c = thePattern.charAt(thePatternIndex);
+			switch (c) {
+			case '*':
+				thePatternIndex++;
+				if (thePatternIndex == myPatternEnd) {
+					return true;
+				}
+				for (int i = theStart; i <= theEnd; i++) {
+					if (glob(thePattern, thePatternIndex, theString, i, theEnd)) {
+						return true;
+					}
+				}
+				return false;
+			case '?':
+				if (theStart >= theEnd) {
+					return false;
+				}
+				thePatternIndex++;
+				theStart++;
+				break;
+			case '[': {
+				int myClose = thePattern.indexOf(']', thePatternIndex + 1);
+				if (myClose < 0 || theStart >= theEnd) {
+					return false;
+				}
+				char myChar = theString.charAt(theStart);
+				int i = thePatternIndex + 1;
+				boolean isNegated = i < myClose && thePattern.charAt(i) == '!';
+				if (isNegated) {
+					i++;
+				}
+				boolean isHit = false;
+				while (i < myClose) {
+					char myLow = thePattern.charAt(i);
+					if (i + 2 < myClose && thePattern.charAt(i + 1) == '-') {
+						isHit |= myChar >= myLow && myChar <= thePattern.charAt(i + 2);
+						i += 3;
+					} else {
+						isHit |= myChar == myLow;
+						i++;
+					}
+				}
+				if (isHit == isNegated) {
+					return false;
+				}
+				thePatternIndex = myClose + 1;
+				theStart++;
+				break;
+			}
+			case '{': {
+				int myClose = thePattern.indexOf('}', thePatternIndex + 1);
+				if (myClose < 0) {
+					return false;
+				}
+				int i = thePatternIndex + 1;
+				while (i <= myClose) {
+					int myComma = thePattern.indexOf(',', i);
+					if (myComma < 0 || myComma > myClose) {
+						myComma = myClose;
+					}
+					int myLength = myComma - i;
+					if (theEnd - theStart >= myLength && theString.regionMatches(theStart, thePattern, i, myLength)
+							&& glob(thePattern, myClose + 1, theString, theStart + myLength, theEnd)) {
+						return true;
+					}
+					i = myComma + 1;
+				}
+				return false;
+			}
+			default:
+				if (theStart >= theEnd || theString.charAt(theStart) != c) {
+					return false;
+				}
+				thePatternIndex++;
+				theStart++;
+			}
+		}
+		return theStart == theEnd;
+	}
+
+	private static class Node {
+
+		final int kind;
+
+		final String segment;
+
+		Node[] children = new Node[0];
+
+		Handler handler;
+
+		Handler prefixHandler;
+
+		Node(final int theKind, final String theSegment) {
+			kind = theKind;
+			segment = theSegment;
+		}
+
+		/* find or insert the child for theSegment, children are kept ordered by kind. */
+		Node child(final int theKind, final String theSegment) {
+			for (int i = 0; i < children.length; i++) {
+				Node myChild = children[i];
+				if (myChild.kind == theKind && (theKind == CAPTURE || myChild.segment.equals(theSegment))) {
+					return myChild;
+				}
+			}
+			ArrayList<Node> myChildren = new ArrayList<Node>(children.length + 1);
+			Node myNode = new Node(theKind, theSegment);
+			boolean isInserted = false;
+			for (int i = 0; i < children.length; i++) {
+				if (!isInserted && children[i].kind > theKind) {
+					myChildren.add(myNode);
+					isInserted = true;
+				}
+				myChildren.add(children[i]);
+			}
+			if (!isInserted) {
+				myChildren.add(myNode);
+			}
+			children = myChildren.toArray(new Node[myChildren.size()]);
+			return myNode;
+		}
+	}
+}
@@ -0,0 +1,432 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.util.ArrayList;
+
+import netP5.Logger;
+
+/**
+ * holds received bundles whose timetag lies in the future and releases them
+ * into dispatch at their due time. timetags are converted from NTP time to
+ * System.nanoTime() once on arrival, so the wall clock is only consulted to
+ * keep the offset between the two in sync.
+ * 
+ * pending bundles sit in a timing wheel of SLOTS slots, one per tick. a
+ * bundle due more than one revolution ahead stays in its slot until the
+ * wheel comes around to its tick, adding and releasing are constant time
+ * regardless of how many bundles are pending.
+ * 
+ * bundles with the immediate timetag (1), bundles that are already due and
+ * bundles too far ahead to be plausible are dispatched right away. late and
+ * early arrivals are counted and their offsets kept in histograms, a sender
+ * that schedules events ahead by more than its network jitter should see no
+ * late bundles.
+ * 
+ * @invisible
+ */
+public class OscScheduler implements Runnable {
+
+	public static final int SLOTS = 1024;
+
+	public static final long DEFAULT_TICK_NS = 1000000L;
+
+	public static final long DEFAULT_MAX_AHEAD_NS = 10000000000L;
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/* seconds from 1900 (NTP epoch) to 1970 */
+	private static final long NTP_OFFSET = OscPatcher.TIMETAG_OFFSET;
+
+	private static final long RESYNC_NS = 1000000000L;
+
+	private static class Entry {
+		OscBundle bundle;
+		int bytes;
+		long due;
+		long tick;
+		Entry next;
+	}
+
+	private final OscP5 _myParent;
+
+	private final long _myTick;
+
+	private final Entry[] _myWheel = new Entry[SLOTS];
+
+	private final long _myOrigin = System.nanoTime();
+
+	private long _myCurrentTick = 0;
+
+	private int _myPending = 0;
+
+	private int _myCapacity = DEFAULT_CAPACITY;
+
+	private long _myMaxAhead = DEFAULT_MAX_AHEAD_NS;
+
+	/* epoch nanoseconds minus System.nanoTime() */
+	private volatile long _myClockOffset;
+
+	private long _myLastSync = 0;
+
+	private Thread _myThread;
+
+	private volatile boolean isRunning = false;
+
+	private long _myImmediate = 0;
+
+	private long _myEarly = 0;
+
+	private long _myLate = 0;
+
+	private long _myTooFar = 0;
+
+	private long _myOverflows = 0;
+
+	private final OscStats.Histogram _myLead = new OscStats.Histogram();
+
+	private final OscStats.Histogram _myLateness = new OscStats.Histogram();
+
+	private final OscStats.Histogram _myRelease = new OscStats.Histogram();
+
+	/**
+	 * @param theParent OscP5, released bundles are handed back to it
+	 * @param theTickNanos long, resolution of the wheel
+	 */
+	protected OscScheduler(final OscP5 theParent, final long theTickNanos) {
+		_myParent = theParent;
+		_myTick = Math.max(1, theTickNanos);
+		sync(System.nanoTime());
+	}
+
+	public void start() {
+		isRunning = true;
+		_myThread = new Thread(this, "OscScheduler");
+		_myThread.setDaemon(true);
+		_myThread.setPriority(Thread.MAX_PRIORITY);
+		_myThread.start();
+	}
+
+	/**
+	 * stop the scheduler thread, bundles still pending are dispatched right
+	 * away so nothing is lost.
+	 */
+	public void dispose() {
+		isRunning = false;
+		synchronized (this) {
+			notifyAll();
+		}
+		if (_myThread != null && _myThread != Thread.currentThread()) {
+			try {
+				_myThread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		_myThread = null;
+		release(drain());
+	}
+
+	/**
+	 * bundles due further ahead than this are dispatched immediately, they
+	 * most likely come from a sender whose clock is off.
+	 * 
+	 * @param theMillis long
+	 */
+	public synchronized void setMaxAhead(final long theMillis) {
+		_myMaxAhead = theMillis * 1000000L;
+	}
+
+	/**
+	 * @param theCapacity int, bundles that can be pending before new ones
+	 *            are dispatched immediately
+	 */
+	public synchronized void setCapacity(final int theCapacity) {
+		_myCapacity = theCapacity;
+	}
+
+	/**
+	 * convert an NTP timetag to the System.nanoTime() it refers to.
+	 * 
+	 * @param theTimetag long
+	 * @return long
+	 */
+	public long toNanoTime(final long theTimetag) {
+		final long mySeconds = (theTimetag >>> 32) - NTP_OFFSET;
+		final long myFraction = ((theTimetag & 0xFFFFFFFFL) * 1000000000L) >>> 32;
+		return mySeconds * 1000000000L + myFraction - _myClockOffset;
+	}
+
+	/**
+	 * hold theBundle until its timetag if that lies in the future.
+	 * 
+	 * @param theBundle OscBundle
+	 * @param theBytes int, size of the packet for the stats
+	 * @return boolean, true if the bundle was scheduled, false if the caller
+	 *         should dispatch it now
+	 */
+	protected boolean schedule(final OscBundle theBundle, final int theBytes) {
+		if (theBundle.timetag == 1) {
+			synchronized (this) {
+				_myImmediate++;
+			}
+			return false;
+		}
+		final long myNow = System.nanoTime();
+		final long myDue = toNanoTime(theBundle.timetag);
+		final long myAhead = myDue - myNow;
+		synchronized (this) {
+			if (myAhead <= 0) {
+				_myLate++;
+				_myLateness.record(-myAhead);
+				return false;
+			}
+			if (myAhead > _myMaxAhead) {
+				_myTooFar++;
+				return false;
+			}
+			if (_myPending >= _myCapacity) {
+				_myOverflows++;
+				return false;
+			}
+			final long myTick = tick(myDue);
+			if (myTick <= _myCurrentTick) {
+				/* due within the tick that is being released */
+				_myEarly++;
+				_myLead.record(myAhead);
+				return false;
+			}
+			Entry myEntry = new Entry();
+			myEntry.bundle = theBundle;
+			myEntry.bytes = theBytes;
+			myEntry.due = myDue;
+			myEntry.tick = myTick;
+			final int mySlot = (int) (myTick & (SLOTS - 1));
+			myEntry.next = _myWheel[mySlot];
+			_myWheel[mySlot] = myEntry;
+			_myPending++;
+			_myEarly++;
+			_myLead.record(myAhead);
+			if (_myPending == 1) {
+				notifyAll();
+			}
+		}
+		return true;
+	}
+
+	public void run() {
+		while (isRunning) {
+			Entry myDue = null;
+			synchronized (this) {
+				long myNow = System.nanoTime();
+				if (myNow - _myLastSync > RESYNC_NS) {
+					sync(myNow);
+				}
+				myDue = advance(tick(myNow));
+				if (myDue == null) {
+					try {
+						if (_myPending == 0) {
+							wait(RESYNC_NS / 1000000L);
+						} else {
+							final long myWait = _myOrigin + (_myCurrentTick + 1) * _myTick - myNow;
+							wait(myWait / 1000000L, (int) (myWait % 1000000L));
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+			}
+			release(myDue);
+		}
+	}
+
+	/* move the wheel up to theTick, returns the entries that came due. */
+	private Entry advance(final long theTick) {
+		Entry myDue = null;
+		while (_myCurrentTick < theTick && _myPending > 0) {
+			_myCurrentTick++;
+			final int mySlot = (int) (_myCurrentTick & (SLOTS - 1));
+			Entry myKeep = null;
+			Entry myEntry = _myWheel[mySlot];
+			while (myEntry != null) {
+				Entry myNext = myEntry.next;
+				if (myEntry.tick <= _myCurrentTick) {
+					myEntry.next = myDue;
+					myDue = myEntry;
+					_myPending--;
+				} else {
+					myEntry.next = myKeep;
+					myKeep = myEntry;
+				}
+				myEntry = myNext;
+			}
+			_myWheel[mySlot] = myKeep;
+		}
+		if (_myPending == 0) {
+			_myCurrentTick = Math.max(_myCurrentTick, theTick);
+		}
+		return sortByDue(myDue);
+	}
+
+	/* pending entries of all slots, used when shutting down. */
+	private synchronized Entry drain() {
+		Entry myAll = null;
+		for (int i = 0; i < SLOTS; i++) {
+			Entry myEntry = _myWheel[i];
+			while (myEntry != null) {
+				Entry myNext = myEntry.next;
+				myEntry.next = myAll;
+				myAll = myEntry;
+				myEntry = myNext;
+			}
+			_myWheel[i] = null;
+		}
+		_myPending = 0;
+		return sortByDue(myAll);
+	}
+
+	/* insertion sort, the lists released per tick are short. */
+	private static Entry sortByDue(Entry theList) {
+		Entry mySorted = null;
+		while (theList != null) {
+			Entry myEntry = theList;
+			theList = theList.next;
+			if (mySorted == null || myEntry.due < mySorted.due) {
+				myEntry.next = mySorted;
+				mySorted = myEntry;
+				continue;
+			}
+			Entry myPrevious = mySorted;
+			while (myPrevious.next != null && myPrevious.next.due <= myEntry.due) {
+				myPrevious = myPrevious.next;
+			}
+			myEntry.next = myPrevious.next;
+			myPrevious.next = myEntry;
+		}
+		return mySorted;
+	}
+
+	private void release(Entry theList) {
+		while (theList != null) {
+			final long myNow = System.nanoTime();
+			synchronized (this) {
+				_myRelease.record(Math.max(0, myNow - theList.due));
+			}
+			try {
+				_myParent.release(theList.bundle, theList.bytes, myNow);
+			} catch (Exception e) {
+				Logger.printError("OscScheduler.release", "while dispatching a scheduled bundle " + e);
+			}
+			theList = theList.next;
+		}
+	}
+
+	private long tick(final long theNanoTime) {
+		return (theNanoTime - _myOrigin) / _myTick;
+	}
+
+	private void sync(final long theNanoTime) {
+		_myClockOffset = System.currentTimeMillis() * 1000000L - theNanoTime;
+		_myLastSync = theNanoTime;
+	}
+
+	public synchronized int pending() {
+		return _myPending;
+	}
+
+	/**
+	 * @return long, bundles received with the immediate timetag
+	 */
+	public synchronized long immediate() {
+		return _myImmediate;
+	}
+
+	/**
+	 * @return long, bundles that arrived before their timetag
+	 */
+	public synchronized long early() {
+		return _myEarly;
+	}
+
+	/**
+	 * @return long, bundles that arrived after their timetag
+	 */
+	public synchronized long late() {
+		return _myLate;
+	}
+
+	/**
+	 * @return long, bundles dispatched at once because their timetag was
+	 *         further ahead than the max ahead setting
+	 */
+	public synchronized long tooFar() {
+		return _myTooFar;
+	}
+
+	/**
+	 * @return long, bundles dispatched at once because the wheel was full
+	 */
+	public synchronized long overflows() {
+		return _myOverflows;
+	}
+
+	/**
+	 * @return OscStats.Histogram, how far ahead of their timetag early
+	 *         bundles arrived
+	 */
+	public OscStats.Histogram lead() {
+		return _myLead;
+	}
+
+	/**
+	 * @return OscStats.Histogram, how far past their timetag late bundles
+	 *         arrived
+	 */
+	public OscStats.Histogram lateness() {
+		return _myLateness;
+	}
+
+	/**
+	 * @return OscStats.Histogram, how far past their timetag scheduled
+	 *         bundles were released
+	 */
+	public OscStats.Histogram release() {
+		return _myRelease;
+	}
+
+	public synchronized void reset() {
+		_myImmediate = _myEarly = _myLate = _myTooFar = _myOverflows = 0;
+		_myLead.reset();
+		_myLateness.reset();
+		_myRelease.reset();
+	}
+
+	public synchronized String toString() {
+		return String.format("OscScheduler: %d pending, %d immediate, %d early (lead mean %.1fms), %d late (mean %.1fms, max %.1fms), %d too far ahead, %d overflows, release error p99 %.2fms",
+				_myPending, _myImmediate, _myEarly, _myLead.mean() / 1e6, _myLate, _myLateness.mean() / 1e6, _myLateness.max() / 1e6, _myTooFar, _myOverflows, _myRelease.percentile(0.99) / 1e6);
+	}
+}
@@ -0,0 +1,401 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import netP5.Logger;
+import netP5.NetAddress;
+
+/**
+ * sends outgoing packets from a dedicated thread so that a slow or
+ * unreachable host does not stall the caller. packets are copied into a
+ * bounded ring of reusable slots, when the ring is full new packets are
+ * dropped and counted.
+ * 
+ * addresses registered with coalesce() are state updates: while a packet for
+ * the same destination and key is still queued it is overwritten with the
+ * newer value instead of queuing another one.
+ * 
+ * @invisible
+ */
+public class OscSender implements Runnable {
+
+	/* flush the bundler after this long without packets */
+	private static final long IDLE_FLUSH_MS = 20;
+
+	private final OscNetManager _myNetManager;
+
+	private final Slot[] _mySlots;
+
+	private final int _myMask;
+
+	private long _myHead = 0;
+
+	private long _myTail = 0;
+
+	private final ArrayList<State> _myStates = new ArrayList<State>();
+
+	private Thread _myThread;
+
+	private volatile boolean isRunning = false;
+
+	private int _myMaxDepth = 0;
+
+	private long _myDrops = 0;
+
+	private long _myCoalesced = 0;
+
+	private long _mySent = 0;
+
+	private long _myLatencySum = 0;
+
+	private long _myLatencyCount = 0;
+
+	private long _myLatencyMax = 0;
+
+	/**
+	 * @param theNetManager OscNetManager
+	 * @param theCapacity int, number of packets that can be queued, rounded up
+	 *            to a power of 2
+	 */
+	protected OscSender(final OscNetManager theNetManager, final int theCapacity) {
+		_myNetManager = theNetManager;
+		int mySize = Integer.highestOneBit(Math.max(theCapacity - 1, 1)) << 1;
+		_mySlots = new Slot[mySize];
+		for (int i = 0; i < mySize; i++) {
+			_mySlots[i] = new Slot();
+		}
+		_myMask = mySize - 1;
+	}
+
+	/**
+	 * treat messages whose address starts with thePrefix as state updates.
+	 * theKeyArguments leading int or float arguments are part of the key, e.g.
+	 * 3 for /live/device track device parameter value.
+	 * 
+	 * @param thePrefix String
+	 * @param theKeyArguments int
+	 */
+	public synchronized void coalesce(final String thePrefix, final int theKeyArguments) {
+		_myStates.add(new State(thePrefix.getBytes(), theKeyArguments));
+	}
+
+	public void start() {
+		isRunning = true;
+		_myThread = new Thread(this, "OscSender");
+		_myThread.setDaemon(true);
+		_myThread.start();
+	}
+
+	public void dispose() {
+		isRunning = false;
+		synchronized (this) {
+			notifyAll();
+		}
+		if (_myThread != null && _myThread != Thread.currentThread()) {
+			try {
+				_myThread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		_myThread = null;
+	}
+
+	/**
+	 * queue thePacket for theHost.
+	 * 
+	 * @param thePacket ByteBuffer, from its position to its limit. it is
+	 *            copied, the caller may reuse it right away.
+	 * @param theHost NetAddress
+	 * @return boolean, false if the queue was full and the packet was dropped
+	 */
+	public synchronized boolean offer(final ByteBuffer thePacket, final NetAddress theHost) {
+		final int myKeyLength = keyLength(thePacket);
+		if (myKeyLength > 0) {
+			for (long i = _myHead; i < _myTail; i++) {
+				Slot mySlot = _mySlots[(int) i & _myMask];
+				if (mySlot.matches(thePacket, myKeyLength, theHost)) {
+					mySlot.set(thePacket, theHost, myKeyLength, false);
+					_myCoalesced++;
+					return true;
+				}
+			}
+		}
+		/* one slot stays free for the packet that is being sent. */
+		int myDepth = (int) (_myTail - _myHead);
+		if (myDepth >= _mySlots.length - 1) {
+			_myDrops++;
+			return false;
+		}
+		Slot mySlot = _mySlots[(int) _myTail & _myMask];
+		mySlot.set(thePacket, theHost, myKeyLength, false);
+		mySlot.time = System.nanoTime();
+		_myTail++;
+		if (myDepth + 1 > _myMaxDepth) {
+			_myMaxDepth = myDepth + 1;
+		}
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * ask the sending thread to flush the bundler once everything queued so
+	 * far has been handed to it.
+	 */
+	public synchronized void flush() {
+		if (_myTail > _myHead && _mySlots[(int) (_myTail - 1) & _myMask].isFlush) {
+			return;
+		}
+		if (_myTail - _myHead >= _mySlots.length - 1) {
+			return; /* flushed anyway once the sender catches up */
+		}
+		Slot mySlot = _mySlots[(int) _myTail & _myMask];
+		mySlot.set(null, null, 0, true);
+		_myTail++;
+		notifyAll();
+	}
+
+	public void run() {
+		while (isRunning) {
+			Slot mySlot = take();
+			if (mySlot == null) {
+				_myNetManager.bundler().flush();
+			} else if (mySlot.isFlush) {
+				_myNetManager.bundler().flush();
+			} else {
+				ByteBuffer myBuffer = mySlot.buffer;
+				myBuffer.limit(mySlot.length);
+				myBuffer.position(0);
+				try {
+					if (!_myNetManager.bundler().add(myBuffer, mySlot.host)) {
+						_myNetManager.sendNow(myBuffer, mySlot.host);
+					}
+				} catch (Exception e) {
+					Logger.printError("OscSender.run", "while sending to " + mySlot.host + " " + e);
+				}
+				sent(System.nanoTime() - mySlot.time);
+			}
+		}
+		_myNetManager.bundler().flush();
+	}
+
+	/* next slot to send, or null after IDLE_FLUSH_MS without packets. */
+	private synchronized Slot take() {
+		if (_myHead == _myTail) {
+			try {
+				wait(IDLE_FLUSH_MS);
+			} catch (InterruptedException e) {
+				isRunning = false;
+			}
+			if (_myHead == _myTail) {
+				return null;
+			}
+		}
+		return _mySlots[(int) _myHead++ & _myMask];
+	}
+
+	private synchronized void sent(final long theLatency) {
+		_mySent++;
+		_myLatencySum += theLatency;
+		_myLatencyCount++;
+		if (theLatency > _myLatencyMax) {
+			_myLatencyMax = theLatency;
+		}
+	}
+
+	/*
+	 * bytes of thePacket that identify a state update: the address, typetag
+	 * and key arguments. 0 if it is not a state update.
+	 */
+	private int keyLength(final ByteBuffer thePacket) {
+		final int myStart = thePacket.position();
+		final int myEnd = thePacket.limit();
+		for (int i = 0; i < _myStates.size(); i++) {
+			State myState = _myStates.get(i);
+			byte[] myPrefix = myState.prefix;
+			if (myEnd - myStart < myPrefix.length) {
+				continue;
+			}
+			boolean isMatch = true;
+			for (int j = 0; j < myPrefix.length && isMatch; j++) {
+				isMatch = thePacket.get(myStart + j) == myPrefix[j];
+			}
+			if (!isMatch) {
+				continue;
+			}
+			int myTypetag = stringEnd(thePacket, myStart, myEnd);
+			int myArguments = stringEnd(thePacket, myTypetag, myEnd);
+			if (myArguments < 0 || thePacket.get(myTypetag) != ',') {
+				return 0;
+			}
+			for (int j = 1; j <= myState.keyArguments; j++) {
+				byte myType = thePacket.get(myTypetag + j);
+				if (myType != 'i' && myType != 'f') {
+					return 0;
+				}
+			}
+			int myKey = myArguments + 4 * myState.keyArguments;
+			return myKey <= myEnd ? myKey - myStart : 0;
+		}
+		return 0;
+	}
+
+	/* index after the padded osc-string starting at theStart, -1 if there is none. */
+	private static int stringEnd(final ByteBuffer theBuffer, final int theStart, final int theEnd) {
+		if (theStart < 0) {
+			return -1;
+		}
+		for (int i = theStart; i < theEnd; i++) {
+			if (theBuffer.get(i) == 0) {
+				return theStart + ((i - theStart) / 4 + 1) * 4;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return int, packets queued right now
+	 */
+	public synchronized int depth() {
+		return (int) (_myTail - _myHead);
+	}
+
+	public synchronized int maxDepth() {
+		return _myMaxDepth;
+	}
+
+	public int capacity() {
+		return _mySlots.length - 1;
+	}
+
+	public synchronized long drops() {
+		return _myDrops;
+	}
+
+	public synchronized long coalesced() {
+		return _myCoalesced;
+	}
+
+	public synchronized long sent() {
+		return _mySent;
+	}
+
+	/**
+	 * @return long, mean nanoseconds from offer() to the packet being handed
+	 *         to the bundler or socket, since the last resetStats()
+	 */
+	public synchronized long meanLatency() {
+		return _myLatencyCount == 0 ? 0 : _myLatencySum / _myLatencyCount;
+	}
+
+	public synchronized long maxLatency() {
+		return _myLatencyMax;
+	}
+
+	/**
+	 * restart the max depth and latency window.
+	 */
+	public synchronized void resetStats() {
+		_myMaxDepth = (int) (_myTail - _myHead);
+		_myLatencySum = 0;
+		_myLatencyCount = 0;
+		_myLatencyMax = 0;
+	}
+
+	public synchronized String toString() {
+		return "OscSender depth " + depth() + "/" + capacity() + " max " + _myMaxDepth + ", sent " + _mySent + ", coalesced "
+				+ _myCoalesced + ", dropped " + _myDrops + ", latency mean " + meanLatency() / 1000 + "us max "
+				+ _myLatencyMax / 1000 + "us";
+	}
+
+	private static class State {
+
+		final byte[] prefix;
+
+		final int keyArguments;
+
+		State(final byte[] thePrefix, final int theKeyArguments) {
+			prefix = thePrefix;
+			keyArguments = theKeyArguments;
+		}
+	}
+
+	private static class Slot {
+
+		byte[] data = new byte[0];
+
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+
+		int length;
+
+		int keyLength;
+
+		NetAddress host;
+
+		long time;
+
+		boolean isFlush;
+
+		void set(final ByteBuffer thePacket, final NetAddress theHost, final int theKeyLength, final boolean theFlush) {
+			host = theHost;
+			keyLength = theKeyLength;
+			isFlush = theFlush;
+			if (thePacket == null) {
+				length = 0;
+				return;
+			}
+			length = thePacket.remaining();
+			if (data.length < length) {
+				data = new byte[Math.max(length, 256)];
+				buffer = ByteBuffer.wrap(data);
+			}
+			final int myStart = thePacket.position();
+			if (thePacket.hasArray()) {
+				System.arraycopy(thePacket.array(), thePacket.arrayOffset() + myStart, data, 0, length);
+			} else {
+				for (int i = 0; i < length; i++) {
+					data[i] = thePacket.get(myStart + i);
+				}
+			}
+		}
+
+		boolean matches(final ByteBuffer thePacket, final int theKeyLength, final NetAddress theHost) {
+			if (isFlush || keyLength != theKeyLength || !host.socketAddress().equals(theHost.socketAddress())) {
+				return false;
+			}
+			final int myStart = thePacket.position();
+			for (int i = 0; i < theKeyLength; i++) {
+				if (data[i] != thePacket.get(myStart + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * traffic counters for received osc messages, kept per address pattern:
+ * message count, rate, bytes, and histograms of the time spent parsing and
+ * dispatching. a separate latency histogram is filled by the application
+ * with the time from a packet's arrival, see OscP5.receiveTime(), to the
+ * moment its data is used.
+ * 
+ * @invisible
+ */
+public class OscStats {
+
+	/**
+	 * distinct addresses tracked, further ones are counted under OTHER so a
+	 * sender with random addresses can not grow the table without bounds.
+	 */
+	public static final int MAX_ADDRESSES = 1024;
+
+	public static final String OTHER = "(other)";
+
+	/**
+	 * nanosecond durations in power of two buckets, bucket i holds values
+	 * below 2^i ns.
+	 */
+	public static class Histogram {
+
+		private final long[] _myBuckets = new long[48];
+
+		private long _myCount;
+
+		private long _mySum;
+
+		private long _myMax;
+
+		public Histogram() {
+		}
+
+		/**
+		 * @param theHistogram Histogram, copied
+		 */
+		public Histogram(final Histogram theHistogram) {
+			System.arraycopy(theHistogram._myBuckets, 0, _myBuckets, 0, _myBuckets.length);
+			_myCount = theHistogram._myCount;
+			_mySum = theHistogram._mySum;
+			_myMax = theHistogram._myMax;
+		}
+
+		public void record(final long theNanos) {
+			final long myValue = Math.max(0, theNanos);
+			_myBuckets[Math.min(_myBuckets.length - 1, 64 - Long.numberOfLeadingZeros(myValue))]++;
+			_myCount++;
+			_mySum += myValue;
+			if (myValue > _myMax) {
+				_myMax = myValue;
+			}
+		}
+
+		public long count() {
+			return _myCount;
+		}
+
+		/**
+		 * @return double, mean in nanoseconds
+		 */
+		public double mean() {
+			return _myCount == 0 ? 0 : (double) _mySum / _myCount;
+		}
+
+		public long max() {
+			return _myMax;
+		}
+
+		/**
+		 * @param theFraction double, e.g. 0.99
+		 * @return long, upper bound in nanoseconds of the bucket holding that
+		 *         fraction of the values
+		 */
+		public long percentile(final double theFraction) {
+			final long myTarget = (long) Math.ceil(theFraction * _myCount);
+			long mySeen = 0;
+			for (int i = 0; i < _myBuckets.length; i++) {
+				mySeen += _myBuckets[i];
+				if (mySeen >= myTarget && mySeen > 0) {
+					return Math.min(_myMax, (1L << i) - 1);
+				}
+			}
+			return _myMax;
+		}
+
+		public void reset() {
+			for (int i = 0; i < _myBuckets.length; i++) {
+				_myBuckets[i] = 0;
+			}
+			_myCount = 0;
+			_mySum = 0;
+			_myMax = 0;
+		}
+	}
+
+	/**
+	 * the counters of one address pattern.
+	 */
+	public static class Entry {
+
+		public final String address;
+
+		public long messages;
+
+		public long bytes;
+
+		/** messages per second over the last update() period */
+		public float rate;
+
+		public final Histogram parse;
+
+		public final Histogram dispatch;
+
+		private long _myWindowMessages;
+
+		Entry(final String theAddress) {
+			address = theAddress;
+			parse = new Histogram();
+			dispatch = new Histogram();
+		}
+
+		/* a copy that later messages do not change. */
+		Entry(final Entry theEntry) {
+			address = theEntry.address;
+			messages = theEntry.messages;
+			bytes = theEntry.bytes;
+			rate = theEntry.rate;
+			parse = new Histogram(theEntry.parse);
+			dispatch = new Histogram(theEntry.dispatch);
+		}
+	}
+
+	private final HashMap<String, Entry> _myEntries = new HashMap<String, Entry>();
+
+	private final ArrayList<Entry> _myEntryList = new ArrayList<Entry>();
+
+	/* latency in the current update() period, and in the one before, swapped by update() */
+	private Histogram _myLatency = new Histogram();
+
+	private Histogram _myPeriodLatency = new Histogram();
+
+	private long _myWindowStart = System.nanoTime();
+
+	private long _myPackets;
+
+	private boolean isEnabled = false;
+
+	private static final Comparator<Entry> BY_RATE = new Comparator<Entry>() {
+		public int compare(final Entry a, final Entry b) {
+			return Float.compare(b.rate, a.rate);
+		}
+	};
+
+	public void setEnabled(final boolean theFlag) {
+		isEnabled = theFlag;
+	}
+
+	public boolean isEnabled() {
+		return isEnabled;
+	}
+
+	/**
+	 * count one received message.
+	 * 
+	 * @param theAddress String
+	 * @param theBytes int, its share of the packet
+	 * @param theParseTime long, its share of the time to parse the packet
+	 * @param theDispatchTime long, time spent in plugs and listeners
+	 */
+	public synchronized void message(final String theAddress, final int theBytes, final long theParseTime, final long theDispatchTime) {
+		Entry myEntry = _myEntries.get(theAddress);
+		if (myEntry == null) {
+			final String myKey = _myEntries.size() < MAX_ADDRESSES ? theAddress : OTHER;
+			myEntry = _myEntries.get(myKey);
+			if (myEntry == null) {
+				myEntry = new Entry(myKey);
+				_myEntries.put(myKey, myEntry);
+				_myEntryList.add(myEntry);
+			}
+		}
+		myEntry.messages++;
+		myEntry._myWindowMessages++;
+		myEntry.bytes += theBytes;
+		myEntry.parse.record(theParseTime);
+		myEntry.dispatch.record(theDispatchTime);
+	}
+
+	synchronized void packet() {
+		_myPackets++;
+	}
+
+	/**
+	 * @param theNanos long, time from a packet's arrival until its data was
+	 *            used
+	 */
+	public synchronized void latency(final long theNanos) {
+		_myLatency.record(theNanos);
+	}
+
+	/**
+	 * recompute the per address rates from the messages counted since the
+	 * previous call, and start a new period of the latency histogram.
+	 * summary() reports the rates and latency of the period just ended.
+	 */
+	public synchronized void update() {
+		final long myNow = System.nanoTime();
+		final float mySeconds = Math.max(1e-3f, (myNow - _myWindowStart) / 1e9f);
+		for (int i = 0; i < _myEntryList.size(); i++) {
+			Entry myEntry = _myEntryList.get(i);
+			myEntry.rate = myEntry._myWindowMessages / mySeconds;
+			myEntry._myWindowMessages = 0;
+		}
+		_myWindowStart = myNow;
+		final Histogram myLatency = _myPeriodLatency;
+		_myPeriodLatency = _myLatency;
+		_myLatency = myLatency;
+		_myLatency.reset();
+	}
+
+	/**
+	 * @return ArrayList, a copy of the entries, busiest first as of the last
+	 *         update()
+	 */
+	public synchronized ArrayList<Entry> entries() {
+		ArrayList<Entry> myList = new ArrayList<Entry>(_myEntryList);
+		Collections.sort(myList, BY_RATE);
+		return myList;
+	}
+
+	/**
+	 * copies of the entries, busiest first, with rates over the messages
+	 * counted since the last update(). unlike update() this leaves the
+	 * period running, so queries between periodic reports don't disturb
+	 * them.
+	 * 
+	 * @return ArrayList
+	 */
+	public synchronized ArrayList<Entry> snapshot() {
+		final float mySeconds = Math.max(1e-3f, (System.nanoTime() - _myWindowStart) / 1e9f);
+		ArrayList<Entry> myList = new ArrayList<Entry>(_myEntryList.size());
+		for (int i = 0; i < _myEntryList.size(); i++) {
+			Entry myEntry = new Entry(_myEntryList.get(i));
+			myEntry.rate = _myEntryList.get(i)._myWindowMessages / mySeconds;
+			myList.add(myEntry);
+		}
+		Collections.sort(myList, BY_RATE);
+		return myList;
+	}
+
+	/**
+	 * @return Histogram, a copy of the latency histogram since the last
+	 *         update(), like the rates of snapshot()
+	 */
+	public synchronized Histogram latency() {
+		return new Histogram(_myLatency);
+	}
+
+	public synchronized long packets() {
+		return _myPackets;
+	}
+
+	public synchronized void reset() {
+		_myEntries.clear();
+		_myEntryList.clear();
+		_myLatency.reset();
+		_myPeriodLatency.reset();
+		_myPackets = 0;
+		_myWindowStart = System.nanoTime();
+	}
+
+	/**
+	 * one line with the total rate, theTop busiest addresses and the latency.
+	 * 
+	 * @param theTop int
+	 * @return String
+	 */
+	public synchronized String summary(final int theTop) {
+		ArrayList<Entry> myList = entries();
+		float myRate = 0;
+		for (int i = 0; i < myList.size(); i++) {
+			myRate += myList.get(i).rate;
+		}
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%.0f msg/s", myRate));
+		for (int i = 0; i < Math.min(theTop, myList.size()); i++) {
+			Entry e = myList.get(i);
+			s.append(String.format(", %s %.0f/s parse %.1fus dispatch %.1fus p99 %.1fus", e.address, e.rate, e.parse.mean() / 1e3, e.dispatch.mean() / 1e3, e.dispatch.percentile(0.99) / 1e3));
+		}
+		if (_myPeriodLatency.count() > 0) {
+			s.append(String.format("; latency p50 %.1fms p99 %.1fms max %.1fms", _myPeriodLatency.percentile(0.5) / 1e6, _myPeriodLatency.percentile(0.99) / 1e6, _myPeriodLatency.max() / 1e6));
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * An OSC (Open Sound Control) library for processing.
+ *
+ * (c) 2004-2011
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ * 
+ * @author		Andreas Schlegel http://www.sojamo.de/libraries/oscP5
+ * @modified	12/19/2011
+ * @version		0.9.8
+ */
+
+package oscP5;
+
+import java.nio.ByteBuffer;
+
+/**
+ * encodes osc messages straight into a reusable ByteBuffer. unlike
+ * OscMessage no intermediate arrays or boxed arguments are created, so a
+ * message can be built and sent every frame without producing garbage.
+ * 
+ * <pre>
+ * OscWriter myWriter = OscWriter.local().begin(&quot;/laser/line&quot;).add(x1).add(y1).add(x2).add(y2);
+ * oscP5.send(myWriter, myRemoteLocation);
+ * </pre>
+ * 
+ * a writer is not thread-safe, use local() to get the writer of the calling
+ * thread.
+ */
+public class OscWriter {
+
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	private static final ThreadLocal<OscWriter> _myLocal = new ThreadLocal<OscWriter>() {
+		protected OscWriter initialValue() {
+			return new OscWriter(DEFAULT_CAPACITY);
+		}
+	};
+
+	private final ByteBuffer _myPacket;
+
+	private final ByteBuffer _myArguments;
+
+	private final byte[] _myTypetag;
+
+	private int _myTypetagLength;
+
+	private int _myAddressEnd;
+
+	private boolean isComplete;
+
+	/**
+	 * @param theCapacity int, maximum size of an encoded message in bytes
+	 */
+	public OscWriter(final int theCapacity) {
+		_myPacket = ByteBuffer.allocate(theCapacity);
+		_myArguments = ByteBuffer.allocate(theCapacity);
+		_myTypetag = new byte[theCapacity / 4];
+	}
+
+	/**
+	 * the writer of the calling thread.
+	 * 
+	 * @return OscWriter
+	 */
+	public static OscWriter local() {
+		return _myLocal.get();
+	}
+
+	/**
+	 * start a new message, anything written before is discarded.
+	 * 
+	 * @param theAddrPattern String
+	 * @return OscWriter
+	 */
+	public OscWriter begin(final String theAddrPattern) {
+		_myPacket.clear();
+		_myArguments.clear();
+		_myTypetagLength = 0;
+		isComplete = false;
+		putString(_myPacket, theAddrPattern);
+		_myAddressEnd = _myPacket.position();
+		return this;
+	}
+
+	public OscWriter add(final int theValue) {
+		tag('i');
+		_myArguments.putInt(theValue);
+		return this;
+	}
+
+	public OscWriter add(final float theValue) {
+		tag('f');
+		_myArguments.putFloat(theValue);
+		return this;
+	}
+
+	public OscWriter add(final long theValue) {
+		tag('h');
+		_myArguments.putLong(theValue);
+		return this;
+	}
+
+	public OscWriter add(final double theValue) {
+		tag('d');
+		_myArguments.putDouble(theValue);
+		return this;
+	}
+
+	public OscWriter add(final boolean theValue) {
+		tag(theValue ? 'T' : 'F');
+		return this;
+	}
+
+	public OscWriter add(final String theValue) {
+		tag('s');
+		putString(_myArguments, theValue);
+		return this;
+	}
+
+	public OscWriter add(final byte[] theBlob) {
+		tag('b');
+		_myArguments.putInt(theBlob.length);
+		_myArguments.put(theBlob);
+		pad(_myArguments, theBlob.length % 4 == 0 ? 0 : 4 - theBlob.length % 4);
+		return this;
+	}
+
+	/**
+	 * the encoded message, positioned at 0 and limited to its size. the
+	 * buffer is owned by the writer and is only valid until the next begin().
+	 * 
+	 * @return ByteBuffer
+	 */
+	public ByteBuffer packet() {
+		if (!isComplete) {
+			_myPacket.clear();
+			_myPacket.position(_myAddressEnd);
+			_myPacket.put((byte) ',');
+			_myPacket.put(_myTypetag, 0, _myTypetagLength);
+			pad(_myPacket, 4 - (_myTypetagLength + 1) % 4);
+			int myArgumentsEnd = _myArguments.position();
+			_myArguments.flip();
+			_myPacket.put(_myArguments);
+			_myArguments.limit(_myArguments.capacity());
+			_myArguments.position(myArgumentsEnd);
+			_myPacket.flip();
+			isComplete = true;
+		}
+		_myPacket.position(0);
+		return _myPacket;
+	}
+
+	/**
+	 * @return int, size of the encoded message in bytes
+	 */
+	public int size() {
+		return packet().limit();
+	}
+
+	/**
+	 * copy of the encoded message, for senders that need a byte array.
+	 * 
+	 * @return byte[]
+	 */
+	public byte[] getBytes() {
+		ByteBuffer myPacket = packet();
+		byte[] myBytes = new byte[myPacket.limit()];
+		myPacket.get(myBytes);
+		myPacket.position(0);
+		return myBytes;
+	}
+
+	private void tag(final char theType) {
+		_myTypetag[_myTypetagLength++] = (byte) theType;
+		isComplete = false;
+	}
+
+	/* osc-string: null terminated and padded to 4 bytes. plain ascii is written char by char, anything else goes through getBytes(). */
+	private static void putString(final ByteBuffer theBuffer, final String theString) {
+		final int myStart = theBuffer.position();
+		final int myLength = theString.length();
+		for (int i = 0; i < myLength; i++) {
+			char c = theString.charAt(i);
+			if (c > 0x7f) {
+				theBuffer.position(myStart);
+				theBuffer.put(theString.getBytes());
+				break;
+			}
+			theBuffer.put((byte) c);
+		}
+		pad(theBuffer, 4 - (theBuffer.position() - myStart) % 4);
+	}
+
+	private static void pad(final ByteBuffer theBuffer, int theCount) {
+		while (theCount-- > 0) {
+			theBuffer.put((byte) 0);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import netP5.NetAddress;
 import oscP5.OscMessage;
 import oscP5.OscP5;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 import processing.core.PVector;
 
@@ -183,7 +184,7 @@ public class Ableton {
 	HashMap<Integer,Track> tracks;
 	HashMap<String,TrackSet> tracksets;
 	TrackSet trackSet;
-	HashMap<Integer,ControlValues> lastpos;
+	IntObjectMap<ControlValues> lastpos, curpos;   // Swapped by updateMacros()
 	float tempo;
 	float meter[] = new float[2];
 	int playstate = -1;
@@ -238,7 +239,8 @@ public class Ableton {
 		addSong("Whack","Whack",125,1,120,0,124,new int[]{7,8,9,10});
 		addSong("Bowie","Bowie",126,1,120,0,124,new int[]{});
 		addSong("DNA","DNA",123,1,120,0,124,new int[]{0,1,2,3,4,5,6});
-		lastpos=new HashMap<Integer,ControlValues>();
+		lastpos=new IntObjectMap<ControlValues>();
+		curpos=new IntObjectMap<ControlValues>();
 		trackSet=null;
 		// Clear track info
 		for (int songtrack=0;songtrack<8;songtrack++) {
@@ -258,6 +260,10 @@ public class Ableton {
 		oscP5.send(msg,AL);
 	}
 
+	public void sendMessage(OscWriter w) {
+		oscP5.send(w,AL);
+	}
+
 	public void handleMessage(OscMessage msg) {
 		//PApplet.println("Ableton message: "+msg.toString());
 		String pattern=msg.addrPattern();
@@ -402,9 +408,7 @@ public class Ableton {
 	void setMeter(int lr, float value ) {
 		if (lr==0 || lr==1) {
 			meter[lr]=value;
-			OscMessage msg = new OscMessage("/meter/"+(lr+1));
-			msg.add(value);
-			TouchOSC.getInstance().sendMessage(msg);
+			TouchOSC.getInstance().sendMessage(OscWriter.local().begin(lr==0?"/meter/1":"/meter/2").add(value));
 		} else
 			PApplet.println("Bad meter L/R"+lr);
 	}
@@ -566,12 +570,7 @@ public class Ableton {
 	 * @param value value to set
 	 */
 	public void setALControl(int track, int device, int parameter, int value) {
-		OscMessage msg=new OscMessage("/live/device");
-		msg.add(track);
-		msg.add(device);
-		msg.add(parameter);
-		msg.add(value);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/live/device").add(track).add(device).add(parameter).add(value));
 		//System.out.println("/live/device track="+track+", dev="+device+", param="+parameter+", value="+value);
 	}
 
@@ -579,22 +578,24 @@ public class Ableton {
 		if (trackSet==null)
 			return;
 		// Update internal state
-		HashMap<Integer,ControlValues> curpos=new HashMap<Integer,ControlValues>();
+		curpos.clear();
 
-		for (Person p: allpos.pmap.values()) {	
+		for (int i=0;i<allpos.pmap.size();i++) {
+			Person p=allpos.pmap.valueAt(i);
 			ControlValues c=lastpos.get(p.id);
 			if (c==null) {
-				c=new ControlValues(p.getNormalizedPosition());
+				c=new ControlValues(new PVector());
 			}
+			PVector npos=p.getNormalizedPosition(c.pos);
 
-			int ccx=(int)((p.getNormalizedPosition().x+1)/2*127);ccx=(ccx<0)? 0:(ccx>127?127:ccx);
-			int ccy=(int)((p.getNormalizedPosition().y+1)/2*127);ccy=(ccy<0)? 0:(ccy>127?127:ccy);
-			int ccdx=(int)(p.getVelocityInMeters().x*32+64); ccdx=(ccdx<0)? 0:(ccdx>127?127:ccdx);
-			int ccdy=(int)(p.getVelocityInMeters().y*32+64);ccdy=(ccdy<0)? 0:(ccdy>127?127:ccdy);
-			int ccspeed=(int)(p.getVelocityInMeters().mag()*64);ccspeed=(ccspeed<0)? 0:(ccspeed>127?127:ccspeed);
+			int ccx=(int)((npos.x+1)/2*127);ccx=(ccx<0)? 0:(ccx>127?127:ccx);
+			int ccy=(int)((npos.y+1)/2*127);ccy=(ccy<0)? 0:(ccy>127?127:ccy);
+			int ccdx=(int)(p.getVX()*32+64); ccdx=(ccdx<0)? 0:(ccdx>127?127:ccdx);
+			int ccdy=(int)(p.getVY()*32+64);ccdy=(ccdy<0)? 0:(ccdy>127?127:ccdy);
+			int ccspeed=(int)(PApplet.mag(p.getVX(),p.getVY())*64);ccspeed=(ccspeed<0)? 0:(ccspeed>127?127:ccspeed);
 			//System.out.println("OLD="+c.ccx+","+c.ccy+", new="+ccx+","+ccy);
 
-			int track=trackSet.getTrack(p.channel);
+			int track=trackSet.getTrack(p.getChannel());
 			if (ccx!=c.ccx)
 				setALControl(track, 0, 1, ccx);
 			if (ccy!=c.ccy)
@@ -610,10 +611,11 @@ public class Ableton {
 			c.ccdx=ccdx;
 			c.ccdy=ccdy;
 			c.ccspeed=ccspeed;
-			c.pos=p.getNormalizedPosition();
 			curpos.put(p.id, c);
 		}
+		IntObjectMap<ControlValues> swap=lastpos;
 		lastpos=curpos;
+		curpos=swap;
 	}
 
 }
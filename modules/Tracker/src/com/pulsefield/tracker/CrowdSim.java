@@ -0,0 +1,438 @@
+package com.pulsefield.tracker;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import netP5.UdpBufferListener;
+import oscP5.OscWriter;
+import processing.core.PApplet;
+
+// Synthetic crowd that stands in for the FrontEnd, emitting the /pf/* protocol at LIDAR rate
+// Packets go either straight into an OscP5 (same parse and dispatch path as received ones) or to a UDP port
+public class CrowdSim implements Runnable {
+	static final int MAXPEOPLE=500;
+	static final int NCHANNELS=16;
+	static final float GROUPDIST=0.5f;   // Same as the FrontEnd's GROUPDIST, in meters
+
+	// Settings; may be changed while running
+	volatile int maxPeople=20;
+	volatile float fps=50f;
+	volatile float arrivalRate=0f;     // People/second while below maxPeople; 0 to fill to maxPeople at once
+	volatile float departureRate=0f;   // Fraction of people leaving per second; 0 to stay forever
+	volatile float walkSpeed=1.3f, walkSigma=0.25f;   // m/s
+	volatile float runSpeed=3.5f, runSigma=0.6f;
+	volatile float runFraction=0.1f;
+	volatile float groupFraction=0.3f; // Fraction of arrivals that come as a group
+	volatile int maxGroupSize=4;
+
+	private static class Agent {
+		int id, channel;
+		float x, y, vx, vy;
+		float tx, ty;         // Current waypoint
+		float speed;
+		float phase;          // Stride phase
+		float diam, sep;
+		Agent leader;         // Followed group member, or null
+		float offx, offy;     // Offset from leader
+		boolean leaving;
+		boolean gone;         // Exited, followers let go
+		boolean entered;      // /pf/entry sent
+		int groupid, groupsize;
+		float legx[]=new float[2], legy[]=new float[2];
+	}
+
+	private final ArrayList<Agent> agents=new ArrayList<Agent>();
+	private final ArrayList<Integer> exits=new ArrayList<Integer>();
+	private final Random rand;
+	private final UdpBufferListener listener;
+	private final InetSocketAddress self;
+	private final DatagramChannel channel;
+	private Thread thread;
+	private volatile boolean running=false;
+	private int frame=0;
+	private int nextID=1;
+	private int lastCount=-1;
+	private float arrivalDebt=0f;
+	private long startTime;
+	private long packets=0;
+
+	// Grid for grouping, cells of GROUPDIST so only neighbouring cells need checking
+	private int cellHead[]=new int[0];
+	private int cellNext[]=new int[MAXPEOPLE];
+	private int parent[]=new int[MAXPEOPLE];
+	private int gridCols, gridRows;
+
+	// In-process: hand packets to listener as if received from the FrontEnd on port
+	CrowdSim(UdpBufferListener listener, int port, long seed) {
+		this.listener=listener;
+		this.self=new InetSocketAddress("127.0.0.1",port);
+		this.channel=null;
+		this.rand=new Random(seed);
+	}
+
+	// Send packets to host:port
+	CrowdSim(String host, int port, long seed) throws IOException {
+		this.listener=null;
+		this.self=null;
+		this.channel=DatagramChannel.open();
+		this.channel.connect(new InetSocketAddress(host,port));
+		this.rand=new Random(seed);
+	}
+
+	// TTL of packets when sending to a multicast group
+	void setTimeToLive(int ttl) throws IOException {
+		if (channel!=null)
+			channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, ttl);
+	}
+
+	void setMaxPeople(int n) {
+		maxPeople=Math.max(1,Math.min(MAXPEOPLE,n));
+	}
+
+	void start() {
+		running=true;
+		startTime=System.nanoTime();
+		thread=new Thread(this,"CrowdSim");
+		thread.setDaemon(true);
+		thread.start();
+		PApplet.println("CrowdSim: started with up to "+maxPeople+" people at "+fps+" fps"+(channel!=null?" to "+channel.socket().getRemoteSocketAddress():""));
+	}
+
+	void stop() {
+		running=false;
+		if (thread!=null)
+			thread.interrupt();
+	}
+
+	long packets() {
+		return packets;
+	}
+
+	public void run() {
+		long next=System.nanoTime();
+		try {
+			while (running) {
+				float dt=1f/fps;
+				step(dt);
+				send();
+				next+=(long)(1e9f/fps);
+				long wait=next-System.nanoTime();
+				if (wait>0)
+					Thread.sleep(wait/1000000,(int)(wait%1000000));
+				else if (wait < -1000000000L)
+					next=System.nanoTime();   // Fell more than a second behind, don't try to catch up
+			}
+		} catch (InterruptedException e) {
+			// Stopped
+		} catch (IOException e) {
+			PApplet.println("CrowdSim: send failed: "+e);
+		}
+		// Everyone leaves
+		try {
+			for (Agent a: agents)
+				if (a.entered)
+					exits.add(a.id);
+			agents.clear();
+			send();
+		} catch (IOException e) {
+		}
+		running=false;
+		PApplet.println("CrowdSim: stopped after "+frame+" frames, "+packets+" packets");
+	}
+
+	// Advance the crowd by dt seconds
+	private void step(float dt) {
+		frame++;
+		float minx=Tracker.lidarminx, maxx=Tracker.lidarmaxx, miny=Tracker.lidarminy, maxy=Tracker.lidarmaxy;
+
+		// Arrivals
+		int target=maxPeople;
+		if (arrivalRate<=0)
+			arrivalDebt=target-agents.size();
+		else
+			arrivalDebt+=arrivalRate*dt;
+		while (arrivalDebt>=1 && agents.size()<target) {
+			int n=1;
+			if (rand.nextFloat()<groupFraction)
+				n=2+rand.nextInt(Math.max(1,maxGroupSize-1));
+			n=Math.min(n,target-agents.size());
+			arrive(n,minx,maxx,miny,maxy);
+			arrivalDebt-=n;
+		}
+		arrivalDebt=Math.min(arrivalDebt,1f);
+
+		// Departures: a leaving leader takes its group along
+		if (departureRate>0)
+			for (Agent a: agents)
+				if (!a.leaving && a.leader==null && rand.nextFloat()<departureRate*dt)
+					leave(a,minx,maxx,miny,maxy);
+		int staying=countStaying();
+		for (int i=agents.size()-1;i>=0 && staying>target;i--)
+			if (!agents.get(i).leaving) {
+				leave(agents.get(i),minx,maxx,miny,maxy);
+				staying--;
+			}
+
+		// Motion
+		for (Agent a: agents) {
+			if (a.leader!=null) {
+				a.tx=a.leader.x+a.offx;
+				a.ty=a.leader.y+a.offy;
+				if (a.leader.leaving)
+					a.leaving=true;
+			}
+			float dx=a.tx-a.x, dy=a.ty-a.y;
+			float d=(float)Math.sqrt(dx*dx+dy*dy);
+			float spd=a.speed;
+			if (a.leader!=null)
+				spd=Math.min(a.leader.speed*1.5f,d/dt);   // Keep up with, but don't overshoot, the leader
+			if (d<0.2f && a.leader==null && !a.leaving) {
+				a.tx=minx+rand.nextFloat()*(maxx-minx);
+				a.ty=miny+rand.nextFloat()*(maxy-miny);
+			}
+			if (d>1e-4f) {
+				a.vx=dx/d*spd;
+				a.vy=dy/d*spd;
+			} else {
+				a.vx=0; a.vy=0;
+			}
+			a.x+=a.vx*dt;
+			a.y+=a.vy*dt;
+			moveLegs(a,dt);
+		}
+
+		// Exits once off the floor
+		for (int i=agents.size()-1;i>=0;i--) {
+			Agent a=agents.get(i);
+			if (a.leaving && (a.x<minx-0.5f || a.x>maxx+0.5f || a.y<miny-0.5f || a.y>maxy+0.5f)) {
+				exits.add(a.id);
+				agents.remove(i);
+				a.gone=true;
+			}
+		}
+		for (Agent a: agents)
+			if (a.leader!=null && a.leader.gone) {
+				a.leader=null;
+				if (a.leaving)
+					leave(a,minx,maxx,miny,maxy);   // Find its own way out
+			}
+
+		findGroups(minx,miny,maxx,maxy);
+	}
+
+	private int countStaying() {
+		int n=0;
+		for (Agent a: agents)
+			if (!a.leaving)
+				n++;
+		return n;
+	}
+
+	// n people enter together at a random point on the edge of the floor
+	private void arrive(int n, float minx, float maxx, float miny, float maxy) {
+		float ex, ey;
+		if (rand.nextBoolean()) {
+			ex=rand.nextBoolean()?minx:maxx;
+			ey=miny+rand.nextFloat()*(maxy-miny);
+		} else {
+			ex=minx+rand.nextFloat()*(maxx-minx);
+			ey=rand.nextBoolean()?miny:maxy;
+		}
+		boolean runner=rand.nextFloat()<runFraction;
+		Agent leader=null;
+		for (int i=0;i<n;i++) {
+			Agent a=new Agent();
+			a.id=nextID++;
+			a.channel=(a.id-1)%NCHANNELS+1;
+			a.speed=Math.max(0.2f,runner?runSpeed+runSigma*(float)rand.nextGaussian():walkSpeed+walkSigma*(float)rand.nextGaussian());
+			a.diam=0.12f+0.04f*rand.nextFloat();
+			a.sep=0.25f+0.1f*rand.nextFloat();
+			a.x=ex+(rand.nextFloat()-0.5f)*0.4f;
+			a.y=ey+(rand.nextFloat()-0.5f)*0.4f;
+			a.tx=minx+rand.nextFloat()*(maxx-minx);
+			a.ty=miny+rand.nextFloat()*(maxy-miny);
+			if (leader==null)
+				leader=a;
+			else {
+				a.leader=leader;
+				float ang=rand.nextFloat()*(float)Math.PI*2;
+				a.offx=(float)Math.cos(ang)*0.4f;
+				a.offy=(float)Math.sin(ang)*0.4f;
+			}
+			a.legx[0]=a.legx[1]=a.x;
+			a.legy[0]=a.legy[1]=a.y;
+			agents.add(a);
+		}
+	}
+
+	// Head for the nearest edge and exit once past it
+	private void leave(Agent a, float minx, float maxx, float miny, float maxy) {
+		a.leaving=true;
+		a.leader=null;
+		a.tx=a.x; a.ty=a.y;
+		float dl=a.x-minx, dr=maxx-a.x, db=a.y-miny, dtop=maxy-a.y;
+		float m=Math.min(Math.min(dl,dr),Math.min(db,dtop));
+		if (m==dl) a.tx=minx-1;
+		else if (m==dr) a.tx=maxx+1;
+		else if (m==db) a.ty=miny-1;
+		else a.ty=maxy+1;
+	}
+
+	// Legs swing either side of the body along the direction of travel
+	private void moveLegs(Agent a, float dt) {
+		float spd=(float)Math.sqrt(a.vx*a.vx+a.vy*a.vy);
+		float hx=0, hy=1;
+		if (spd>1e-3f) {
+			hx=a.vx/spd; hy=a.vy/spd;
+		}
+		float stride=Math.min(0.4f,spd*0.25f);
+		a.phase+=spd*dt*(float)Math.PI*2/Math.max(0.6f,stride*2+0.01f);
+		float swing=(float)Math.sin(a.phase)*stride/2;
+		for (int i=0;i<2;i++) {
+			float side=(i==0?-1:1)*a.sep/2;
+			float fwd=(i==0?swing:-swing);
+			a.legx[i]=a.x+hy*side+hx*fwd;
+			a.legy[i]=a.y-hx*side+hy*fwd;
+		}
+	}
+
+	// Group everyone within GROUPDIST of each other (transitively), using a grid instead of checking all pairs
+	private void findGroups(float minx, float miny, float maxx, float maxy) {
+		int n=agents.size();
+		float x0=minx-1, y0=miny-1;
+		gridCols=Math.max(1,(int)Math.ceil((maxx-minx+2)/GROUPDIST));
+		gridRows=Math.max(1,(int)Math.ceil((maxy-miny+2)/GROUPDIST));
+		if (cellHead.length<gridCols*gridRows)
+			cellHead=new int[gridCols*gridRows];
+		Arrays.fill(cellHead,0,gridCols*gridRows,-1);
+		for (int i=0;i<n;i++) {
+			Agent a=agents.get(i);
+			int c=cell(a.x,x0,gridCols)+cell(a.y,y0,gridRows)*gridCols;
+			cellNext[i]=cellHead[c];
+			cellHead[c]=i;
+			parent[i]=i;
+		}
+		for (int i=0;i<n;i++) {
+			Agent a=agents.get(i);
+			int cx=cell(a.x,x0,gridCols), cy=cell(a.y,y0,gridRows);
+			for (int gy=Math.max(0,cy-1);gy<=Math.min(gridRows-1,cy+1);gy++)
+				for (int gx=Math.max(0,cx-1);gx<=Math.min(gridCols-1,cx+1);gx++)
+					for (int j=cellHead[gx+gy*gridCols];j>=0;j=cellNext[j])
+						if (j>i) {
+							Agent b=agents.get(j);
+							float dx=a.x-b.x, dy=a.y-b.y;
+							if (dx*dx+dy*dy<GROUPDIST*GROUPDIST)
+								union(i,j);
+						}
+		}
+		// Group ID is the lowest member ID; singletons are group 0 like the FrontEnd
+		for (Agent a: agents) {
+			a.groupid=Integer.MAX_VALUE;
+			a.groupsize=0;
+		}
+		for (int i=0;i<n;i++) {
+			Agent r=agents.get(find(i));
+			r.groupid=Math.min(r.groupid,agents.get(i).id);
+			r.groupsize++;
+		}
+		for (int i=0;i<n;i++) {
+			Agent a=agents.get(i), r=agents.get(find(i));
+			if (a!=r) {
+				a.groupid=r.groupid;
+				a.groupsize=r.groupsize;
+			}
+		}
+		for (Agent a: agents)
+			if (a.groupsize<=1) {
+				a.groupid=0;
+				a.groupsize=1;
+			}
+	}
+
+	private static int cell(float v, float v0, int n) {
+		return Math.max(0,Math.min(n-1,(int)((v-v0)/GROUPDIST)));
+	}
+
+	private int find(int i) {
+		while (parent[i]!=i) {
+			parent[i]=parent[parent[i]];
+			i=parent[i];
+		}
+		return i;
+	}
+
+	private void union(int i, int j) {
+		int ri=find(i), rj=find(j);
+		if (ri!=rj)
+			parent[Math.max(ri,rj)]=Math.min(ri,rj);
+	}
+
+	// Emit one frame in the same order as the FrontEnd: frame, entries, exits, npeople, then per-person data
+	private void send() throws IOException {
+		float elapsed=(System.nanoTime()-startTime)/1e9f;
+		OscWriter w=OscWriter.local();
+		emit(w.begin("/pf/frame").add(frame));
+		for (Agent a: agents)
+			if (!a.entered) {
+				emit(w.begin("/pf/entry").add(frame).add(elapsed).add(a.id).add(a.channel));
+				a.entered=true;
+			}
+		for (int id: exits)
+			emit(w.begin("/pf/exit").add(frame).add(elapsed).add(id));
+		exits.clear();
+		if (agents.size()!=lastCount) {
+			emit(w.begin("/pf/set/npeople").add(agents.size()));
+			lastCount=agents.size();
+		}
+		for (Agent a: agents) {
+			float spd=(float)Math.sqrt(a.vx*a.vx+a.vy*a.vy);
+			float heading=(float)(Math.atan2(-a.vx,a.vy)*180/Math.PI);   // As decoded by Tracker.pfleg
+			w.begin("/pf/update");
+			w.add(frame).add(elapsed).add(a.id);
+			w.add(a.x).add(a.y).add(a.vx).add(a.vy);
+			w.add(a.sep+a.diam).add(a.diam);   // Major, minor axis
+			w.add(a.groupid).add(a.groupsize).add(a.channel);
+			emit(w);
+
+			w.begin("/pf/body");
+			w.add(frame).add(a.id);
+			w.add(a.x).add(a.y).add(0.01f).add(0.01f);   // Position and error
+			w.add(spd).add(0.0f).add(heading).add(0.0f);
+			w.add(heading).add(0.0f);   // Facing
+			w.add(a.diam).add(0.0f);
+			w.add(a.sep).add(0.0f);
+			w.add(0.0f);   // Leftness
+			w.add(0);      // Consecutive invisible
+			emit(w);
+
+			for (int i=0;i<2;i++) {
+				w.begin("/pf/leg");
+				w.add(frame).add(a.id).add(i).add(2);
+				w.add(a.legx[i]).add(a.legy[i]).add(0.01f).add(0.01f);
+				w.add(spd).add(0.0f).add(heading).add(0.0f);
+				w.add(0);
+				emit(w);
+			}
+		}
+	}
+
+	private void emit(OscWriter w) throws IOException {
+		ByteBuffer b=w.packet();
+		if (channel!=null) {
+			try {
+				channel.write(b);
+			} catch (PortUnreachableException e) {
+				// Nobody listening (yet)
+			}
+		} else
+			listener.process(b,self,self.getPort());
+		packets++;
+	}
+}
@@ -0,0 +1,62 @@
+package com.pulsefield.tracker;
+import java.io.IOException;
+import java.util.HashMap;
+
+import netP5.NetAddress;
+import processing.core.PApplet;
+
+// OSC destinations from urlconfig.txt, resolved once and held as connected DatagramChannels
+// The NetAddress objects are kept across reload() so everyone holding one picks up the new address
+public class Destinations {
+	static final String NAMES[]={"TO","OF","AL","CK","MAX","LASER","VD","MPO"};
+	static final String OPTIONAL[]={"MC"};   // Multicast group for /pf/*; only used when present in urlconfig.txt
+	private final HashMap<String,NetAddress> addrs=new HashMap<String,NetAddress>();
+
+	Destinations(URLConfig config) {
+		for (String name: NAMES) {
+			if (config.getHost(name)==null)
+				System.err.println("No "+name+" entry in "+config.filename);
+			else
+				add(config,name);
+		}
+		for (String name: OPTIONAL)
+			if (config.getHost(name)!=null)
+				add(config,name);
+		addrs.put("Laser", addrs.get("LASER"));   // Name used by sendOSC()
+	}
+
+	private void add(URLConfig config, String name) {
+		NetAddress addr=new NetAddress(config.getHost(name), config.getPort(name));
+		addr.name=name;
+		connect(addr);
+		addrs.put(name, addr);
+	}
+
+	NetAddress get(String name) {
+		return addrs.get(name);
+	}
+
+	// Re-resolve all destinations, e.g. after a host changed address
+	void reload() {
+		for (String name: NAMES)
+			reload(name);
+		for (String name: OPTIONAL)
+			reload(name);
+	}
+
+	private void reload(String name) {
+		NetAddress addr=addrs.get(name);
+		if (addr!=null && addr.resolve())
+			PApplet.println("Destination "+name+" at "+addr.inetaddress()+":"+addr.port());
+	}
+
+	private static void connect(NetAddress addr) {
+		if (!addr.isvalid())
+			return;
+		try {
+			addr.connect();
+		} catch (IOException e) {
+			System.err.println("Unable to connect to "+addr.name+" at "+addr+": "+e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.pulsefield.tracker;
+
+// Loss accounting for the /pf stream, fed from drainIngest()
+// A gap in /pf/frame numbers means whole frame markers were lost; a person without an update for a frame means its /pf/update was lost
+public class FrameStats {
+	static final int REORDER=50;   // A frame number more than this below the last one is a FrontEnd restart, not reordering
+
+	private int lastFrame=-1;
+	private long frames=0, lostFrames=0, missedUpdates=0, expired=0;
+	private long windowStart=System.nanoTime();
+	private long windowFrames=0, windowLost=0;
+	private float framesPerSecond=0, lostPerSecond=0;
+
+	// Record a /pf/frame; returns the number of frames skipped since the last one, or -1 if the sequence restarted or went backwards
+	int frame(int frame) {
+		int gap=0;
+		if (lastFrame>=0) {
+			if (frame>lastFrame)
+				gap=frame-lastFrame-1;
+			else
+				gap=-1;
+		}
+		if (gap>0) {
+			lostFrames+=gap;
+			windowLost+=gap;
+		}
+		if (gap>=0 || frame<lastFrame-REORDER)
+			lastFrame=frame;
+		frames++;
+		windowFrames++;
+		return gap;
+	}
+
+	void missed(int n) {
+		missedUpdates+=n;
+		windowLost+=n;
+	}
+
+	void expired(int n) {
+		expired+=n;
+	}
+
+	// Roll the per-second rates; returns true once per second when the rates were updated
+	boolean update() {
+		long now=System.nanoTime();
+		if (now-windowStart<1000000000L)
+			return false;
+		float secs=(now-windowStart)/1e9f;
+		framesPerSecond=windowFrames/secs;
+		lostPerSecond=windowLost/secs;
+		windowStart=now;
+		windowFrames=0;
+		windowLost=0;
+		return true;
+	}
+
+	int lastFrame() { return lastFrame; }
+	long frames() { return frames; }
+	long lostFrames() { return lostFrames; }
+	long missedUpdates() { return missedUpdates; }
+	long expired() { return expired; }
+	float framesPerSecond() { return framesPerSecond; }
+	float lostPerSecond() { return lostPerSecond; }
+
+	public String toString() {
+		return String.format("%.1f frames/s, %.1f packets lost/s; total %d frames, %d frames lost, %d person updates missed, %d people expired",
+				framesPerSecond,lostPerSecond,frames,lostFrames,missedUpdates,expired);
+	}
+}
@@ -0,0 +1,90 @@
+package com.pulsefield.tracker;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free single-producer/single-consumer ring of decoded tracking events
+// The OSC receive thread fills preallocated slots; draw() drains them once per frame so only the render thread touches People
+public class IngestQueue {
+	static final int UPDATE=0, BODY=1, LEG=2, ENTRY=3, EXIT=4, FRAME=5, SETNPEOPLE=6, STOPPED=7;
+
+	static class Event {
+		int type;
+		int frame;
+		int id;
+		int channel;
+		int leg;
+		int count;
+		int groupid, groupsize;
+		float elapsed;
+		float x, y;
+		float vx, vy;
+		float sep, diam;
+		long received;   // System.nanoTime() at which the packet arrived (OscP5.receiveTime())
+	}
+
+	private final Event ring[];
+	private final int mask;
+	private final AtomicLong head=new AtomicLong(0);   // Next slot to read (written by consumer)
+	private final AtomicLong tail=new AtomicLong(0);   // Next slot to write (written by producer)
+	private final AtomicLong overflows=new AtomicLong(0);
+	private volatile int maxDepth=0;
+
+	IngestQueue(int capacity) {
+		int size=Integer.highestOneBit(Math.max(capacity-1,1))<<1;   // Round up to power of 2
+		ring=new Event[size];
+		for (int i=0;i<size;i++)
+			ring[i]=new Event();
+		mask=size-1;
+	}
+
+	// Producer: claim the next free slot, or null (and count an overflow) if the queue is full
+	// Must be followed by publish() once the slot is filled in
+	Event claim(int type) {
+		long t=tail.get();
+		int depth=(int)(t-head.get());
+		if (depth>=ring.length) {
+			overflows.incrementAndGet();
+			return null;
+		}
+		if (depth+1>maxDepth)
+			maxDepth=depth+1;
+		Event e=ring[(int)t&mask];
+		e.type=type;
+		return e;
+	}
+
+	void publish() {
+		tail.lazySet(tail.get()+1);
+	}
+
+	// Consumer: oldest unread event, or null if empty; call release() when done with it
+	Event peek() {
+		long h=head.get();
+		if (h==tail.get())
+			return null;
+		return ring[(int)h&mask];
+	}
+
+	void release() {
+		head.lazySet(head.get()+1);
+	}
+
+	int depth() {
+		return (int)(tail.get()-head.get());
+	}
+
+	int maxDepth() {
+		return maxDepth;
+	}
+
+	void resetMaxDepth() {
+		maxDepth=depth();
+	}
+
+	long overflows() {
+		return overflows.get();
+	}
+
+	int capacity() {
+		return ring.length;
+	}
+}
@@ -0,0 +1,139 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+
+// Map from int keys to int values without boxing; same layout and iteration as IntObjectMap
+public class IntIntMap {
+	private int keys[];
+	private int values[];
+	private int size=0;
+	private int table[];	// Position+1 of the entry hashed here, 0 if empty
+	private int mask;
+
+	public IntIntMap() {
+		this(8);
+	}
+
+	public IntIntMap(int capacity) {
+		capacity=Math.max(capacity,4);
+		keys=new int[capacity];
+		values=new int[capacity];
+		table=new int[Integer.highestOneBit(capacity-1)<<2];   // At most half full
+		mask=table.length-1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	public int keyAt(int i) {
+		return keys[i];
+	}
+
+	public int valueAt(int i) {
+		return values[i];
+	}
+
+	public boolean containsKey(int key) {
+		return find(key)>=0;
+	}
+
+	// Value for key, or missing if not present
+	public int get(int key, int missing) {
+		int i=find(key);
+		return i<0?missing:values[i];
+	}
+
+	public void put(int key, int value) {
+		int i=find(key);
+		if (i>=0) {
+			values[i]=value;
+			return;
+		}
+		if (size==keys.length)
+			grow(size*2);
+		keys[size]=key;
+		values[size]=value;
+		size++;
+		insert(key, size);
+	}
+
+	// Returns true if key was present
+	public boolean remove(int key) {
+		int i=find(key);
+		if (i<0)
+			return false;
+		removeAt(i);
+		return true;
+	}
+
+	// Remove the entry at position i; the last entry takes its place
+	public void removeAt(int i) {
+		unlink(keys[i]);
+		size--;
+		if (i<size) {
+			keys[i]=keys[size];
+			values[i]=values[size];
+			table[slot(keys[i])]=i+1;
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+		size=0;
+	}
+
+	private int hash(int key) {
+		int h=key*0x9E3779B9;
+		return (h^(h>>>16))&mask;
+	}
+
+	// Table slot holding key, which must be present
+	private int slot(int key) {
+		int s=hash(key);
+		while (keys[table[s]-1]!=key)
+			s=(s+1)&mask;
+		return s;
+	}
+
+	private int find(int key) {
+		for (int s=hash(key);table[s]!=0;s=(s+1)&mask)
+			if (keys[table[s]-1]==key)
+				return table[s]-1;
+		return -1;
+	}
+
+	private void insert(int key, int pos) {
+		int s=hash(key);
+		while (table[s]!=0)
+			s=(s+1)&mask;
+		table[s]=pos;
+	}
+
+	// Remove key from the table, shifting back later entries of its probe run so lookups need no tombstones
+	private void unlink(int key) {
+		int hole=slot(key);
+		for (int s=(hole+1)&mask;table[s]!=0;s=(s+1)&mask) {
+			int home=hash(keys[table[s]-1]);
+			if (((s-home)&mask)>=((s-hole)&mask)) {
+				table[hole]=table[s];
+				hole=s;
+			}
+		}
+		table[hole]=0;
+	}
+
+	private void grow(int capacity) {
+		keys=Arrays.copyOf(keys, capacity);
+		values=Arrays.copyOf(values, capacity);
+		if (capacity*2>table.length) {
+			table=new int[Integer.highestOneBit(capacity-1)<<2];
+			mask=table.length-1;
+			for (int i=0;i<size;i++)
+				insert(keys[i], i+1);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Map from int keys to non-null values without boxing
+// Entries are kept densely in insertion order (until a removal moves the last entry into the gap) and found through an open-addressing table of positions
+// Iterate without allocating by position:
+//   for (int i=0;i<map.size();i++) { map.keyAt(i); map.valueAt(i); }
+// or, to remove while iterating, count down and use removeAt(i)
+public class IntObjectMap<V> {
+	private int keys[];
+	private Object values[];
+	private int size=0;
+	private int table[];	// Position+1 of the entry hashed here, 0 if empty
+	private int mask;
+
+	public IntObjectMap() {
+		this(8);
+	}
+
+	public IntObjectMap(int capacity) {
+		capacity=Math.max(capacity,4);
+		keys=new int[capacity];
+		values=new Object[capacity];
+		table=new int[Integer.highestOneBit(capacity-1)<<2];   // At most half full
+		mask=table.length-1;
+	}
+
+	public IntObjectMap(IntObjectMap<V> src) {
+		this(src.size);
+		for (int i=0;i<src.size;i++)
+			put(src.keys[i], src.valueAt(i));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	public int keyAt(int i) {
+		return keys[i];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V valueAt(int i) {
+		return (V)values[i];
+	}
+
+	public boolean containsKey(int key) {
+		return find(key)>=0;
+	}
+
+	public V get(int key) {
+		int i=find(key);
+		return i<0?null:valueAt(i);
+	}
+
+	// Returns the previous value for key, or null
+	public V put(int key, V value) {
+		if (value==null)
+			throw new NullPointerException("IntObjectMap values cannot be null");
+		int i=find(key);
+		if (i>=0) {
+			V old=valueAt(i);
+			values[i]=value;
+			return old;
+		}
+		if (size==keys.length)
+			grow(size*2);
+		keys[size]=key;
+		values[size]=value;
+		size++;
+		insert(key, size);
+		return null;
+	}
+
+	// Returns the removed value, or null if key was not present
+	public V remove(int key) {
+		int i=find(key);
+		return i<0?null:removeAt(i);
+	}
+
+	// Remove the entry at position i; the last entry takes its place
+	public V removeAt(int i) {
+		V old=valueAt(i);
+		unlink(keys[i]);
+		size--;
+		if (i<size) {
+			keys[i]=keys[size];
+			values[i]=values[size];
+			table[slot(keys[i])]=i+1;
+		}
+		values[size]=null;
+		return old;
+	}
+
+	public void clear() {
+		Arrays.fill(values, 0, size, null);
+		Arrays.fill(table, 0);
+		size=0;
+	}
+
+	// Views for existing for-each loops; these allocate an iterator per loop, so hot paths should iterate by position instead
+	public Iterable<V> values() {
+		return new Iterable<V>() {
+			public Iterator<V> iterator() {
+				return new Cursor<V>() {
+					V at(int i) { return valueAt(i); }
+				};
+			}
+		};
+	}
+
+	public Iterable<Integer> keySet() {
+		return new Iterable<Integer>() {
+			public Iterator<Integer> iterator() {
+				return new Cursor<Integer>() {
+					Integer at(int i) { return keys[i]; }
+				};
+			}
+		};
+	}
+
+	private abstract class Cursor<T> implements Iterator<T> {
+		int next=0;
+		abstract T at(int i);
+		public boolean hasNext() { return next<size; }
+		public T next() {
+			if (next>=size)
+				throw new NoSuchElementException();
+			return at(next++);
+		}
+		public void remove() {
+			removeAt(--next);
+		}
+	}
+
+	private int hash(int key) {
+		int h=key*0x9E3779B9;
+		return (h^(h>>>16))&mask;
+	}
+
+	// Table slot holding key, which must be present
+	private int slot(int key) {
+		int s=hash(key);
+		while (keys[table[s]-1]!=key)
+			s=(s+1)&mask;
+		return s;
+	}
+
+	private int find(int key) {
+		for (int s=hash(key);table[s]!=0;s=(s+1)&mask)
+			if (keys[table[s]-1]==key)
+				return table[s]-1;
+		return -1;
+	}
+
+	private void insert(int key, int pos) {
+		int s=hash(key);
+		while (table[s]!=0)
+			s=(s+1)&mask;
+		table[s]=pos;
+	}
+
+	// Remove key from the table, shifting back later entries of its probe run so lookups need no tombstones
+	private void unlink(int key) {
+		int hole=slot(key);
+		for (int s=(hole+1)&mask;table[s]!=0;s=(s+1)&mask) {
+			int home=hash(keys[table[s]-1]);
+			if (((s-home)&mask)>=((s-hole)&mask)) {
+				table[hole]=table[s];
+				hole=s;
+			}
+		}
+		table[hole]=0;
+	}
+
+	private void grow(int capacity) {
+		keys=Arrays.copyOf(keys, capacity);
+		values=Arrays.copyOf(values, capacity);
+		if (capacity*2>table.length) {
+			table=new int[Integer.highestOneBit(capacity-1)<<2];
+			mask=table.length-1;
+			for (int i=0;i<size;i++)
+				insert(keys[i], i+1);
+		}
+	}
+}
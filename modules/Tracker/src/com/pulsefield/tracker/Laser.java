@@ -2,6 +2,7 @@ package com.pulsefield.tracker;
 import netP5.NetAddress;
 import oscP5.OscMessage;
 import oscP5.OscP5;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 
 
@@ -25,33 +26,30 @@ public class Laser {
 		oscP5.send(msg,addr);
 	}
 
+	public void sendMessage(OscWriter w) {
+		oscP5.send(w,addr);
+	}
+
 	public static Laser getInstance() {
 		return theLaser;
 	}
 
 	public void cellBegin(int id) {
-		OscMessage msg = new OscMessage("/laser/cell/begin");
-		msg.add(id);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/cell/begin").add(id));
 	}
 	public void cellEnd(int id) {
-		OscMessage msg = new OscMessage("/laser/cell/end");
-		msg.add(id);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/cell/end").add(id));
 	}
 	public void bgBegin() {
-		OscMessage msg = new OscMessage("/laser/bg/begin");
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/bg/begin"));
 	}
 	public void bgEnd() {
-		OscMessage msg = new OscMessage("/laser/bg/end");
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/bg/end"));
 	}
 	public void shapeBegin(String id) {
 		inShapeDepth++;
 		if (inShapeDepth==1) {
-			OscMessage msg = new OscMessage("/laser/shape/begin").add(id);
-			sendMessage(msg);
+			sendMessage(OscWriter.local().begin("/laser/shape/begin").add(id));
 		} else {
 			PApplet.println("Nested shape to depth of "+inShapeDepth);
 		}
@@ -59,56 +57,29 @@ public class Laser {
 	public void shapeEnd(String id) {
 		inShapeDepth--;
 		if (inShapeDepth==0) {
-			OscMessage msg = new OscMessage("/laser/shape/end").add(id);
-			sendMessage(msg);
+			sendMessage(OscWriter.local().begin("/laser/shape/end").add(id));
 		} else {
 			PApplet.println("After shapeEnd, still have "+inShapeDepth+" shapes depths");
 		}
 	}
 	public void setFlag(String flag, float value) {
-		OscMessage msg = new OscMessage("/ui/laser/"+flag);
-		msg.add(value);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/ui/laser/"+flag).add(value));
 	}
 
 	public void line(float x1,float y1, float x2, float y2) {
-		OscMessage msg = new OscMessage("/laser/line");
-		msg.add(x1);
-		msg.add(y1);
-		msg.add(x2);
-		msg.add(y2);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/line").add(x1).add(y1).add(x2).add(y2));
 	}
 	
 	public void svgfile(String path,float x, float y, float scaling, float rotateDeg) {
-		OscMessage msg = new OscMessage("/laser/svgfile");
-		msg.add(path);
-		msg.add(x);
-		msg.add(y);
-		msg.add(scaling);
-		msg.add(rotateDeg);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/svgfile").add(path).add(x).add(y).add(scaling).add(rotateDeg));
 	}
 	
 	public void circle(float x1,float y1, float r) {
-		OscMessage msg = new OscMessage("/laser/circle");
-		msg.add(x1);
-		msg.add(y1);
-		msg.add(r);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/circle").add(x1).add(y1).add(r));
 	}
 	
 	public void cubic(float x1,float y1, float x2, float y2, float x3, float y3, float x4, float y4) {
-		OscMessage msg = new OscMessage("/laser/bezier/cubic");
-		msg.add(x1);
-		msg.add(y1);
-		msg.add(x2);
-		msg.add(y2);
-		msg.add(x3);
-		msg.add(y3);
-		msg.add(x4);
-		msg.add(y4);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/laser/bezier/cubic").add(x1).add(y1).add(x2).add(y2).add(x3).add(y3).add(x4).add(y4));
 	}
 	
 	public void rect(float x, float y, float width, float height) {
@@ -118,6 +89,6 @@ public class Laser {
 		line(x,y+height,x,y);
 	}
 	public void reset() {
-		sendMessage(new OscMessage("/laser/reset"));
+		sendMessage(OscWriter.local().begin("/laser/reset"));
 	}
 }
@@ -2,7 +2,7 @@ package com.pulsefield.tracker;
 import processing.core.PVector;
 
 /**
- * 
+ *
  */
 
 /**
@@ -10,29 +10,90 @@ import processing.core.PVector;
  *
  */
 public class Leg {
-	private PVector position;
+	private final Person person;	// Leg state is in the person's store at slot*LEGS+index
+	private final int index;
+	private PVector position;   // Snapshots, as in Person
 	private PVector velocity;
-	
-	Leg(PVector position) { this.position=new PVector(position.x,position.y); }
-	
+	private int positionStamp, velocityStamp;
+
+	Leg(Person person, int index) {
+		this.person=person;
+		this.index=index;
+	}
+
+	private int col() {
+		return person.slot*PeopleStore.LEGS+index;
+	}
+
+	private int track() {
+		return person.slot*PeopleStore.TRACKS+1+index;
+	}
+
 	void move(PVector newpos, PVector newvel) {
-		position=new PVector(newpos.x,newpos.y);
-		velocity=new PVector(newvel.x,newvel.y);
-//		PApplet.println("Leg moved to "+newpos+" with velocity "+newvel);
+		move(newpos.x, newpos.y, newvel.x, newvel.y);
+	}
+	void move(float x, float y, float vx, float vy) {
+		PeopleStore store=person.store;
+		int l=col();
+		store.legx[l]=x;
+		store.legy[l]=y;
+		store.legvx[l]=vx;
+		store.legvy[l]=vy;
+		store.stamp[person.slot]++;
+//		PApplet.println("Leg moved to "+x+","+y+" with velocity "+vx+","+vy);
+	}
+	void copyFrom(Leg src) {
+		move(src.getX(), src.getY(), src.getVX(), src.getVY());
 	}
 	PVector getOriginInMeters() {
+		int stamp=person.store.stamp[person.slot];
+		if (position==null || positionStamp!=stamp) {
+			position=new PVector(getX(), getY());
+			positionStamp=stamp;
+		}
 		return position;
 	}
 	// Convert to normalized position - in range [-1,1] for extent of pulsefield
 	PVector getNormalizedPosition() {
-		return Tracker.floorToNormalized(position);
+		return getNormalizedPosition(new PVector());
+	}
+	PVector getNormalizedPosition(PVector result) {
+		return Tracker.floorToNormalized(getX(), getY(), false, result);
 	}
 	PVector getVelocityInMeters() {
+		int stamp=person.store.stamp[person.slot];
+		if (velocity==null || velocityStamp!=stamp) {
+			velocity=new PVector(getVX(), getVY());
+			velocityStamp=stamp;
+		}
 		return velocity;
 	}
 	PVector getNormalizedVelocity() {
-		return Tracker.mapVelocity(velocity);
+		return getNormalizedVelocity(new PVector());
+	}
+	PVector getNormalizedVelocity(PVector result) {
+		return Tracker.mapVelocity(getVX(), getVY(), result);
+	}
+	void sample(long time) {
+		PeopleStore store=person.store;
+		int l=col();
+		store.sample(track(), store.legx[l], store.legy[l], store.legvx[l], store.legvy[l], time);
+	}
+	// As Person.getPredictedPosition()
+	PVector getPredictedPosition(PVector result) {
+		PeopleStore store=person.store;
+		int k=track();
+		float lead=store.lead(k);
+		if (lead<0)
+			result.set(getX(), getY());
+		else
+			result.set(store.fx[k]+store.fvx[k]*lead, store.fy[k]+store.fvy[k]*lead);
+		return result;
 	}
+	float getX() { return person.store.legx[col()]; }
+	float getY() { return person.store.legy[col()]; }
+	float getVX() { return person.store.legvx[col()]; }
+	float getVY() { return person.store.legvy[col()]; }
 	float getDiameterInMeters() {
 		return 0.2f; // TODO
 	}
@@ -0,0 +1,48 @@
+package com.pulsefield.tracker;
+
+// Maps LIDAR frame numbers onto System.nanoTime(), so motion filtering is timed by when scans were taken rather than when their packets arrived
+// The frame period comes from the elapsed times on /pf/update; the offset to the local clock follows the least delayed packet, creeping later at DRIFT so it keeps up with clock drift
+// Only used from draw() (see Tracker.drainIngest())
+public class LidarClock {
+	static final double DRIFT=1e-3;	// Rate (s/s) at which the offset may creep later than the least delayed packet seen
+	static final int MINSPAN=25;	// Frames between elapsed times before trusting the period
+
+	private boolean anchored=false;
+	private int frame0;
+	private double elapsed0;	// Seconds into the FrontEnd's run at which frame0 was scanned
+	private double period=0;	// Seconds per frame, 0 until known
+	private boolean synced=false;
+	private long offset;		// Local time minus LIDAR time in ns
+	private long lastReceived;
+
+	// Note that frame was scanned elapsed seconds into the FrontEnd's run (from /pf/update)
+	// A frame or elapsed time going backwards means the FrontEnd restarted, so the clock starts over
+	void elapsed(int frame, float elapsed) {
+		if (elapsed<=0)
+			return;   // No timing, e.g. mouse people
+		if (!anchored || frame<frame0 || elapsed<elapsed0) {
+			anchored=true;
+			frame0=frame;
+			elapsed0=elapsed;
+			synced=false;
+		} else if (frame-frame0>=MINSPAN)
+			period=(elapsed-elapsed0)/(frame-frame0);
+	}
+
+	// Local time at which frame was scanned, given that a packet from it arrived at received
+	// Returns received itself until the frame period is known
+	long time(int frame, long received) {
+		if (period<=0)
+			return received;
+		long lidar=(long)((elapsed0+(frame-frame0)*period)*1e9);
+		long d=received-lidar;
+		if (synced)
+			offset+=(long)(Math.max(0,received-lastReceived)*DRIFT);
+		if (!synced || d<offset) {
+			offset=d;
+			synced=true;
+		}
+		lastReceived=received;
+		return lidar+offset;
+	}
+}
@@ -0,0 +1,63 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+
+// One LIDAR scan of background and current ranges, kept in preallocated primitive arrays
+// sin/cos of each scan angle are cached and only recomputed when the scan geometry changes
+public class LidarScan {
+	final int n;
+	final float angle[];	// Scan angle of each point in degrees, [-95,95]; NaN until set, so the first set() of a point computes its sin/cos
+	final float range[];	// Current range in meters
+	final float bgrange[];	// Background range in meters
+	private final float sin[], cos[];
+	private float angle0=Float.NaN, step=Float.NaN;
+
+	LidarScan(int n) {
+		this.n=n;
+		angle=new float[n]; range=new float[n]; bgrange=new float[n];
+		sin=new float[n]; cos=new float[n];
+		Arrays.fill(angle, Float.NaN);
+	}
+
+	// Per-point update from /pf/background
+	void set(int scanPt, float angleDeg, float backRange, float currRange) {
+		if (scanPt<0 || scanPt>=n)
+			return;
+		if (angle[scanPt]!=angleDeg)   // Also true while angle[scanPt] is NaN
+			setAngle(scanPt,angleDeg);
+		bgrange[scanPt]=backRange;
+		range[scanPt]=currRange;
+	}
+
+	// Block update from /pf/background/blob; ranges are big-endian float32, one per point starting at first
+	void set(int first, float angle0Deg, float stepDeg, byte bg[], byte curr[]) {
+		if (first<0 || first>=n)
+			return;
+		if (angle0Deg!=angle0 || stepDeg!=step) {
+			for (int i=0;i<n;i++)
+				setAngle(i,angle0Deg+i*stepDeg);
+			angle0=angle0Deg; step=stepDeg;
+		}
+		int cnt=Math.min(n-first,Math.min(bg.length,curr.length)/4);
+		for (int i=0;i<cnt;i++) {
+			bgrange[first+i]=getFloat(bg,i*4);
+			range[first+i]=getFloat(curr,i*4);
+		}
+	}
+
+	private void setAngle(int i, float angleDeg) {
+		angle[i]=angleDeg;
+		double a=angleDeg*Math.PI/180;
+		sin[i]=(float)Math.sin(a);
+		cos[i]=(float)Math.cos(a);
+	}
+
+	private static float getFloat(byte b[], int pos) {
+		return Float.intBitsToFloat(((b[pos]&0xff)<<24)|((b[pos+1]&0xff)<<16)|((b[pos+2]&0xff)<<8)|(b[pos+3]&0xff));
+	}
+
+	// Positions in LIDAR coordinates (meters)
+	float x(int i) { return -range[i]*sin[i]; }
+	float y(int i) { return range[i]*cos[i]; }
+	float bgx(int i) { return -bgrange[i]*sin[i]; }
+	float bgy(int i) { return bgrange[i]*cos[i]; }
+}
@@ -2,6 +2,7 @@ package com.pulsefield.tracker;
 import netP5.NetAddress;
 import oscP5.OscMessage;
 import oscP5.OscP5;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 
 public class Max extends Synth {
@@ -19,21 +20,13 @@ public class Max extends Synth {
 		oscP5.send(msg,MXaddr);
 	}
 
+	public void sendMessage(OscWriter w) {
+		oscP5.send(w,MXaddr);
+	}
+
 	public void play(int pitch, int velocity, int track) {
-		OscMessage msg=new OscMessage("/midi/note");
-		msg.add(pitch);
-		msg.add(velocity);
-		msg.add(track);
-		sendMessage(msg);
+		sendMessage(OscWriter.local().begin("/midi/note").add(pitch).add(velocity).add(track));
 		//System.out.println("Send to MAX: play("+pitch+","+velocity+","+track+")");
 	}
 
-
-	public boolean handleMessage(OscMessage msg) {
-		//PApplet.println("Max message: "+msg.toString());
-		if (super.handleMessage(msg))
-			return true;
-		PApplet.println("Unknown Max Message: "+msg.toString());
-		return false;
-	}
 }
@@ -1,45 +1,131 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
-
 import processing.core.PApplet;
-import processing.core.PVector;
 
 
+// The people in a PeopleStore, indexed by id
+// pmap is kept for existing callers; its Person objects are views over store, so removing one must go through remove() to free its slot
+// Iterate by position (pmap.valueAt(i)) to avoid allocating
 public class People {
-	HashMap<Integer, Person> pmap;
+	IntObjectMap<Person> pmap;
+	final PeopleStore store;
+	final PeopleIndex index=new PeopleIndex();   // Neighbor queries as of the last publish() or reindex()
+	PeopleTrail trail;   // Recent history recorded by publish(), null until someone asks for it with keepTrail()
+	int frame=-1;   // LIDAR frame this set of people was published for (see publish())
+	// Removed people keep their last state here instead of in a store of their own, so removal allocates nothing
+	// The slots are reused round robin: a removed Person reads correctly until GHOSTS more people have left, after which Person.isExpired() is true
+	static final int GHOSTS=256;
+	private final PeopleStore ghosts=new PeopleStore(GHOSTS);
+	private int nextGhost=0;
 
 	People() {
-		pmap=new HashMap<Integer,Person>();
+		pmap=new IntObjectMap<Person>();
+		store=new PeopleStore(16);
+		for (int i=0;i<GHOSTS;i++)
+			ghosts.alloc(0, 0, 0f, 0f);
 	}
 
 	public void add(int id, int channel) {
-		Person ps=new Person(new PVector(0f,0f),channel, id);
-		pmap.put(id,ps);
+		Person ps=new Person(store, 0f, 0f, channel, id);
+		remove(pmap.put(id,ps));
+	}
+
+	private void remove(Person ps) {
+		if (ps!=null) {
+			ps.detach(ghosts, nextGhost);
+			nextGhost=(nextGhost+1)%GHOSTS;
+		}
 	}
 
 	public void exit(int id) {
-		Person ps=pmap.get(id);
+		Person ps=pmap.remove(id);
 		if (ps==null)
 			PApplet.println("Unable to locate user "+id+" at exit, ignoring.");
 		else
-			pmap.remove(id);
+			remove(ps);
 	}
 
 	public void clear() {
+		for (int i=0;i<pmap.size();i++)
+			remove(pmap.valueAt(i));
 		pmap.clear();
 	}
 
+	// A count that disagrees with pmap is only logged; ghosts from lost exits are removed by expire()
 	public void setnpeople(int n) {
-		if (n!=pmap.size()) {
-			PApplet.println("Had "+pmap.size()+" people, but got message that there are "+n+" .. cleared.");
-			pmap.clear();
+		if (n==0)
+			clear();
+		else if (n!=pmap.size())
+			PApplet.println("Have "+pmap.size()+" people, but got message that there are "+n+".");
+	}
+
+	// Remove people not updated within maxAge frames of frame, recording losses in stats
+	// Returns the number removed
+	int expire(int frame, int maxAge, FrameStats stats) {
+		int missed=0, expired=0;
+		for (int i=pmap.size()-1;i>=0;i--) {
+			Person p=pmap.valueAt(i);
+			int lastSeen=store.lastSeen[p.slot];
+			if (lastSeen>frame)
+				store.lastSeen[p.slot]=frame;   // Frame numbers restarted
+			else if (frame-lastSeen>maxAge) {
+				PApplet.println("Expiring person "+p.id+", last seen at frame "+lastSeen+", now "+frame);
+				pmap.removeAt(i);
+				remove(p);
+				expired++;
+			} else if (lastSeen<frame)
+				missed++;
 		}
+		stats.missed(missed);
+		stats.expired(expired);
+		return expired;
 	}
 	
 	public Person get(int id) {
 		return pmap.get(id);
 	}
 	
+	// Publish the state of src into this set as one consistent frame
+	// Person objects keep their identity (and userData) across frames; entries not in src are dropped
+	void publish(People src, int frame) {
+		for (int i=pmap.size()-1;i>=0;i--) {
+			Person p=pmap.valueAt(i);
+			if (!src.pmap.containsKey(p.id)) {
+				pmap.removeAt(i);
+				remove(p);
+			}
+		}
+		for (int i=0;i<src.pmap.size();i++) {
+			Person ps=src.pmap.valueAt(i);
+			Person p=pmap.get(ps.id);
+			if (p==null) {
+				p=new Person(store, 0f, 0f, ps.getChannel(), ps.id);
+				pmap.put(ps.id, p);
+				if (trail!=null)
+					trail.clear(p.slot);
+			}
+			p.copyFrom(ps);
+			if (trail!=null) {
+				long t=store.ft[p.slot*PeopleStore.TRACKS];   // When the update was received
+				trail.record(store, p.slot, t!=0?t:System.nanoTime());
+			}
+		}
+		index.rebuild(this);
+		this.frame=frame;
+	}
+
+	// Record at least seconds of history for each person from now on, returning the trail
+	// Asking for more than the current trail holds starts a new, empty one
+	PeopleTrail keepTrail(float seconds) {
+		if (trail==null || trail.seconds<seconds)
+			trail=new PeopleTrail(seconds, store.capacity());
+		return trail;
+	}
+
+	// Rebuild the index for a set that is moved directly rather than published
+	void reindex() {
+		index.rebuild(this);
+	}
+
 	public Person getOrCreate(int id, int channel) {
 		Person ps=pmap.get(id);
 		if (ps==null) {
@@ -0,0 +1,152 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+
+// Uniform grid bucketing a People by position, for neighbor queries without scanning every pair
+// The grid spans the floor (Tracker.minx..maxx, miny..maxy) in CELLSIZE cells; anyone outside is clamped into the edge cells, which only costs extra candidates
+// Rebuilt from scratch by rebuild() (People.publish() does this once per frame); queries then see that snapshot of positions
+public class PeopleIndex {
+	static final float CELLSIZE=0.5f;   // Meters; about the distance at which people interact
+
+	private float x0, y0;
+	private int nx=0, ny=0;
+	private int cellStart[]=new int[1];   // Entries of cell c are [cellStart[c],cellStart[c+1])
+	private int cellOf[]=new int[16];
+	private Person people[]=new Person[16];   // Sorted by cell
+	private float px[]=new float[16], py[]=new float[16];
+	private int size=0;
+	private final float bestDist[]=new float[16];   // Scratch for nearest()
+	private final Person nearestScratch[]=new Person[1];
+
+	void rebuild(People p) {
+		x0=Tracker.minx;
+		y0=Tracker.miny;
+		int gx=Math.max(1,(int)Math.ceil((Tracker.maxx-Tracker.minx)/CELLSIZE));
+		int gy=Math.max(1,(int)Math.ceil((Tracker.maxy-Tracker.miny)/CELLSIZE));
+		if (gx!=nx || gy!=ny) {
+			nx=gx;
+			ny=gy;
+			cellStart=new int[nx*ny+1];
+		} else
+			Arrays.fill(cellStart, 0);
+		int n=p.pmap.size();
+		if (n>people.length) {
+			int cap=Math.max(n,people.length*2);
+			cellOf=new int[cap];
+			people=new Person[cap];
+			px=new float[cap];
+			py=new float[cap];
+		}
+		if (n<size)
+			Arrays.fill(people, n, size, null);   // Don't hold on to people who have left
+		size=n;
+		// Counting sort by cell
+		for (int i=0;i<n;i++) {
+			Person ps=p.pmap.valueAt(i);
+			int c=cell(col(ps.getX()),row(ps.getY()));
+			cellOf[i]=c;
+			cellStart[c+1]++;
+		}
+		for (int c=0;c<nx*ny;c++)
+			cellStart[c+1]+=cellStart[c];
+		for (int i=0;i<n;i++) {
+			Person ps=p.pmap.valueAt(i);
+			int j=cellStart[cellOf[i]]++;
+			people[j]=ps;
+			px[j]=ps.getX();
+			py[j]=ps.getY();
+		}
+		// The placement pass advanced each start to the next cell's start; shift back
+		for (int c=nx*ny;c>0;c--)
+			cellStart[c]=cellStart[c-1];
+		cellStart[0]=0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int col(float x) {
+		return Math.max(0,Math.min(nx-1,(int)Math.floor((x-x0)/CELLSIZE)));
+	}
+
+	private int row(float y) {
+		return Math.max(0,Math.min(ny-1,(int)Math.floor((y-y0)/CELLSIZE)));
+	}
+
+	private int cell(int c, int r) {
+		return r*nx+c;
+	}
+
+	// Store the people within radius r of (x,y) in result, in no particular order
+	// Returns the number found, which may be more than result.length; only that many are stored
+	int withinRadius(float x, float y, float r, Person result[]) {
+		int found=0;
+		float r2=r*r;
+		int c1=col(x+r), r1=row(y+r);
+		for (int row=row(y-r);row<=r1;row++)
+			for (int c=col(x-r);c<=c1;c++) {
+				int cl=cell(c,row);
+				for (int j=cellStart[cl];j<cellStart[cl+1];j++) {
+					float dx=px[j]-x, dy=py[j]-y;
+					if (dx*dx+dy*dy<=r2) {
+						if (found<result.length)
+							result[found]=people[j];
+						found++;
+					}
+				}
+			}
+		return found;
+	}
+
+	// Closest person to (x,y) other than exclude (which may be null), or null if there is none
+	Person nearest(float x, float y, Person exclude) {
+		return nearest(x,y,1,exclude,nearestScratch)>0?nearestScratch[0]:null;
+	}
+
+	// Store the k people closest to (x,y), other than exclude, in result in order of increasing distance
+	// Searches outward ring by ring from the cell containing (x,y) and stops once no unvisited cell can be closer
+	// Returns the number stored, less than k only if there are fewer people; k is limited to result.length and 16
+	int nearest(float x, float y, int k, Person exclude, Person result[]) {
+		k=Math.min(k,Math.min(result.length,bestDist.length));
+		if (size==0 || k<=0)
+			return 0;
+		int found=0;
+		int cx=col(x), cy=row(y);
+		int maxRing=Math.max(Math.max(cx,nx-1-cx),Math.max(cy,ny-1-cy));
+		for (int ring=0;ring<=maxRing;ring++) {
+			for (int row=cy-ring;row<=cy+ring;row++) {
+				if (row<0 || row>=ny)
+					continue;
+				// Whole rows at the top and bottom of the ring, only the two ends in between
+				int step=(row==cy-ring || row==cy+ring)?1:Math.max(1,2*ring);
+				for (int c=cx-ring;c<=cx+ring;c+=step) {
+					if (c<0 || c>=nx)
+						continue;
+					int cl=cell(c,row);
+					for (int j=cellStart[cl];j<cellStart[cl+1];j++) {
+						if (people[j]==exclude)
+							continue;
+						float dx=px[j]-x, dy=py[j]-y;
+						float d2=dx*dx+dy*dy;
+						if (found==k && d2>=bestDist[k-1])
+							continue;
+						// Insertion into the sorted best list
+						int pos=(found<k)?found++:k-1;
+						while (pos>0 && bestDist[pos-1]>d2) {
+							bestDist[pos]=bestDist[pos-1];
+							result[pos]=result[pos-1];
+							pos--;
+						}
+						bestDist[pos]=d2;
+						result[pos]=people[j];
+					}
+				}
+			}
+			// Anyone in a later ring is at least ring*CELLSIZE away
+			float bound=ring*CELLSIZE;
+			if (found==k && bestDist[k-1]<=bound*bound)
+				break;
+		}
+		return found;
+	}
+}
@@ -0,0 +1,173 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+
+// Tracking state for a set of people as parallel primitive columns
+// Each person occupies a slot that stays fixed for as long as they exist; Person and Leg are views over a slot, so updates and reads allocate nothing
+// Columns may be reallocated by grow(), so views index them through the store on every access rather than holding the arrays
+public class PeopleStore {
+	static final int LEGS=2;
+	static final int TRACKS=1+LEGS;	// Filtered tracks per slot: the person at slot*TRACKS, then each leg
+	static final float RESETGAP=0.5f;	// Seconds; a track not sampled for this long restarts from the next sample
+	static final float MINGAP=0.001f;	// Seconds; samples closer than this to the last are dropped
+	static final float MAXPREDICT=0.25f;	// Seconds; never extrapolate further than this past the last sample
+
+	// Alpha-beta filter gains for sample(); the default beta is critically damped for alpha
+	static float alpha=Float.parseFloat(System.getProperty("pf.alpha","0.75"));
+	static float beta=Float.parseFloat(System.getProperty("pf.beta",Float.toString(alpha*alpha/(2-alpha))));
+	// System.nanoTime() that predictions are made for; Tracker.draw() sets this to now plus pf.predictlead ms each frame
+	static long renderTime=0;
+
+	int id[], channel[], groupid[], groupsize[];
+	int lastSeen[];		// LIDAR frame of the last update (see People.expire())
+	int stamp[];		// Bumped on every write to a slot's position or velocity, so views can tell when a cached PVector is stale
+	int gen[];			// Bumped each time a slot is given to a person, so a view can tell its slot has been reused (see Person.isExpired())
+	float x[], y[];		// Position in meters (in absolute coordinate)
+	float vx[], vy[];	// Velocity in meters/sec
+	float sep[];		// Leg separation in meters
+	float diam[];		// Leg diameter in meters
+	float legx[], legy[], legvx[], legvy[];   // Leg slot*LEGS+leg
+	float fx[], fy[], fvx[], fvy[];   // Filtered position and velocity of each track (see TRACKS)
+	long ft[];			// System.nanoTime() of each track's last sample, 0 if none yet
+	private int free[];
+	private int nfree;
+	private int used=0;		// Slots ever handed out; free[] holds released ones below this
+
+	PeopleStore(int capacity) {
+		capacity=Math.max(capacity,1);
+		id=new int[capacity];
+		channel=new int[capacity];
+		groupid=new int[capacity];
+		groupsize=new int[capacity];
+		lastSeen=new int[capacity];
+		stamp=new int[capacity];
+		gen=new int[capacity];
+		x=new float[capacity];
+		y=new float[capacity];
+		vx=new float[capacity];
+		vy=new float[capacity];
+		sep=new float[capacity];
+		diam=new float[capacity];
+		legx=new float[capacity*LEGS];
+		legy=new float[capacity*LEGS];
+		legvx=new float[capacity*LEGS];
+		legvy=new float[capacity*LEGS];
+		fx=new float[capacity*TRACKS];
+		fy=new float[capacity*TRACKS];
+		fvx=new float[capacity*TRACKS];
+		fvy=new float[capacity*TRACKS];
+		ft=new long[capacity*TRACKS];
+		free=new int[capacity];
+		nfree=0;
+	}
+
+	int capacity() {
+		return x.length;
+	}
+
+	// Claim a slot for a new person at (px,py), at rest with its legs on its origin
+	int alloc(int pid, int pchannel, float px, float py) {
+		int s;
+		if (nfree>0)
+			s=free[--nfree];
+		else {
+			if (used==capacity())
+				grow(capacity()*2);
+			s=used++;
+		}
+		id[s]=pid;
+		channel[s]=pchannel;
+		groupid[s]=pid;
+		groupsize[s]=1;
+		lastSeen[s]=0;
+		stamp[s]++;
+		gen[s]++;
+		x[s]=px; y[s]=py;
+		vx[s]=0f; vy[s]=0f;
+		sep[s]=0f; diam[s]=0f;
+		for (int l=s*LEGS;l<(s+1)*LEGS;l++) {
+			legx[l]=px; legy[l]=py;
+			legvx[l]=0f; legvy[l]=0f;
+		}
+		for (int k=s*TRACKS;k<(s+1)*TRACKS;k++)
+			ft[k]=0;
+		return s;
+	}
+
+	void release(int s) {
+		free[nfree++]=s;
+	}
+
+	// Copy all tracking state of slot s in src into slot d
+	void copy(PeopleStore src, int s, int d) {
+		channel[d]=src.channel[s];
+		groupid[d]=src.groupid[s];
+		groupsize[d]=src.groupsize[s];
+		stamp[d]++;
+		x[d]=src.x[s]; y[d]=src.y[s];
+		vx[d]=src.vx[s]; vy[d]=src.vy[s];
+		sep[d]=src.sep[s]; diam[d]=src.diam[s];
+		System.arraycopy(src.legx, s*LEGS, legx, d*LEGS, LEGS);
+		System.arraycopy(src.legy, s*LEGS, legy, d*LEGS, LEGS);
+		System.arraycopy(src.legvx, s*LEGS, legvx, d*LEGS, LEGS);
+		System.arraycopy(src.legvy, s*LEGS, legvy, d*LEGS, LEGS);
+		System.arraycopy(src.fx, s*TRACKS, fx, d*TRACKS, TRACKS);
+		System.arraycopy(src.fy, s*TRACKS, fy, d*TRACKS, TRACKS);
+		System.arraycopy(src.fvx, s*TRACKS, fvx, d*TRACKS, TRACKS);
+		System.arraycopy(src.fvy, s*TRACKS, fvy, d*TRACKS, TRACKS);
+		System.arraycopy(src.ft, s*TRACKS, ft, d*TRACKS, TRACKS);
+	}
+
+	// Feed track k a measured position (and the tracker's velocity, used to start the track) taken at time t
+	// Predicts the track forward to t, then corrects position by alpha and velocity by beta of the residual
+	// A sample within MINGAP of the last (a duplicate packet, or one out of order) is ignored rather than restarting the track
+	void sample(int k, float zx, float zy, float zvx, float zvy, long t) {
+		float dt=(t-ft[k])/1e9f;
+		if (ft[k]==0 || dt>RESETGAP) {
+			fx[k]=zx; fy[k]=zy;
+			fvx[k]=zvx; fvy[k]=zvy;
+		} else if (dt<=MINGAP)
+			return;
+		else {
+			float rx=zx-(fx[k]+fvx[k]*dt), ry=zy-(fy[k]+fvy[k]*dt);
+			fx[k]+=fvx[k]*dt+alpha*rx;
+			fy[k]+=fvy[k]*dt+alpha*ry;
+			fvx[k]+=beta*rx/dt;
+			fvy[k]+=beta*ry/dt;
+		}
+		ft[k]=t;
+	}
+
+	// Seconds from track k's last sample to renderTime, limited to [0,MAXPREDICT]; -1 if it has never been sampled
+	float lead(int k) {
+		if (ft[k]==0)
+			return -1f;
+		long now=(renderTime!=0)?renderTime:System.nanoTime();
+		return Math.max(0f,Math.min(MAXPREDICT,(now-ft[k])/1e9f));
+	}
+
+	private void grow(int capacity) {
+		id=Arrays.copyOf(id, capacity);
+		channel=Arrays.copyOf(channel, capacity);
+		groupid=Arrays.copyOf(groupid, capacity);
+		groupsize=Arrays.copyOf(groupsize, capacity);
+		lastSeen=Arrays.copyOf(lastSeen, capacity);
+		stamp=Arrays.copyOf(stamp, capacity);
+		gen=Arrays.copyOf(gen, capacity);
+		x=Arrays.copyOf(x, capacity);
+		y=Arrays.copyOf(y, capacity);
+		vx=Arrays.copyOf(vx, capacity);
+		vy=Arrays.copyOf(vy, capacity);
+		sep=Arrays.copyOf(sep, capacity);
+		diam=Arrays.copyOf(diam, capacity);
+		legx=Arrays.copyOf(legx, capacity*LEGS);
+		legy=Arrays.copyOf(legy, capacity*LEGS);
+		legvx=Arrays.copyOf(legvx, capacity*LEGS);
+		legvy=Arrays.copyOf(legvy, capacity*LEGS);
+		fx=Arrays.copyOf(fx, capacity*TRACKS);
+		fy=Arrays.copyOf(fy, capacity*TRACKS);
+		fvx=Arrays.copyOf(fvx, capacity*TRACKS);
+		fvy=Arrays.copyOf(fvy, capacity*TRACKS);
+		ft=Arrays.copyOf(ft, capacity*TRACKS);
+		free=Arrays.copyOf(free, capacity);
+	}
+}
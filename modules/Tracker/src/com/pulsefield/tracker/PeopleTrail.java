@@ -0,0 +1,172 @@
+package com.pulsefield.tracker;
+import java.util.Arrays;
+
+import processing.core.PVector;
+
+// Recent positions and velocities of each person in a People, in a fixed-length circular buffer per store slot
+// People.publish() records a sample for anyone updated since their last one, so recording allocates nothing (except when the store grows)
+// Samples are indexed back from the newest (0) and time-stamped with System.nanoTime() of the update; positions are in meters
+// Window queries cover the samples no older than window seconds before a person's newest one
+public class PeopleTrail {
+	static final float RATE=50f;	// Samples/sec assumed when sizing; a faster source leaves less than the asked-for seconds of history
+
+	final float seconds;
+	final int length;	// Samples kept per slot; slot s uses [s*length,(s+1)*length)
+	private long t[];
+	private float x[], y[], vx[], vy[];
+	private int head[];	// Offset of the newest sample in each slot's ring
+	private int count[];	// Samples held by each slot, up to length
+
+	PeopleTrail(float seconds, int slots) {
+		this.seconds=seconds;
+		length=Math.max(2,(int)Math.ceil(seconds*RATE)+1);
+		alloc(Math.max(slots,1));
+	}
+
+	private void alloc(int slots) {
+		t=new long[slots*length];
+		x=new float[slots*length];
+		y=new float[slots*length];
+		vx=new float[slots*length];
+		vy=new float[slots*length];
+		head=new int[slots];
+		count=new int[slots];
+	}
+
+	private void grow(int slots) {
+		t=Arrays.copyOf(t, slots*length);
+		x=Arrays.copyOf(x, slots*length);
+		y=Arrays.copyOf(y, slots*length);
+		vx=Arrays.copyOf(vx, slots*length);
+		vy=Arrays.copyOf(vy, slots*length);
+		head=Arrays.copyOf(head, slots);
+		count=Arrays.copyOf(count, slots);
+	}
+
+	// Forget the history of a slot, e.g. when it is given to a new person
+	void clear(int slot) {
+		if (slot<count.length)
+			count[slot]=0;
+	}
+
+	// Append the current state of the person at slot of store, taken at time
+	// Ignored if time is not after the slot's newest sample (i.e. nothing new since the last call)
+	void record(PeopleStore store, int slot, long time) {
+		if (slot>=count.length)
+			grow(Math.max(slot+1,store.capacity()));
+		int n=count[slot];
+		if (n>0 && time<=t[slot*length+head[slot]])
+			return;
+		int h=(n==0)?0:(head[slot]+1)%length;
+		int i=slot*length+h;
+		t[i]=time;
+		x[i]=store.x[slot];
+		y[i]=store.y[slot];
+		vx[i]=store.vx[slot];
+		vy[i]=store.vy[slot];
+		head[slot]=h;
+		if (n<length)
+			count[slot]=n+1;
+	}
+
+	// Number of samples held for p
+	int size(Person p) {
+		return p.slot<count.length?count[p.slot]:0;
+	}
+
+	// Array index of the sample back from p's newest
+	private int at(Person p, int back) {
+		return p.slot*length+(head[p.slot]-back+length)%length;
+	}
+
+	// Time of the sample back from p's newest (0 is the newest); back must be less than size(p)
+	long getTime(Person p, int back) {
+		return t[at(p,back)];
+	}
+
+	// Position (and velocity, if vel is not null) of the sample back from p's newest, stored in pos; returns its time
+	long get(Person p, int back, PVector pos, PVector vel) {
+		int i=at(p,back);
+		pos.set(x[i], y[i]);
+		if (vel!=null)
+			vel.set(vx[i], vy[i]);
+		return t[i];
+	}
+
+	// Samples back from p's newest to the newest one taken at or before time, or size(p) if all are later
+	int indexAt(Person p, long time) {
+		int lo=0, hi=size(p);
+		while (lo<hi) {
+			int mid=(lo+hi)>>>1;
+			if (t[at(p,mid)]<=time)
+				hi=mid;
+			else
+				lo=mid+1;
+		}
+		return lo;
+	}
+
+	// p's position at time, interpolated between samples and held at the newest one for later times, stored in result
+	// Returns false, leaving result unchanged, if time is before the oldest sample held
+	boolean positionAt(Person p, long time, PVector result) {
+		int k=indexAt(p, time);
+		if (k>=size(p))
+			return false;
+		int i=at(p,k);
+		if (k==0) {
+			result.set(x[i], y[i]);
+			return true;
+		}
+		int j=at(p,k-1);
+		float f=(float)(time-t[i])/(t[j]-t[i]);
+		result.set(x[i]+(x[j]-x[i])*f, y[i]+(y[j]-y[i])*f);
+		return true;
+	}
+
+	// Samples back from p's newest to the oldest one within window seconds of it, or -1 if there are none
+	private int oldest(Person p, float window) {
+		int n=size(p);
+		if (n==0)
+			return -1;
+		long since=t[at(p,0)]-(long)(window*1e9f);
+		return Math.max(0,indexAt(p, since-1)-1);
+	}
+
+	// Distance in meters walked over the window
+	float pathLength(Person p, float window) {
+		int m=oldest(p, window);
+		float len=0;
+		for (int k=0;k<m;k++) {
+			int i=at(p,k), j=at(p,k+1);
+			float dx=x[i]-x[j], dy=y[i]-y[j];
+			len+=(float)Math.sqrt(dx*dx+dy*dy);
+		}
+		return len;
+	}
+
+	// Path length over the window divided by the time it spans, in meters/sec; 0 with fewer than two samples
+	float averageSpeed(Person p, float window) {
+		int m=oldest(p, window);
+		if (m<=0)
+			return 0f;
+		return pathLength(p, window)/((t[at(p,0)]-t[at(p,m)])*1e-9f);
+	}
+
+	// Net movement in meters over the window, stored in result
+	PVector displacement(Person p, float window, PVector result) {
+		int m=oldest(p, window);
+		if (m<=0)
+			return result.set(0f, 0f);
+		int i=at(p,0), j=at(p,m);
+		return result.set(x[i]-x[j], y[i]-y[j]);
+	}
+
+	// Direction of the net movement over the window in radians (as PVector.heading()), 0 if they haven't moved
+	float heading(Person p, float window) {
+		int m=oldest(p, window);
+		if (m<=0)
+			return 0f;
+		int i=at(p,0), j=at(p,m);
+		return (float)Math.atan2(y[i]-y[j], x[i]-x[j]);
+	}
+}
@@ -1,84 +1,206 @@
 package com.pulsefield.tracker;
 import processing.core.PVector;
 
+// View of one person's slot in a PeopleStore
 public class Person {
-	private PVector position;  // Position in meters (in absolute coordinate)
-	private PVector velocity;  // Velocity in meters/sec
-	int channel;
-	int id;
-	int groupid;
-	int groupsize;
-	float sep;   		// Leg separation in meters
-	float diam;			// Leg diameter in meters
+	PeopleStore store;
+	int slot;
+	final int id;
 	float userData;		// extra data for apps
 	Leg[] legs;
-	
-	public Person(PVector origin, int channel, int id) {
-		this.position=new PVector(origin.x,origin.y);
-		this.velocity=new PVector(0f,0f);
-		this.channel = channel;
+	private PVector position;  // Snapshot of the position columns, reallocated only when read after a move
+	private PVector velocity;
+	private int positionStamp, velocityStamp;
+	private int gen;	// store.gen[slot] when this person was given the slot
+
+	Person(PeopleStore store, float x, float y, int channel, int id) {
+		this.store=store;
+		this.slot=store.alloc(id, channel, x, y);
+		this.gen=store.gen[slot];
 		this.id = id;
-		this.groupid = id;
-		this.groupsize = 1;
-		this.legs=new Leg[2];
+		this.legs=new Leg[PeopleStore.LEGS];
 		for (int i=0;i<legs.length;i++)
-			this.legs[i]=new Leg(origin);
+			this.legs[i]=new Leg(this,i);
 		this.userData=0;
 	}
-	
+
+	// Move this person's state into slot s of to and release its slot
+	// Called when the person leaves a People so anyone still holding the Person sees its last state rather than the slot's next occupant
+	void detach(PeopleStore to, int s) {
+		to.id[s]=id;
+		to.copy(store, slot, s);
+		to.lastSeen[s]=store.lastSeen[slot];
+		to.gen[s]++;
+		store.release(slot);
+		store=to;
+		slot=s;
+		gen=to.gen[s];
+	}
+
+	// True once this person has left and the slot holding their last state has been given to someone else (see People.GHOSTS)
+	// The getters of an expired person read that other person's state, so anything holding on to a removed Person should check this
+	boolean isExpired() {
+		return store.gen[slot]!=gen;
+	}
+
 	// Convert to normalized position - in range [-1,1] for extent of pulsefield
 	PVector getNormalizedPosition() {
-		return Tracker.floorToNormalized(position);
+		return getNormalizedPosition(false);
 	}
 
 	PVector getNormalizedPosition(boolean preserveAspect) {
-		return Tracker.floorToNormalized(position, preserveAspect);
+		return getNormalizedPosition(preserveAspect, new PVector());
 	}
-	
+
+	// Normalized position stored in result, without allocating
+	PVector getNormalizedPosition(PVector result) {
+		return getNormalizedPosition(false, result);
+	}
+
+	PVector getNormalizedPosition(boolean preserveAspect, PVector result) {
+		return Tracker.floorToNormalized(store.x[slot], store.y[slot], preserveAspect, result);
+	}
+
 	void setNormalizedPosition(PVector position) {
-		this.position = Tracker.normalizedToFloor(position);
+		PVector floor=Tracker.normalizedToFloor(position);
+		setPosition(floor.x, floor.y);
+	}
+
+	void setPosition(float x, float y) {
+		store.x[slot]=x;
+		store.y[slot]=y;
+		store.stamp[slot]++;
 	}
 
 	PVector getNormalizedVelocity() {
-		return Tracker.mapVelocity(velocity);
+		return getNormalizedVelocity(new PVector());
+	}
+
+	PVector getNormalizedVelocity(PVector result) {
+		return Tracker.mapVelocity(store.vx[slot], store.vy[slot], result);
+	}
+
+	// Copy tracking state (not userData) from another Person
+	void copyFrom(Person src) {
+		store.copy(src.store, src.slot, slot);
 	}
 
 	int getcolor() {
 		final int colors[] = {0xffffffff, 0xff00ff00, 0xff0000ff, 0xffFFFF00, 0xffFF00FF, 0xff00ffff};
-		
+
 		int col=colors[(id-1)%colors.length];
 		//PApplet.println("Color="+String.format("%x", col));
 		return col;
 	}
 
 	void move(PVector newpos, PVector newvel, int groupid, int groupsize, float elapsed) {
-//		PApplet.println("Set ID "+id+" to pos="+newpos+", vel="+newvel);
-		position=new PVector(newpos.x,newpos.y);
-		velocity=new PVector(newvel.x,newvel.y);
-		this.groupid=groupid;
-		this.groupsize=groupsize;
+		move(newpos.x, newpos.y, newvel.x, newvel.y, groupid, groupsize, elapsed);
+	}
+
+	void move(float x, float y, float vx, float vy, int groupid, int groupsize, float elapsed) {
+//		PApplet.println("Set ID "+id+" to pos="+x+","+y+", vel="+vx+","+vy);
+		store.x[slot]=x;
+		store.y[slot]=y;
+		store.vx[slot]=vx;
+		store.vy[slot]=vy;
+		store.groupid[slot]=groupid;
+		store.groupsize[slot]=groupsize;
+		store.stamp[slot]++;
 	}
-	
+
+	// The returned vector is not updated by later moves; use getX()/getY() to avoid allocating
 	PVector getOriginInMeters() {
+		if (position==null || positionStamp!=store.stamp[slot]) {
+			position=new PVector(store.x[slot], store.y[slot]);
+			positionStamp=store.stamp[slot];
+		}
 		return position;
 	}
-		
+
 	PVector getVelocityInMeters() {
+		if (velocity==null || velocityStamp!=store.stamp[slot]) {
+			velocity=new PVector(store.vx[slot], store.vy[slot]);
+			velocityStamp=store.stamp[slot];
+		}
 		return velocity;
 	}
-	
-	void setVelocity(PVector vel) { velocity=new PVector(vel.x,vel.y); }
-	
+
+	// Feed the current position to the motion filter as a sample taken at time (System.nanoTime(), see LidarClock)
+	void sample(long time) {
+		store.sample(slot*PeopleStore.TRACKS, store.x[slot], store.y[slot], store.vx[slot], store.vy[slot], time);
+	}
+
+	// Time of the last sample accepted by the motion filter, 0 if none
+	long getSampleTime() {
+		return store.ft[slot*PeopleStore.TRACKS];
+	}
+
+	// Position extrapolated along the filtered track to PeopleStore.renderTime, stored in result
+	// Falls back to the last position for a person that has never been sampled
+	PVector getPredictedPosition(PVector result) {
+		int k=slot*PeopleStore.TRACKS;
+		float lead=store.lead(k);
+		if (lead<0)
+			result.set(store.x[slot], store.y[slot]);
+		else
+			result.set(store.fx[k]+store.fvx[k]*lead, store.fy[k]+store.fvy[k]*lead);
+		return result;
+	}
+
+	PVector getPredictedPosition() {
+		return getPredictedPosition(new PVector());
+	}
+
+	PVector getPredictedNormalizedPosition(PVector result) {
+		getPredictedPosition(result);
+		return Tracker.floorToNormalized(result.x, result.y, false, result);
+	}
+
+	float getX() { return store.x[slot]; }
+	float getY() { return store.y[slot]; }
+	float getVX() { return store.vx[slot]; }
+	float getVY() { return store.vy[slot]; }
+
+	void setVelocity(PVector vel) {
+		store.vx[slot]=vel.x;
+		store.vy[slot]=vel.y;
+		store.stamp[slot]++;
+	}
+
+	int getChannel() {
+		return store.channel[slot];
+	}
+	int getGroupID() {
+		return store.groupid[slot];
+	}
+	int getGroupSize() {
+		return store.groupsize[slot];
+	}
+	void setGroup(int groupid, int groupsize) {
+		store.groupid[slot]=groupid;
+		store.groupsize[slot]=groupsize;
+	}
+	// LIDAR frame of the last update (see People.expire())
+	int getLastSeen() {
+		return store.lastSeen[slot];
+	}
+	void setLastSeen(int frame) {
+		store.lastSeen[slot]=frame;
+	}
 	float getLegSeparationInMeters() {
-		return sep;
+		return store.sep[slot];
+	}
+	float getLegDiameterInMeters() {
+		return store.diam[slot];
 	}
 	void setLegSeparation(float sep) {
-		this.sep=sep;
+		store.sep[slot]=sep;
 	}
 	void setLegDiameter(float diam) {
-		this.diam=diam;
+		store.diam[slot]=diam;
 	}
 	Boolean isMoving() {
-		return velocity.mag() > 0.1;
+		float vx=store.vx[slot], vy=store.vy[slot];
+		return vx*vx+vy*vy > 0.1f*0.1f;
 	}
 }
@@ -1,6 +1,5 @@
 package com.pulsefield.tracker;
 import codeanticode.syphon.SyphonServer;
-import oscP5.OscMessage;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
@@ -56,20 +55,6 @@ public class Projector {
 		pos=newpos;
 	}
 
-	public void handleMessage(OscMessage msg) {
-		if (debug>0)
-			PApplet.println("Projector message: "+msg.toString());
-		String pattern=msg.addrPattern();
-		String components[]=pattern.split("/");
-
-		if (components.length==4 && components[3].equals("load")) {
-			loadSettings();
-		} else if (components.length==4 && components[3].equals("save")) {
-			saveSettings();
-		} else 
-			PApplet.println("Unknown projector Message: "+msg.toString());
-	}
-
 	public void saveSettings() {
 		PApplet.println("Projector.saveSettings("+id+")");
 		Config.setVec("proj"+id, "pos", pos);
@@ -1,10 +1,10 @@
 package com.pulsefield.tracker;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import oscP5.OscMessage;
+import oscP5.OscRouter;
 import processing.core.PApplet;
 
 class MidiProgram {
@@ -34,14 +34,14 @@ class NoteOff extends TimerTask {
 abstract public class Synth {
 
 	protected Timer timer;
-	protected HashMap<Integer,HashMap<Integer,NoteOff>> playing;
+	protected IntObjectMap<IntObjectMap<NoteOff>> playing;   // Pending note-offs by track and pitch; also touched by the timer thread
 	protected HashMap<Integer,MidiProgram> channelmap;
 
 	public Synth() {
 		super();
 		channelmap=new HashMap<Integer,MidiProgram>();
 		timer = new Timer();
-		playing=new HashMap<Integer,HashMap<Integer,NoteOff>>();
+		playing=new IntObjectMap<IntObjectMap<NoteOff>>();
 	}
 
 	abstract public void play(int id, int pitch, int channel);
@@ -61,16 +61,16 @@ abstract public class Synth {
 		playOnTrack(track,pitch,velocity,duration);
 	}
 	
-	public void playOnTrack(int track, int pitch, int velocity, int duration) {
+	synchronized public void playOnTrack(int track, int pitch, int velocity, int duration) {
 		long delay=duration*1000/480/4;
-		if (playing.get(track)==null)
-			playing.put(track, new HashMap<Integer,NoteOff>());
-		if (playing.get(track).get(pitch)!=null)
-			playing.get(track).get(pitch).cancel();
-		// Check again in case there was a race
-		if (playing.get(track).get(pitch)!=null) {
+		IntObjectMap<NoteOff> notes=playing.get(track);
+		if (notes==null) {
+			notes=new IntObjectMap<NoteOff>();
+			playing.put(track, notes);
+		}
+		if (notes.get(pitch)!=null) {
 			//System.out.println("Already playing note "+pitch+" on channel "+channel+", removing pending note-off");
-			playing.get(track).get(pitch).cancel();
+			notes.get(pitch).cancel();
 		} else {
 			play(pitch,velocity,track);
 		}
@@ -79,42 +79,42 @@ abstract public class Synth {
 			endnote(track,pitch,64);
 		else {
 			NoteOff noteOff=new NoteOff(this, pitch,64,track);
-			playing.get(track).put(pitch, noteOff);
+			notes.put(pitch, noteOff);
 			timer.schedule(noteOff, delay);
 		}
 		//System.out.println("Sent note "+pitch+", vel="+velocity+" , duration="+delay+"ms to track "+track+" for channel "+channel);
 	}
 
 	// Stop all currently playing notes
-	public void endallnotes() {
-		for (Map.Entry<Integer,HashMap<Integer,NoteOff>> t: playing.entrySet()) {
-			for (Map.Entry<Integer, NoteOff> n: t.getValue().entrySet()) {
-				PApplet.println("Endallnotes: track "+t.getKey()+", pitch "+n.getKey());
-				play(n.getKey(),0,t.getKey());
+	synchronized public void endallnotes() {
+		for (int t=0;t<playing.size();t++) {
+			IntObjectMap<NoteOff> notes=playing.valueAt(t);
+			for (int n=0;n<notes.size();n++) {
+				PApplet.println("Endallnotes: track "+playing.keyAt(t)+", pitch "+notes.keyAt(n));
+				play(notes.keyAt(n),0,playing.keyAt(t));
 			}
 		}
 	}
 	
-	public void endnote(int track, int pitch, int velocity) {
-		if (playing.get(track).get(pitch)==null)
+	synchronized public void endnote(int track, int pitch, int velocity) {
+		IntObjectMap<NoteOff> notes=playing.get(track);
+		if (notes==null || notes.get(pitch)==null)
 			System.out.println("Received endnote for note that isn't playing; channel="+track+", pitch="+pitch);
 		play(pitch,0,track);
-		playing.get(track).remove(pitch);
+		if (notes!=null)
+			notes.remove(pitch);
 		//System.out.println("Sent note off "+pitch+", vel="+velocity+" , to channel "+channel+", now have "+playing.get(channel).size()+" notes playing on this channel");
 	}
 
-	public boolean handleMessage(OscMessage msg) {
-		//PApplet.println("Synth message: "+msg.toString());
-		String pattern=msg.addrPattern();
-		String components[]=pattern.split("/");
-		if (components.length==3 && components[1].equals("midi") && components[2].equals("pgm")) {
-			int channel=msg.get(0).intValue();
-			int instrument=msg.get(1).intValue();
-			String pgmname=msg.get(2).stringValue();
-			channelmap.put(channel,new MidiProgram(instrument,pgmname));
-			return true;
-		} 
-		return false;
+	public void addRoutes(OscRouter router) {
+		router.add("/midi/pgm", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) {
+				int channel=msg.get(0).intValue();
+				int instrument=msg.get(1).intValue();
+				String pgmname=msg.get(2).stringValue();
+				channelmap.put(channel,new MidiProgram(instrument,pgmname));
+			}
+		});
 	}
 
 	public MidiProgram getMidiProgam(int ch) {
@@ -2,6 +2,7 @@ package com.pulsefield.tracker;
 import netP5.NetAddress;
 import oscP5.OscMessage;
 import oscP5.OscP5;
+import oscP5.OscWriter;
 
 
 
@@ -20,6 +21,10 @@ public class TouchOSC {
 		oscP5.send(msg,addr);
 	}
 
+	public void sendMessage(OscWriter w) {
+		oscP5.send(w,addr);
+	}
+
 	public static TouchOSC getInstance() {
 		return theTouchOSC;
 	}
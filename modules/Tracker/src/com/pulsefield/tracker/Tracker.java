@@ -6,9 +6,15 @@ import java.util.Map;
 
 import codeanticode.syphon.SyphonServer;
 import netP5.NetAddress;
+import netP5.TcpChannelServer;
 import oscP5.OscMessage;
 import oscP5.OscP5;
 import oscP5.OscProperties;
+import oscP5.OscRouter;
+import oscP5.OscScheduler;
+import oscP5.OscSender;
+import oscP5.OscStats;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PMatrix2D;
@@ -49,7 +55,13 @@ public class Tracker extends PApplet {
 	
 	int currentvis=-1;
 	static NetAddress TO, OF, MPO, AL, MAX, CK, VD;
+	static NetAddress MC;   // Multicast group for /pf/* if configured, else null
+	static Destinations destinations;
 	People people, mousePeople;
+	Person mouseNear[]=new Person[10];   // Neighbor query results for sendMouseOSC() (mouse IDs are 90-99)
+	People incoming;   // Tracking state being assembled from the ingest queue; published to people at each /pf/frame boundary
+	int lastFrameTick=-1000;   // Tick at which the last /pf/frame was drained
+	static final int UNFRAMEDTICKS=10;   // Publish every draw if no /pf/frame seen for this many ticks
 	Ableton ableton;
 	boolean useMAX;
 	Synth synth;
@@ -63,6 +75,15 @@ public class Tracker extends PApplet {
 	Boolean prevMousePressed;
 	PVector mouseVel;  // Average mouse velocity
 	int lastFrameReceived=3;
+	IngestQueue ingest=new IngestQueue(4096);   // Tracking events from OSC thread, drained in draw()
+	long reportedOverflows=0;
+	FrameStats frameStats=new FrameStats();   // /pf/frame gaps and lost updates
+	int staleFrames=Integer.getInteger("pf.staleframes",50);   // Expire people not updated for this many frames
+	int statsPeriod=Integer.getInteger("pf.statsperiod",60);   // Seconds between OSC traffic log lines, 0 to disable
+	LidarClock lidarClock=new LidarClock();   // When each LIDAR frame was scanned, for the motion filter
+	long predictLead=(long)(Float.parseFloat(System.getProperty("pf.predictlead","0"))*1e6f);   // How far (ms) past draw() to predict positions, to cover display latency
+	int lastStatsReport=0;   // millis() of last traffic log line
+	long reportedDrops=0;	// OSC sender drops already reported
 	Fourier fourier;
 	SyphonServer server=null;
 	String renderer=P2D;
@@ -74,8 +95,9 @@ public class Tracker extends PApplet {
 	static PVector alignCorners[]=new PVector[0];
 	static ProjCursor cursors[]=null;
 	Map<String,Boolean> unhandled;
-	PVector[] lidar = new PVector[381];
-	PVector[] lidarbg = new PVector[381];
+	OscRouter router=new OscRouter();   // Dispatch for unplugged OSC messages, set up in addRoutes()
+	volatile LidarScan lidar = new LidarScan(381);   // Replaced when the number of scan points changes
+	CrowdSim crowd;   // Synthetic people instead of (or as well as) the FrontEnd, see startCrowd()
 	PGraphicsOpenGL mask[];
 	int pselect[];
 	boolean drawBounds=false;   // True to overlay projector bounds
@@ -119,6 +141,11 @@ public class Tracker extends PApplet {
 			System.err.println("PFROOT currently set to "+pfroot+".  Is that the root of the Pulsefield repository installation?");
 			System.exit(1);
 		}
+		if (config.getHost("VD")==null) {
+			// VD is our own entry: the port we listen on and send mouse people to
+			System.err.println("No VD entry in URL config "+configFile);
+			System.exit(1);
+		}
 
 		frameRate(30);
 		mouseID=90;
@@ -126,29 +153,60 @@ public class Tracker extends PApplet {
 		
 		frame.setBackground(new Color(0,0,0));
 		people=new People();
+		incoming=new People();
 		mousePeople=new People();
 		
 		// OSC Setup (but do plugs later so everything is setup for them)
 		OscProperties oscProps = new OscProperties();
 		oscProps.setDatagramSize(10000);  // Increase datagram size to handle incoming blobs
+		oscProps.setNIO(true);  // Receive into pooled buffers instead of a new byte[] per packet
 		oscProps.setListeningPort(config.getPort("VD"));
 		oscP5 = new OscP5(this, oscProps);
-
-		TO = new NetAddress(config.getHost("TO"), config.getPort("TO"));
-		OF = new NetAddress(config.getHost("OF"), config.getPort("OF"));
-		MPO = new NetAddress(config.getHost("MPO"), config.getPort("MPO"));
-		AL = new NetAddress(config.getHost("AL"), config.getPort("AL"));
-		CK = new NetAddress(config.getHost("CK"), config.getPort("CK"));
-		VD = new NetAddress(config.getHost("VD"), config.getPort("VD"));
+		oscP5.stats().setEnabled(true);   // Per-address counts and timings, see reportStats() and /stats
+		// Drop streams nothing here consumes before they are parsed; a visualizer that wants one calls oscP5.filter().pass(pattern), or send /osc/pass
+		for (String pattern: System.getProperty("pf.drop","/pf/geo,/pf/group,/vis/*").split(","))
+			if (pattern.length()>0)
+				oscP5.filter().drop(pattern);
+		// Send from a separate thread so slow hosts don't stall draw(); only the latest queued value of state messages is sent
+		OscSender sender=oscP5.startSender(1024);
+		sender.coalesce("/video/navier/", 0);
+		sender.coalesce("/live/device", 3);   // track, device, parameter
+		sender.coalesce("/ui/laser/", 0);
+		// Hold bundles timetagged ahead (e.g. beat-synced cues from ChucK or Ableton) until they are due; -Dpf.scheduletick=0 dispatches them on arrival
+		float scheduleTick=Float.parseFloat(System.getProperty("pf.scheduletick","1"));
+		if (scheduleTick>0)
+			oscP5.startScheduler(scheduleTick);
+		// Run with -Dpf.record=<file> to log all incoming OSC, -Dpf.replay=<file> [-Dpf.replayspeed=N, 0 for max] to play a log back
+		if (System.getProperty("pf.record") != null)
+			oscP5.startRecording(System.getProperty("pf.record"));
+
+		destinations = new Destinations(config);
+		TO = destinations.get("TO");
+		OF = destinations.get("OF");
+		MPO = destinations.get("MPO");
+		AL = destinations.get("AL");
+		CK = destinations.get("CK");
+		VD = destinations.get("VD");
 		PApplet.println("Sending to mayself at "+VD.address()+":"+VD.port());
 		PApplet.println("Sending chuck commands to "+config.getHost("CK")+":"+config.getPort("CK"));
 		PApplet.println("AL at "+config.getHost("AL")+":"+config.getPort("AL"));
-		MAX = new NetAddress(config.getHost("MAX"), config.getPort("MAX"));
+		MAX = destinations.get("MAX");
+		MC = destinations.get("MC");
+		if (MC != null) {
+			// Receive the tracking stream from the group (the FrontEnd then stops sending it to VD directly), and send mouse people to it
+			MC.setTimeToLive(Integer.getInteger("pf.multicastttl",1));
+			oscP5.joinGroup(MC.address(), MC.port());
+			PApplet.println("Joined multicast group "+MC.address()+":"+MC.port());
+		}
+		// Run with -Dpf.tcpport=<port> to also accept SLIP framed OSC over TCP, for clients that can't afford to lose messages
+		int tcpPort=Integer.getInteger("pf.tcpport",0);
+		if (tcpPort > 0)
+			oscP5.listenTcp(tcpPort, TcpChannelServer.FRAMING_SLIP);
 		touchOSC = new TouchOSC(oscP5, TO);
 		oFOSC = new OFOSC(oscP5,OF);
 		ableton = new Ableton(oscP5, AL);
 
-		new Laser(oscP5, new NetAddress(config.getHost("LASER"), config.getPort("LASER")));
+		new Laser(oscP5, destinations.get("LASER"));
 		synth = new Max(this,oscP5, MAX);
 
 		synth.play(0,64,100,100,1);
@@ -165,6 +223,7 @@ public class Tracker extends PApplet {
 		oscP5.plug(this, "pfframe", "/pf/frame");
 		oscP5.plug(this, "pfupdate", "/pf/update");
 		oscP5.plug(this, "pfbackground","/pf/background");
+		oscP5.plug(this, "pfbackgroundblob","/pf/background/blob");
 		oscP5.plug(this, "pfaligncorner","/pf/aligncorner");
 		oscP5.plug(this, "pfgeo","/pf/geo");
 		oscP5.plug(this, "pfgroup", "/pf/group");
@@ -419,49 +478,41 @@ public class Tracker extends PApplet {
 		return ""+(5-row)+"/"+(col+1);
 	}
 	
-	public void vsetapp(OscMessage msg) {
-		for (int i=0;i<vis.length;i++) {
-			if (msg.checkAddrPattern("/video/app/buttons/"+vispos(i)) ) {
-				setapp(i);
-				return;
-			}		
-		}
-		println("Bad vsetup message: "+msg);
+	public void vsetapp(int row, int col) {
+		// Inverse of vispos()
+		int i=(5-row)*5+col-1;
+		if (col>=1 && col<=5 && i>=0 && i<vis.length)
+			setapp(i);
+		else
+			println("Bad vsetapp button: "+row+"/"+col);
 	}
 
 	public static void sendOSC(String dest, OscMessage msg) {
-		if (dest.equals("AL"))
-			oscP5.send(msg,AL);
-		else if (dest.equals("TO"))
-			oscP5.send(msg,TO);
-		else if (dest.equals("MPO"))
-			oscP5.send(msg,MPO);
-		else if (dest.equals("CK"))
-			oscP5.send(msg,CK);
-		else if (dest.equals("Laser"))
-			Laser.getInstance().sendMessage(msg);
-		else if (dest.equals("VD"))
-			oscP5.send(msg,VD);
+		NetAddress addr=destinations.get(dest);
+		if (addr!=null)
+			oscP5.send(msg,addr);
+		else
+			System.err.println("sendOSC: Bad destination: "+dest);
+	}
+
+	public static void sendOSC(String dest, OscWriter w) {
+		NetAddress addr=destinations.get(dest);
+		if (addr!=null)
+			oscP5.send(w,addr);
 		else
 			System.err.println("sendOSC: Bad destination: "+dest);
 	}
 
 	public static void sendOSC(String dest, String path, int data) {
-		OscMessage msg=new OscMessage(path);
-		msg.add(data);
-		sendOSC(dest,msg);
+		sendOSC(dest,OscWriter.local().begin(path).add(data));
 	}
 
 	public static void sendOSC(String dest, String path, float data) {
-		OscMessage msg=new OscMessage(path);
-		msg.add(data);
-		sendOSC(dest,msg);
+		sendOSC(dest,OscWriter.local().begin(path).add(data));
 	}
 	
 	public static void sendOSC(String dest, String path, String data) {
-		OscMessage msg=new OscMessage(path);
-		msg.add(data);
-		sendOSC(dest,msg);
+		sendOSC(dest,OscWriter.local().begin(path).add(data));
 	}
 
 	public int getAppIndex(String name) {
@@ -511,10 +562,18 @@ public class Tracker extends PApplet {
 		if (starting) {
 			// Setup visualizers at first draw
 			addVisualizers();
+			addRoutes();
 			GUI.start();
 			PApplet.println("Finished initialization");
 			starting = false;
+			oscP5.bundler().setEnabled(true);   // From here on outgoing OSC is bundled per destination and sent at end of draw()
+			if (System.getProperty("pf.replay") != null)
+				oscP5.replay(System.getProperty("pf.replay"), Float.parseFloat(System.getProperty("pf.replayspeed","1")));
+			if (System.getProperty("pf.crowd") != null)
+				startCrowd();
 		}
+		drainIngest();
+		PeopleStore.renderTime=System.nanoTime()+predictLead;
 		tick++;
 		avgFrameRate=avgFrameRate*(1f-1f/20f)+frameRate/20f;
 		if (GUI.theGUI != null)
@@ -552,10 +611,9 @@ public class Tracker extends PApplet {
 			legs[1].move(PVector.add(mousePos,new PVector(0.0f,0.15f)), mouseVel);
 			prevMousePos=mousePos;
 			// Additional settings for sending OSC messages
-			p.diam=0.15f;
-			p.sep=0.3f;
-			p.groupid=p.id;
-			p.groupsize=1;
+			p.setLegDiameter(0.15f);
+			p.setLegSeparation(0.3f);
+			p.setGroup(p.id,1);
 //			PApplet.println("Moved mouse ID "+mouseID+" to "+mousePos+" with velocity "+p.getVelocityInMeters());
 		} else {
 			mouseVel.set(0f,0f);
@@ -672,6 +730,9 @@ public class Tracker extends PApplet {
 			PApplet.println("exception in draw(): "+e.getMessage());
 			e.printStackTrace();
 		}
+		oscP5.flushOutgoing();
+		reportSender();
+		reportStats();
 	}
 
 	private void buildMasks(PGraphicsOpenGL canvas) {
@@ -705,7 +766,8 @@ public class Tracker extends PApplet {
 			mask[i].fill(127);  // Don't draw here, but not as insistent as being out of bounds
 			float fardist=10f;  // Far distance of shadow
 			float shadowOffset=0.1f;  // Distance beyond leg centers to begin shadow
-			for (Person ps: people.pmap.values()) {  
+			for (int j=0;j<people.pmap.size();j++) {
+				Person ps=people.pmap.valueAt(j);
 				PVector l1=ps.legs[0].getOriginInMeters();
 				PVector l2=ps.legs[1].getOriginInMeters();
 				PVector pos=PVector.mult(PVector.add(l1, l2), 0.5f);
@@ -793,14 +855,15 @@ public class Tracker extends PApplet {
 		PApplet.println("Mouse key: "+key);
 		if (key=='C' || key=='c') {
 			mouseID=90;
-			mousePeople.pmap.clear();
+			mousePeople.clear();
 			clearMice();
 		} else if (key>='1' && key<='9')
 			mouseID=90+key-'1';
 		else if (key=='x'||key=='X') {
 			// Current ID exits
 			PApplet.println("Mouse ID "+mouseID+" exitting.");
-			mousePeople.pmap.remove(mouseID);
+			if (mousePeople.get(mouseID)!=null)
+				mousePeople.exit(mouseID);
 			clearMice();
 		} else if (key=='a' || key=='A') {
 			// Advance to next app
@@ -816,59 +879,126 @@ public class Tracker extends PApplet {
 	}
 
 	/* incoming osc message are forwarded to the oscEvent method. */
-	synchronized public void oscEvent(OscMessage theOscMessage) {
+	public void oscEvent(OscMessage theOscMessage) {
+		// Plugged messages are handled elsewhere; return before taking the lock so tracking data never waits on draw()
+		if (starting || theOscMessage.isPlugged())
+			return;
+		synchronized (this) {
+			handleMessage(theOscMessage);
+		}
+	}
+
+	private void handleMessage(OscMessage theOscMessage) {
 		try {
 		//PApplet.println("Got message:"+theOscMessage.toString());
-		if (starting)
-			return;
-		if (theOscMessage.isPlugged() == true) 
-			; // Handled elsewhere
-		else if (theOscMessage.addrPattern().startsWith("/video/app/buttons") == true)
-			vsetapp(theOscMessage);
-		else if (theOscMessage.addrPattern().startsWith("/grid")) {
-			visAbleton.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/live") || theOscMessage.addrPattern().startsWith("/remix/error")) {
-			liveTick=tick;
-			ableton.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/proj")) {
-			String pattern=theOscMessage.addrPattern();
-			String components[]=pattern.split("/");
-			PApplet.println("num comp="+components.length+", comp2="+components[2]);
-			if (components.length>=3) {
-				int pnum=Integer.parseInt(components[2]);
-				if (pnum>=1 && pnum<=projectors.length)
-					projectors[pnum-1].handleMessage(theOscMessage);
-				else
-					PApplet.println("Bad projector number: "+pnum);
-			}
-		} else if (theOscMessage.addrPattern().startsWith("/video/navierOF")) {
-			visNavierOF.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/video/navier")) {
-			visNavier.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/video/ddr")) {
-			visDDR.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/midi/pgm")) {
-			synth.handleMessage(theOscMessage);
-		} else if (theOscMessage.addrPattern().startsWith("/pf/set")) {
-			// PApplet.println("Unhandled set message: "+theOscMessage.addrPattern());
-		} else if (theOscMessage.addrPattern().startsWith("/vis/")) {
-			// PApplet.println("Unhandled vis message: "+theOscMessage.addrPattern());
-		} else if (!unhandled.containsKey(theOscMessage.addrPattern())) {
+		if (!router.route(theOscMessage) && !unhandled.containsKey(theOscMessage.addrPattern())) {
 			PApplet.print("Received an unhandled OSC message: ");
 			theOscMessage.print();
 			unhandled.put(theOscMessage.addrPattern(),true);		
-		}  /* print the address pattern and the typetag of the received OscMessage */
+		}
 		} catch (Exception e) {
 			PApplet.println("oscEvent exception: "+e.getMessage()+"("+e.toString()+")");
 			e.printStackTrace();
 		}
 	}
 
+	// Simulated crowd, set up from system properties:
+	//   -Dpf.crowd=<npeople> [-Dpf.crowdhost=host:port to send over UDP, or to a multicast group, instead of in-process]
+	//   [-Dpf.crowdarrival=<people/sec>] [-Dpf.crowddeparture=<fraction/sec>] [-Dpf.crowdseed=<n>]
+	private void startCrowd() {
+		long seed=Long.parseLong(System.getProperty("pf.crowdseed","1"));
+		String host=System.getProperty("pf.crowdhost");
+		try {
+			if (host != null) {
+				String hp[]=host.split(":");
+				crowd=new CrowdSim(hp[0], Integer.parseInt(hp[1]), seed);
+				crowd.setTimeToLive(Integer.getInteger("pf.multicastttl",1));
+			} else
+				crowd=new CrowdSim(oscP5, config.getPort("VD"), seed);
+		} catch (IOException e) {
+			PApplet.println("Unable to start crowd simulation to "+host+": "+e);
+			return;
+		}
+		crowd.setMaxPeople(Integer.parseInt(System.getProperty("pf.crowd")));
+		crowd.arrivalRate=Float.parseFloat(System.getProperty("pf.crowdarrival","0"));
+		crowd.departureRate=Float.parseFloat(System.getProperty("pf.crowddeparture","0"));
+		crowd.start();
+	}
+
+	// Routes for messages that are not plugged; visualizers must exist before this is called
+	private void addRoutes() {
+		router.add("/video/app/buttons/{row}/{col}", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { vsetapp(c[0],c[1]); }
+		});
+		router.addPrefix("/grid", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { visAbleton.handleMessage(msg); }
+		});
+		OscRouter.Handler live=new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) {
+				liveTick=tick;
+				ableton.handleMessage(msg);
+			}
+		};
+		router.addPrefix("/live", live);
+		router.addPrefix("/remix/error", live);
+		router.add("/proj/{n}/load", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { Projector p=getProjector(c[0]); if (p!=null) p.loadSettings(); }
+		});
+		router.add("/proj/{n}/save", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { Projector p=getProjector(c[0]); if (p!=null) p.saveSettings(); }
+		});
+		router.addPrefix("/proj", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { PApplet.println("Unknown projector Message: "+msg.toString()); }
+		});
+		router.addPrefix("/video/navierOF", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { visNavierOF.handleMessage(msg); }
+		});
+		visNavier.addRoutes(router);
+		router.addPrefix("/video/ddr", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { visDDR.handleMessage(msg); }
+		});
+		synth.addRoutes(router);
+		router.add("/video/destinations/reload", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { destinations.reload(); }
+		});
+		router.add("/stats", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { replyStats(msg); }
+		});
+		router.add("/video/crowd/npeople", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { if (crowd!=null) crowd.setMaxPeople((int)msg.get(0).floatValue()); }
+		});
+		OscRouter.Handler ignore=new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { }
+		};
+		router.addPrefix("/pf/set", ignore);
+		router.addPrefix("/vis", ignore);
+		router.add("/osc/drop", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { oscP5.filter().drop(msg.get(0).stringValue()); }
+		});
+		router.add("/osc/pass", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { oscP5.filter().pass(msg.get(0).stringValue()); }
+		});
+		PApplet.println("Added "+router.size()+" OSC routes");
+	}
+
+	private Projector getProjector(int pnum) {
+		if (pnum>=1 && pnum<=projectors.length)
+			return projectors[pnum-1];
+		PApplet.println("Bad projector number: "+pnum);
+		return null;
+	}
+
 	public static PVector mapVelocity(PVector velInMetersPerSecond) {
 		PVector sz=getFloorSize();
 		return new PVector(-velInMetersPerSecond.x*2f/sz.x,velInMetersPerSecond.y*2f/sz.y);
 	}
 
+	// As above, but stored in result without allocating
+	public static PVector mapVelocity(float vx, float vy, PVector result) {
+		result.set(-vx*2f/(maxx-minx),vy*2f/(maxy-miny));
+		return result;
+	}
+
 	public static PVector floorToNormalized(float x, float y) {
 		return floorToNormalized(new PVector(x,y),false);
 	}
@@ -891,6 +1021,18 @@ public class Tracker extends PApplet {
 	public static PVector floorToNormalized(PVector raw) {
 		return floorToNormalized(raw,false);
 	}
+
+	// As above, but stored in result without allocating
+	public static PVector floorToNormalized(float x, float y, boolean preserveAspect, PVector result) {
+		float sx=maxx-minx, sy=maxy-miny;
+		x-=(minx+maxx)/2;
+		y-=(miny+maxy)/2;
+		if (preserveAspect)
+			result.set(x*2f/Math.min(sx,sy),y*2f/Math.min(sx,sy));
+		else
+			result.set(x*2f/sx,y*2f/sy);
+		return result;
+	}
 	
 	/* Not currently used... TODO
 	// Convert from floor coordinate (in meters) to window position in given window size
@@ -981,15 +1123,158 @@ public class Tracker extends PApplet {
 		PApplet.println("PF started");
 	}
 
-	synchronized public void pfstopped() {
+	public void pfstopped() {
 		PApplet.println("PF stopped");
-		people.clear();
+		if (ingest.claim(IngestQueue.STOPPED)!=null)
+			ingest.publish();
 	}
 
 	void pfframe(int frame) {
 		//PApplet.println("Got frame "+frame);
+		IngestQueue.Event e=ingest.claim(IngestQueue.FRAME);
+		if (e!=null) {
+			e.frame=frame;
+			ingest.publish();
+		}
+	}
+
+	// Apply all tracking events received since the last draw to incoming, publishing complete frames to people
+	// Only called from draw() so People is only touched by the render thread
+	void drainIngest() {
+		IngestQueue.Event e;
+		long now=System.nanoTime();
+		OscStats stats=oscP5.stats();
+		while ((e=ingest.peek())!=null) {
+			switch (e.type) {
+			case IngestQueue.UPDATE: {
+				Person p=incoming.getOrCreate(e.id,e.channel);
+				p.move(e.x, e.y, e.vx, e.vy, e.groupid, e.groupsize, e.elapsed);
+				// Time by the scan when the update carries it, so network jitter isn't taken for motion; mouse people have none
+				lidarClock.elapsed(e.frame, e.elapsed);
+				p.sample(e.elapsed>0?lidarClock.time(e.frame, e.received):e.received);
+				p.setLastSeen(e.frame);
+				stats.latency(now-e.received);   // How stale the position is when drawn
+				break;
+			}
+			case IngestQueue.BODY: {
+				Person p=incoming.get(e.id);
+				if (p!=null) {
+					p.setLegSeparation(e.sep);
+					p.setLegDiameter(e.diam);
+				}
+				break;
+			}
+			case IngestQueue.LEG: {
+				Person p=incoming.get(e.id);
+				if (p!=null && e.leg>=0 && e.leg<p.legs.length) {
+					p.legs[e.leg].move(e.x, e.y, e.vx, e.vy);
+					// /pf/leg has no elapsed time; it follows its person's /pf/update of the same frame, so share that time
+					if (p.getLastSeen()==e.frame && p.getSampleTime()!=0)
+						p.legs[e.leg].sample(p.getSampleTime());
+					else
+						p.legs[e.leg].sample(lidarClock.time(e.frame, e.received));
+				}
+				break;
+			}
+			case IngestQueue.ENTRY:
+				add(e.id,e.channel);
+				incoming.get(e.id).setLastSeen(e.frame);
+				PApplet.println("entry: sampnum="+e.frame+", elapsed="+e.elapsed+", id="+e.id+", channel="+e.channel+", color="+incoming.get(e.id).getcolor());
+				break;
+			case IngestQueue.EXIT:
+				incoming.exit(e.id);
+				if (incoming.pmap.size()==0)
+					if (autocycle)
+						cycle();
+//					else if (currentvis != getAppIndex("Bowie"))
+//						setapp(getAppIndex("Navier"));
+				break;
+			case IngestQueue.FRAME:
+				// /pf/frame is sent ahead of each frame's data, so everything received so far completes the previous frame
+				if (frameStats.frames()>0)
+					incoming.expire(lastFrameReceived, staleFrames, frameStats);
+				people.publish(incoming, lastFrameReceived);
+				if (frameStats.frame(e.frame)>=0 || frameStats.lastFrame()==e.frame)
+					lastFrameReceived=e.frame;   // Not an out-of-order /pf/frame
+				lastFrameTick=tick;
+				break;
+			case IngestQueue.SETNPEOPLE:
+				setnpeople(e.count);
+				break;
+			case IngestQueue.STOPPED:
+				incoming.clear();
+				people.publish(incoming, lastFrameReceived);
+				break;
+			}
+			ingest.release();
+		}
+		if (tick-lastFrameTick > UNFRAMEDTICKS)
+			// Not receiving /pf/frame (e.g. only mouse people), so there are no boundaries to wait for
+			people.publish(incoming, lastFrameReceived);
+		long overflows=ingest.overflows();
+		if (overflows!=reportedOverflows) {
+			PApplet.println("Ingest queue overflowed: dropped "+(overflows-reportedOverflows)+" events (total "+overflows+"), max depth "+ingest.maxDepth()+"/"+ingest.capacity());
+			reportedOverflows=overflows;
+			ingest.resetMaxDepth();
+		}
+		if (frameStats.update() && frameStats.lostPerSecond()>0)
+			PApplet.println("Tracking: "+frameStats);
+	}
 
-		lastFrameReceived=frame;
+	void reportSender() {
+		OscSender sender=oscP5.sender();
+		long drops=sender.drops();
+		if (drops!=reportedDrops) {
+			PApplet.println("OSC send queue full: dropped "+(drops-reportedDrops)+" messages; "+sender);
+			reportedDrops=drops;
+			sender.resetStats();
+		}
+	}
+
+	void reportStats() {
+		if (statsPeriod<=0 || millis()-lastStatsReport < statsPeriod*1000)
+			return;
+		OscStats stats=oscP5.stats();
+		stats.update();
+		PApplet.println("OSC: "+stats.summary(5));
+		if (oscP5.filter().drops()>0)
+			PApplet.println(oscP5.filter());
+		OscScheduler scheduler=oscP5.scheduler();
+		if (scheduler!=null && scheduler.early()+scheduler.late()>0)
+			PApplet.println(scheduler);
+		lastStatsReport=millis();
+	}
+
+	// Reply to a /stats query with one /stats/address per address pattern, busiest first, then /stats/latency
+	// Replies go to the sender, over TCP if it asked through the -Dpf.tcpport listener, or to the UDP port given as the first argument
+	// Rates and latency cover the time since the last reportStats() line, which this leaves undisturbed
+	void replyStats(OscMessage msg) {
+		int port=msg.port();
+		boolean tcp=true;
+		if (msg.typetag().length()>0 && msg.typetag().charAt(0)=='i') {
+			port=msg.get(0).intValue();
+			tcp=false;
+		}
+		NetAddress dest=new NetAddress(msg.netAddress().inetaddress(),port);
+		tcp=tcp && oscP5.isTcpClient(dest);
+		OscStats stats=oscP5.stats();
+		OscWriter w=OscWriter.local();
+		for (OscStats.Entry s: stats.snapshot()) {
+			w.begin("/stats/address").add(s.address).add((int)s.messages).add(s.rate).add((int)s.bytes);
+			w.add((float)(s.parse.mean()/1e3)).add(s.parse.percentile(0.99)/1e3f);   // us
+			w.add((float)(s.dispatch.mean()/1e3)).add(s.dispatch.percentile(0.99)/1e3f);
+			reply(w,dest,tcp);
+		}
+		OscStats.Histogram lat=stats.latency();
+		w.begin("/stats/latency").add((int)lat.count()).add((float)(lat.mean()/1e6)).add(lat.percentile(0.5)/1e6f).add(lat.percentile(0.99)/1e6f).add(lat.max()/1e6f);   // ms
+		reply(w,dest,tcp);
+	}
+
+	private void reply(OscWriter w, NetAddress dest, boolean tcp) {
+		if (tcp)
+			oscP5.sendTcp(w,dest);   // Dropped if the client's queue is full, like any other TCP send
+		else
+			oscP5.send(w,dest);
 	}
 
 	void updateTO(boolean ledOn) {
@@ -1001,100 +1286,108 @@ public class Tracker extends PApplet {
 	}
 	
 	synchronized void add(int id, int channel) {
-		people.add(id, channel);
+		incoming.add(id, channel);
 	}
 
 	// Send fake /pf/* messages for mouse movement
 	void sendMouseOSC() {
 		int frame=lastFrameReceived;
 		float elapsed=0.0f;
-		for (int id: mousePeople.pmap.keySet()) {
-			Person p=mousePeople.get(id);
+		mousePeople.reindex();
+		for (int k=0;k<mousePeople.pmap.size();k++) {
+			int id=mousePeople.pmap.keyAt(k);
+			Person p=mousePeople.pmap.valueAt(k);
 //			PApplet.println("Sending data for mouse person "+p.id);
 			// Do some rudimentary grouping
-			p.groupid=p.id;
-			p.groupsize=1;
-			for (int id2: mousePeople.pmap.keySet()) {
+			int groupid=p.id, groupsize=1;
+			int nnear=mousePeople.index.withinRadius(p.getX(), p.getY(), 0.5f, mouseNear);
+			for (int j=0;j<nnear && j<mouseNear.length;j++) {
+				int id2=mouseNear[j].id;
 				if (id2!=id) {
-					Person p2=mousePeople.get(id2);
-					float dist=PVector.dist(p.getOriginInMeters(),p2.getOriginInMeters());
-					if (dist<0.5f) {
-						p.groupid=Math.min(id,id2);
-						p.groupsize++;
-//						PApplet.println("Mouse "+id+" and "+id2+" grouped with distance "+dist);
-					}
+					groupid=Math.min(groupid,id2);
+					groupsize++;
+//					PApplet.println("Mouse "+id+" and "+id2+" grouped");
 				}
 			}
-			OscMessage msg;
+			p.setGroup(groupid,groupsize);
+			OscWriter w=OscWriter.local();
 			if (genFrameMsgs) {
-				msg=new OscMessage("/pf/frame");
-				msg.add(frame);
-				Laser.getInstance().sendMessage(msg); sendOSC("VD",msg);
+				w.begin("/pf/frame").add(frame);
+				sendPF(w);
 			}
-			msg=new OscMessage("/pf/update");
-			msg.add(frame);
-			msg.add(elapsed); // Elapsed time
-			msg.add(p.id);
-			msg.add(p.getOriginInMeters().x);
-			msg.add(p.getOriginInMeters().y);
-			msg.add(p.getVelocityInMeters().x);
-			msg.add(p.getVelocityInMeters().y);
-			msg.add(0.0f);  // Major axis
-			msg.add(0.0f);  // Minor axis
-			msg.add(p.groupid); // Groupd ID
-			msg.add(p.groupsize);   // Group size
-			msg.add(p.channel);   // channel
-			sendOSC("Laser",msg); sendOSC("VD",msg);
-
-			msg=new OscMessage("/pf/body");
-			msg.add(frame);
-			msg.add(p.id);
-			msg.add(p.getOriginInMeters().x);
-			msg.add(p.getOriginInMeters().y);
-			msg.add(0.0f);  // ex
-			msg.add(0.0f);  // ey
-			msg.add(p.getVelocityInMeters().mag());  // speed
-			msg.add(0.0f);  // espeed
-			msg.add((float)(p.getVelocityInMeters().heading()*180/Math.PI-90));  // heading		
-			msg.add(0.0f);  // eheading
-			msg.add(0.0f);  // Facing
-			msg.add(0.0f);  // Efacing
-			msg.add(p.diam); // Diameter
-			msg.add(0.0f);   // Sigma(diameter)
-			msg.add(p.sep);   // Leg sep
-			msg.add(0.0f);    // Leg sep sigma
-			msg.add(0.0f);    // Leftness
-			msg.add(1);  	// Visibility
-			sendOSC("Laser",msg); sendOSC("VD",msg);
+			w.begin("/pf/update");
+			w.add(frame);
+			w.add(elapsed); // Elapsed time
+			w.add(p.id);
+			w.add(p.getX());
+			w.add(p.getY());
+			w.add(p.getVX());
+			w.add(p.getVY());
+			w.add(0.0f);  // Major axis
+			w.add(0.0f);  // Minor axis
+			w.add(p.getGroupID()); // Groupd ID
+			w.add(p.getGroupSize());   // Group size
+			w.add(p.getChannel());   // channel
+			sendPF(w);
+
+			w.begin("/pf/body");
+			w.add(frame);
+			w.add(p.id);
+			w.add(p.getOriginInMeters().x);
+			w.add(p.getOriginInMeters().y);
+			w.add(0.0f);  // ex
+			w.add(0.0f);  // ey
+			w.add(p.getVelocityInMeters().mag());  // speed
+			w.add(0.0f);  // espeed
+			w.add((float)(p.getVelocityInMeters().heading()*180/Math.PI-90));  // heading		
+			w.add(0.0f);  // eheading
+			w.add(0.0f);  // Facing
+			w.add(0.0f);  // Efacing
+			w.add(p.getLegDiameterInMeters()); // Diameter
+			w.add(0.0f);   // Sigma(diameter)
+			w.add(p.getLegSeparationInMeters());   // Leg sep
+			w.add(0.0f);    // Leg sep sigma
+			w.add(0.0f);    // Leftness
+			w.add(1);  	// Visibility
+			sendPF(w);
 
 			for (int i=0;i<p.legs.length;i++) {
 				Leg leg=p.legs[i];
-				msg=new OscMessage("/pf/leg");
-				msg.add(frame);
-				msg.add(p.id);
-				msg.add(i);
-				msg.add(p.legs.length);
-				msg.add(leg.getOriginInMeters().x);
-				msg.add(leg.getOriginInMeters().y);
-				msg.add(0.0f);  // error in x
-				msg.add(0.0f);  // error in y
-				msg.add(leg.getVelocityInMeters().mag()); // speed
-				msg.add(0.0f);  // espd
-				msg.add((float)(leg.getVelocityInMeters().heading()*180/Math.PI-90)); // heading
-				msg.add(0.0f);   // eheading
-				msg.add(1);      // visibility
-				sendOSC("Laser",msg); sendOSC("VD",msg);
+				w.begin("/pf/leg");
+				w.add(frame);
+				w.add(p.id);
+				w.add(i);
+				w.add(p.legs.length);
+				w.add(leg.getOriginInMeters().x);
+				w.add(leg.getOriginInMeters().y);
+				w.add(0.0f);  // error in x
+				w.add(0.0f);  // error in y
+				w.add(leg.getVelocityInMeters().mag()); // speed
+				w.add(0.0f);  // espd
+				w.add((float)(leg.getVelocityInMeters().heading()*180/Math.PI-90)); // heading
+				w.add(0.0f);   // eheading
+				w.add(1);      // visibility
+				sendPF(w);
 			}
 		}
 	}
 
+	// Send synthetic /pf/* to everyone that would get it from the FrontEnd
+	// With MC we get our own copy from the group; the laser hasn't joined it, so it is still sent directly (see doc/PROTOCOL.txt)
+	void sendPF(OscWriter w) {
+		sendOSC("Laser",w);
+		if (MC != null)
+			sendOSC("MC",w);
+		else
+			sendOSC("VD",w);
+	}
+
 	void clearMice() {
-		OscMessage msg=new OscMessage("/pf/set/npeople");
-		msg.add(0);
-		sendOSC("Laser",msg); sendOSC("VD",msg);
+		OscWriter w=OscWriter.local().begin("/pf/set/npeople").add(0);
+		sendPF(w);
 	}
 	
-	synchronized public void pfupdate(int sampnum, float elapsed, int id, float xpos, float ypos, float xvelocity, float yvelocity, float majoraxis, float minoraxis, int groupid, int groupsize, int channel) {
+	public void pfupdate(int sampnum, float elapsed, int id, float xpos, float ypos, float xvelocity, float yvelocity, float majoraxis, float minoraxis, int groupid, int groupsize, int channel) {
 		/*	if (channel!=99) {
 			PApplet.print("update: ");
 			PApplet.print("samp="+sampnum);
@@ -1120,29 +1413,52 @@ public class Tracker extends PApplet {
 //			PApplet.println("Got ypos ("+ypos+") greater than lidarmaxy ("+Tracker.lidarmaxy+"),");
 //		}
 
-		people.getOrCreate(id,channel).move(new PVector(xpos, ypos), new PVector(xvelocity, yvelocity), groupid, groupsize, elapsed);
+		IngestQueue.Event e=ingest.claim(IngestQueue.UPDATE);
+		if (e!=null) {
+			e.frame=sampnum;
+			e.elapsed=elapsed;
+			e.id=id;
+			e.channel=channel;
+			e.x=xpos; e.y=ypos;
+			e.vx=xvelocity; e.vy=yvelocity;
+			e.groupid=groupid;
+			e.groupsize=groupsize;
+			e.received=oscP5.receiveTime();
+			ingest.publish();
+		}
 	}
 	
-	synchronized public void pfbody(int sampnum,int id,
+	public void pfbody(int sampnum,int id,
 			float x,float y,float ex,float ey,
 			float spd,float espd,float heading,float eheading,
 			float facing,float efacing,
 			float diam,float sigmadiam,
 			float sep,float sigmasep,
 			float leftness,int visibility) {
-		Person p=people.get(id);
-		if (p!=null) {
-			p.setLegSeparation(sep);
-			p.setLegDiameter(diam);
+		IngestQueue.Event e=ingest.claim(IngestQueue.BODY);
+		if (e!=null) {
+			e.frame=sampnum;
+			e.id=id;
+			e.sep=sep;
+			e.diam=diam;
+			ingest.publish();
 		}
 	}
-	synchronized public void pfleg(int sampnum,int id,int leg,int nlegs,
+	public void pfleg(int sampnum,int id,int leg,int nlegs,
 			float x,float y,float ex,float ey,
 			float spd,float espd,float heading,float eheading,
 			int visibility) {
-		Person p=people.get(id);
-		if (p!=null)
-			p.legs[leg].move(new PVector(x,y),new PVector((float)(-spd*Math.sin(heading*Math.PI/180)),(float)(spd*Math.cos(heading*Math.PI/180))));
+		IngestQueue.Event e=ingest.claim(IngestQueue.LEG);
+		if (e!=null) {
+			e.frame=sampnum;
+			e.id=id;
+			e.leg=leg;
+			e.x=x; e.y=y;
+			e.vx=(float)(-spd*Math.sin(heading*Math.PI/180));
+			e.vy=(float)(spd*Math.cos(heading*Math.PI/180));
+			e.received=oscP5.receiveTime();
+			ingest.publish();
+		}
 	}
 	public void pfsetminx(float minx) {  
 		if (Tracker.lidarminx != minx) {
@@ -1197,14 +1513,20 @@ public class Tracker extends PApplet {
 	}
 
 	public void pfbackground(int scanPt,int nrange,float angle,float backRange,float currRange) {
-		if (lidar.length != nrange) {
-			lidar=new PVector[nrange];
-			lidarbg=new PVector[nrange];
-		}
+		LidarScan scan=lidar;
+		if (scan.n != nrange)
+			lidar=scan=new LidarScan(nrange);
 		// pfbackground sends in range [-95,95]
-		lidar[scanPt]=new PVector(-currRange*sin(angle*PI/180),currRange*cos(angle*PI/180));
-		lidarbg[scanPt]=new PVector(-backRange*sin(angle*PI/180),backRange*cos(angle*PI/180));
-		//PApplet.println("background("+scanPt,", "+nrange+", "+angle+", "+backRange+", "+currRange+") -> "+lidar[scanPt]);
+		scan.set(scanPt,angle,backRange,currRange);
+		//PApplet.println("background("+scanPt,", "+nrange+", "+angle+", "+backRange+", "+currRange+")");
+	}
+
+	// Whole scan (or a run of it starting at first) as float32 blobs of background and current ranges
+	public void pfbackgroundblob(int first,int nrange,float angle0,float angleStep,byte bg[],byte curr[]) {
+		LidarScan scan=lidar;
+		if (scan.n != nrange)
+			lidar=scan=new LidarScan(nrange);
+		scan.set(first,angle0,angleStep,bg,curr);
 	}
 	
 	public void cycle() {
@@ -1219,32 +1541,47 @@ public class Tracker extends PApplet {
 //		cycler.change(hour>=7 && hour <= 19);
 	}
 	
-	synchronized public void pfsetnpeople(int n) {
-		PApplet.println("/pf/set/npeople: now have "+n+" people, size="+people.pmap.size());
+	public void pfsetnpeople(int n) {
+		IngestQueue.Event e=ingest.claim(IngestQueue.SETNPEOPLE);
+		if (e!=null) {
+			e.count=n;
+			ingest.publish();
+		}
+	}
+
+	private void setnpeople(int n) {
+		PApplet.println("/pf/set/npeople: now have "+n+" people, size="+incoming.pmap.size());
 		if (n==0)
 			setapp(currentvis);   // Cause a reset
-		if (n==0 && people.pmap.size()>0)
+		if (n==0 && incoming.pmap.size()>0)
 			if (autocycle)
 				cycle();
 //			else if (currentvis != getAppIndex("Bowie"))
 //				setapp(getAppIndex("Navier"));
 		
-		people.setnpeople(n);  // Also clears positions
+		incoming.setnpeople(n);  // Clears everyone when n is 0
 	}
 
-	synchronized public void pfexit(int sampnum, float elapsed, int id) {
+	public void pfexit(int sampnum, float elapsed, int id) {
 		PApplet.println("exit: sampnum="+sampnum+", elapsed="+elapsed+", id="+id);
-		people.exit(id);
-		if (people.pmap.size()==0)
-			if (autocycle)
-				cycle();
-//			else if (currentvis != getAppIndex("Bowie"))
-//				setapp(getAppIndex("Navier"));
+		IngestQueue.Event e=ingest.claim(IngestQueue.EXIT);
+		if (e!=null) {
+			e.frame=sampnum;
+			e.elapsed=elapsed;
+			e.id=id;
+			ingest.publish();
+		}
 	}
 
-	synchronized public void pfentry(int sampnum, float elapsed, int id, int channel) {
-		add(id,channel);
-		PApplet.println("entry: sampnum="+sampnum+", elapsed="+elapsed+", id="+id+", channel="+channel+", color="+people.get(id).getcolor());
+	public void pfentry(int sampnum, float elapsed, int id, int channel) {
+		IngestQueue.Event e=ingest.claim(IngestQueue.ENTRY);
+		if (e!=null) {
+			e.frame=sampnum;
+			e.elapsed=elapsed;
+			e.id=id;
+			e.channel=channel;
+			ingest.publish();
+		}
 	}
 
 	public void noteOn(int channel, int pitch, int velocity) {
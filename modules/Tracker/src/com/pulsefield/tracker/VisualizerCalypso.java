@@ -139,7 +139,7 @@ public class VisualizerCalypso extends Visualizer {
 							if (oldPitch[i]!=noteSpot.pitch) {
 								// New pitch, trigger it
 								PApplet.println("Play note "+noteSpot.pitch+", vel="+noteSpot.velocity+", dur="+noteSpot.duration);
-								synth.play(ps.id, noteSpot.pitch, noteSpot.velocity, noteSpot.duration, ps.channel);
+								synth.play(ps.id, noteSpot.pitch, noteSpot.velocity, noteSpot.duration, ps.getChannel());
 								noteSpot.setActive((int)(noteSpot.duration*parent.frameRate/1000));
 							}
 						}
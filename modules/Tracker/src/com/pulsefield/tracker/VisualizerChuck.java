@@ -3,6 +3,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import oscP5.OscMessage;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
@@ -10,12 +11,14 @@ import processing.core.PVector;
 
 // Visualizer that sends messages to chuck
 abstract class Fiducial extends Person {
-	Fiducial(Person ps) {
-		super(ps.getOriginInMeters(),ps.channel,ps.id);
+	final PVector npos=new PVector();	// Normalized position, filled in by getNormalizedPosition(npos) where needed
+
+	Fiducial(PeopleStore store, Person ps) {
+		super(store, ps.getX(), ps.getY(), ps.getChannel(), ps.id);
 	}
 
 	void update(Person ps) {
-		setNormalizedPosition(ps.getNormalizedPosition());
+		setPosition(ps.getX(), ps.getY());
 	}
 
 	abstract void draw(PGraphics parent, float sz);
@@ -131,8 +134,8 @@ class Generator extends Fiducial {
 	GeneratorType genType;
 	ArrayList<Controller> children;
 
-	Generator(Person ps, GeneratorType genType) {
-		super(ps);
+	Generator(PeopleStore store, Person ps, GeneratorType genType) {
+		super(store, ps);
 		this.genType=genType;
 		OscMessage msg = new OscMessage("/chuck/new");
 		msg.add(id);
@@ -154,12 +157,12 @@ class Generator extends Fiducial {
 	@Override
 	void update(Person ps) {
 		super.update(ps);
-		OscMessage msg = new OscMessage("/chuck/dev/"+id+"/pan");
-		msg.add((ps.getNormalizedPosition().x+1f)/2f);
-		Tracker.sendOSC("CK",msg);
-		msg = new OscMessage("/chuck/dev/"+id+"/y");
-		msg.add((-ps.getNormalizedPosition().y+1f)/2f); // Flip direction so top of screen (far side of PF) is 1.0
-		Tracker.sendOSC("CK",msg);
+		OscWriter w=OscWriter.local();
+		getNormalizedPosition(npos);
+		w.begin("/chuck/dev/"+id+"/pan").add((npos.x+1f)/2f);
+		Tracker.sendOSC("CK",w);
+		w.begin("/chuck/dev/"+id+"/y").add((-npos.y+1f)/2f); // Flip direction so top of screen (far side of PF) is 1.0
+		Tracker.sendOSC("CK",w);
 	}
 
 	@Override 
@@ -181,8 +184,8 @@ class Controller extends Fiducial {
 	CCPair cc;   // Controller numbers to use for (dir,dist), -1 to ignore
 	float cc1val, cc2val;
 
-	Controller(Person ps) {
-		super(ps);
+	Controller(PeopleStore store, Person ps) {
+		super(store, ps);
 		parent=null;
 		cc=null;
 	}
@@ -191,27 +194,23 @@ class Controller extends Fiducial {
 	void update(Person ps) {
 		super.update(ps);
 		if (parent!=null) {
-			float dir=PVector.sub(parent.getNormalizedPosition(),getNormalizedPosition()).heading();
-			float dist=PVector.dist(parent.getNormalizedPosition(),getNormalizedPosition());
+			parent.getNormalizedPosition(parent.npos);
+			getNormalizedPosition(npos);
+			float dir=(float)Math.atan2(parent.npos.y-npos.y, parent.npos.x-npos.x);
+			float dist=PVector.dist(parent.npos,npos);
 			if (cc.cc1!=-1) {
-				OscMessage msg = new OscMessage("/chuck/dev/"+parent.id+"/cc");
-				msg.add(cc.cc1);
 				cc1val = (float) (dir/(2*Math.PI)-0.25f);  // Map so up on screen is 0.0 and increases CW
 				if (cc1val<0)cc1val=cc1val+1f;
 				cc1val=cc1val*(cc.rng1.y-cc.rng1.x)+cc.rng1.x;
-				msg.add(cc1val);
-				Tracker.sendOSC("CK",msg);
+				Tracker.sendOSC("CK",OscWriter.local().begin("/chuck/dev/"+parent.id+"/cc").add(cc.cc1).add(cc1val));
 			}
 			if (cc.cc2!=-1) {
-				OscMessage msg = new OscMessage("/chuck/dev/"+parent.id+"/cc");
-				msg.add(cc.cc2);
 				// Linear from 0.0 at DISTBREAK to 1.0 at distance DISTCREATE
 				cc2val=(1.0f-(dist-Fiducials.DISTCREATE)/(Fiducials.DISTBREAK-Fiducials.DISTCREATE));
 				if (cc2val>1.0f) cc2val=1.0f;
 				if (cc2val<0.0f) cc2val=0.0f;
 				cc2val=cc2val*(cc.rng2.y-cc.rng2.x)+cc.rng2.x;
-				msg.add(cc2val);  
-				Tracker.sendOSC("CK",msg);
+				Tracker.sendOSC("CK",OscWriter.local().begin("/chuck/dev/"+parent.id+"/cc").add(cc.cc2).add(cc2val));
 			}
 		}
 	}
@@ -289,6 +288,7 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 	static final float DISTBREAK=0.5f;   // Distance to break connections (in screen normalized coordinates)
 	static final float DISTCREATE=0.2f;  // Distance to create connections 
 	private static final long serialVersionUID = -1131006311643745996L;
+	final PeopleStore store=new PeopleStore(16);	// Shared by the fiducials; a slot is released when its fiducial is removed
 
 	Fiducials() {
 		super();
@@ -298,6 +298,7 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 		for (Fiducial f: values()) {
 			PApplet.println("removeall: removing id "+f.id);
 			f.stop();
+			store.release(f.slot);
 		}
 		super.clear();
 	}
@@ -312,9 +313,9 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 		}
 		if (ngen==0 || (nctrl>0 && (new java.util.Random()).nextFloat() > 1.0f*ngen/(ngen+nctrl))) {
 			int genType=(new java.util.Random()).nextInt(Generator.NUMGENTYPES);
-			put(id, new Generator(pos,Generator.genTypes[genType]));
+			put(id, new Generator(store,pos,Generator.genTypes[genType]));
 		} else
-			put(id, new Controller(pos));
+			put(id, new Controller(store,pos));
 	}
 
 	void remove(int id) {
@@ -328,7 +329,9 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 				}
 			}	
 		}
-		super.remove(id);
+		Fiducial f=super.remove(id);
+		if (f!=null)
+			store.release(f.slot);
 	}
 
 	/* Make links from fiducials to lower numbered ones */
@@ -338,7 +341,7 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 				Controller c=(Controller)f;
 				if (c.parent != null) {
 					// Check if we need to break connection
-					float dist=PVector.dist(c.getNormalizedPosition(),c.parent.getNormalizedPosition());
+					float dist=PVector.dist(c.getNormalizedPosition(c.npos),c.parent.getNormalizedPosition(c.parent.npos));
 					if (dist>DISTBREAK) {
 						c.disconnect();
 					}
@@ -349,7 +352,7 @@ class Fiducials extends HashMap<Integer,Fiducial> {
 					Generator newparent=null;
 					for (Fiducial f2: values()) {
 						if (f2 instanceof Generator) {
-							float dist=PVector.dist(c.getNormalizedPosition(), f2.getNormalizedPosition());
+							float dist=PVector.dist(c.getNormalizedPosition(c.npos), f2.getNormalizedPosition(f2.npos));
 							//PApplet.println("Distance from "+f.id+" to "+f2.id+" = "+dist);
 							if (dist<mindist) {
 								mindist=dist;
@@ -1,8 +1,6 @@
 package com.pulsefield.tracker;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 
 import oscP5.OscMessage;
 import processing.core.PApplet;
@@ -104,11 +102,11 @@ public class VisualizerDDR extends Visualizer {
 	final int targetDifficulty=4;
 	int delayCounter=0;  // Counter to delay start of next song after one ends
 	
-	HashMap<Integer, Dancer> dancers;
+	IntObjectMap<Dancer> dancers;
 
 	VisualizerDDR(PApplet parent) {
 		super();
-		dancers = new HashMap<Integer, Dancer>();
+		dancers = new IntObjectMap<Dancer>();
 		arrow = parent.loadImage("DDR/arrow.png");
 		arrowHit = parent.loadImage("DDR/arrowHit.png");
 		dancerImages = new Images("DDR/dancers");
@@ -168,19 +166,23 @@ public class VisualizerDDR extends Visualizer {
 			return;
 		
 		// Update internal state of the dancers
-		for (int id: allpos.pmap.keySet()) {
-			if (!dancers.containsKey(id))
-				dancers.put(id,new Dancer(allpos.get(id).getOriginInMeters()));
-			PVector currentpos=allpos.get(id).getOriginInMeters();
-			dancers.get(id).update(currentpos);
+		for (int i=0;i<allpos.pmap.size();i++) {
+			int id=allpos.pmap.keyAt(i);
+			PVector currentpos=allpos.pmap.valueAt(i).getOriginInMeters();
+			Dancer d=dancers.get(id);
+			if (d==null) {
+				d=new Dancer(currentpos);
+				dancers.put(id,d);
+			}
+			d.update(currentpos);
 			//PApplet.println("Dancer "+id+" moved to "+currentpos.toString());
 		}
 		// Remove dancers for which we no longer have a position (exitted)
-		for (Iterator<Integer> iter = dancers.keySet().iterator();iter.hasNext();) {
-			int id=iter.next().intValue();
+		for (int i=dancers.size()-1;i>=0;i--) {
+			int id=dancers.keyAt(i);
 			if (!allpos.pmap.containsKey(id)) {
 				PApplet.println("Removing ID "+id);
-				iter.remove();
+				dancers.removeAt(i);
 			}
 		}
 		beat();
@@ -200,8 +202,9 @@ public class VisualizerDDR extends Visualizer {
 			PApplet.println("At clip time "+clip.position+", note timestamp "+n.timestamp+", notes="+n.notes);
 			for (int i=0;i<n.notes.length()&&i<4;i++) {
 				if (n.notes.charAt(i) != '0') {
-					for (int id: dancers.keySet()) {
-						Dancer d=dancers.get(id);
+					for (int j=0;j<dancers.size();j++) {
+						int id=dancers.keyAt(j);
+						Dancer d=dancers.valueAt(j);
 //						PApplet.println("Dancer "+id+" has aim "+d.getAim());
 						if (d.getAim() == AIMS[i]) {
 							d.setHit(true);
@@ -309,8 +312,9 @@ public class VisualizerDDR extends Visualizer {
 			if (delayCounter>150) {
 				PApplet.println("Song duration "+songdur+" ended; clip Position="+clip.position+", songdur="+songdur+", state="+clip.state);
 				chooseSong();
-				for (int id: dancers.keySet()) {
-					Dancer d=dancers.get(id);
+				for (int j=0;j<dancers.size();j++) {
+					int id=dancers.keyAt(j);
+					Dancer d=dancers.valueAt(j);
 					d.score=0;
 				}
 			}
@@ -332,15 +336,17 @@ public class VisualizerDDR extends Visualizer {
 		// Find current winner
 		int bestScore=-1;
 		int bestId=-1;
-		for (int id: dancers.keySet()) {
-			Dancer d=dancers.get(id);
+		for (int j=0;j<dancers.size();j++) {
+			int id=dancers.keyAt(j);
+			Dancer d=dancers.valueAt(j);
 			if (d.score>bestScore) {
 				bestScore=d.score;
 				bestId=id;
 			}
 		}
-		for (int id: dancers.keySet()) {
-			Dancer d=dancers.get(id);
+		for (int j=0;j<dancers.size();j++) {
+			int id=dancers.keyAt(j);
+			Dancer d=dancers.valueAt(j);
 			Person p=allpos.get(id);
 			if (p==null) {
 				PApplet.println("drawPF: Person "+id+" not found");
@@ -404,8 +410,9 @@ public class VisualizerDDR extends Visualizer {
 		g.ellipseMode(PConstants.CENTER);
 		g.imageMode(PConstants.CENTER);
 		g.textMode(PConstants.CENTER);
-		for (int id: dancers.keySet()) {
-			Dancer d=dancers.get(id);
+		for (int j=0;j<dancers.size();j++) {
+			int id=dancers.keyAt(j);
+			Dancer d=dancers.valueAt(j);
 			Person p=allpos.get(id);
 			if (p==null)
 				continue;
@@ -492,9 +499,10 @@ public class VisualizerDDR extends Visualizer {
 	public void drawLaserPF(PApplet parent, People allpos) {
 		Laser laser=Laser.getInstance();
 		
-		for (int id: dancers.keySet()) {
+		for (int j=0;j<dancers.size();j++) {
+			int id=dancers.keyAt(j);
 			laser.cellBegin(id);
-			Dancer d=dancers.get(id);
+			Dancer d=dancers.valueAt(j);
 
 			int quad=d.getAim();
 			//PApplet.println("Laser: ID="+id+", current="+d.current+", quad="+quad+", dist="+dist);
@@ -7,6 +7,7 @@ import processing.core.PVector;
 // Visualizer that just displays a dot for each person
 
 public class VisualizerDot extends Visualizer {
+	private final PVector legPos=new PVector();
 	
 	VisualizerDot(PApplet parent) {
 		super();
@@ -21,13 +22,14 @@ public class VisualizerDot extends Visualizer {
 		super.draw(t, g, p);
 
 		g.ellipseMode(PConstants.CENTER);
-		for (Person ps: p.pmap.values()) {  
+		for (int j=0;j<p.pmap.size();j++) {
+			Person ps=p.pmap.valueAt(j);
 			int c=ps.getcolor();
 			g.fill(c,255);
 			g.stroke(c,255);
 			for (int i=0;i<ps.legs.length;i++) {
 				Leg leg=ps.legs[i];
-				PVector pos=leg.getOriginInMeters();
+				PVector pos=leg.getPredictedPosition(legPos);   // Where the leg is by the time this frame is shown
 				g.ellipse(pos.x, pos.y, leg.getDiameterInMeters(), leg.getDiameterInMeters());
 			}
 		}
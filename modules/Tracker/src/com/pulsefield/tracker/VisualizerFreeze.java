@@ -261,7 +261,7 @@ public class VisualizerFreeze extends Visualizer {
 			float ypos=Tracker.miny+(Tracker.maxy-Tracker.miny)*y/buffer.height;
 			for (int x = 0; x < buffer.width; x++) {
 				float xpos=Tracker.minx+(Tracker.maxx-Tracker.minx)*x/buffer.width;
-				float temp=getTemperature(p,new PVector(xpos,ypos));
+				float temp=getTemperature(p,xpos,ypos);
 				buffer.set(x, y, (int)((300f-temp)/300f*256));
 			}
 		}
@@ -274,13 +274,19 @@ public class VisualizerFreeze extends Visualizer {
 
 	// Get the temperature at the given position in Kelvin
 	public static float getTemperature(People p, PVector pos) {
+		return getTemperature(p,pos.x,pos.y);
+	}
+
+	// Everyone contributes (weighted by 1/d^2), so this is a scan rather than a neighbor query; it is called per pixel, so it doesn't allocate
+	public static float getTemperature(People p, float x, float y) {
 		float totalWt=0f;
 		float totalTemp=0f;
 		totalWt+=1.0f;   // Background temperature of 300K
 		totalTemp+=totalWt*300f;
-		for (Person ps: p.pmap.values()) {  
-			float d=PVector.dist(ps.getOriginInMeters(),pos);
-			float wt=1f/(d*d);
+		for (int i=0;i<p.pmap.size();i++) {
+			Person ps=p.pmap.valueAt(i);
+			float dx=ps.getX()-x, dy=ps.getY()-y;
+			float wt=1f/(dx*dx+dy*dy);
 			totalWt+=wt;
 			totalTemp+=wt*getTemperature(ps);
 		}
@@ -288,7 +294,7 @@ public class VisualizerFreeze extends Visualizer {
 	}
 
 	private static float getTemperature(Person p) {
-		return 300f*Math.min(1.0f,p.getVelocityInMeters().mag()/0.5f);
+		return 300f*Math.min(1.0f,PApplet.mag(p.getVX(),p.getVY())/0.5f);
 	}
 
 }
@@ -1,7 +1,5 @@
 package com.pulsefield.tracker;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
 import oscP5.OscMessage;
 import processing.core.PApplet;
@@ -10,7 +8,7 @@ import processing.core.PGraphics;
 import processing.core.PVector;
 
 public class VisualizerGrid extends VisualizerPS {
-	HashMap<Integer,Integer> assignments;
+	IntIntMap assignments;
 	HashMap<Integer,String> gridColors;
 	float gposx[], gposy[];
 	float gridwidth, gridheight;
@@ -21,7 +19,7 @@ public class VisualizerGrid extends VisualizerPS {
 	
 	VisualizerGrid(PApplet parent) {
 		super(parent);
-		assignments = new HashMap<Integer,Integer>();
+		assignments = new IntIntMap();
 		gridColors = new HashMap<Integer,String>();
 		song=0;
 		setupGrid();
@@ -77,7 +75,8 @@ public class VisualizerGrid extends VisualizerPS {
 		titlePos.x=Tracker.minx+Tracker.getFloorSize().x/4;
 		titlePos.y=Tracker.miny+0.24f+0.1f;
 	//	HashMap<Integer,Integer> newAssignments=new HashMap<Integer,Integer>();
-		for (Person pos: allpos.pmap.values()) {
+		for (int j=0;j<allpos.pmap.size();j++) {
+			Person pos=allpos.pmap.valueAt(j);
 			//PApplet.println("ID "+pos.id+" pos="+pos.origin);
 			// Find closest grid position
 			// Check for song advance
@@ -88,15 +87,16 @@ public class VisualizerGrid extends VisualizerPS {
 			int closest=-1;
 			int current=-1;
 			double mindist=1e10f;
+			pos.getNormalizedPosition(npos);
 			// Check if we already had one
 			if (assignments.containsKey(pos.id)) {
-				current=assignments.get(pos.id);
+				current=assignments.get(pos.id,-1);
 				closest=current;
-				mindist=(Math.pow(gposx[closest]-pos.getNormalizedPosition().x,2)+Math.pow(gposy[closest]-pos.getNormalizedPosition().y,2))*0.8;  // Make it appear a little closer to create hysteresis
+				mindist=(Math.pow(gposx[closest]-npos.x,2)+Math.pow(gposy[closest]-npos.y,2))*0.8;  // Make it appear a little closer to create hysteresis
 				//PApplet.println("Had existing grid "+closest+" at distance "+Math.sqrt(mindist));	
 			}
 			for (int i=0;i<ncell;i++) {
-				double dist2=Math.pow(gposx[i]-pos.getNormalizedPosition().x,2)+Math.pow(gposy[i]-pos.getNormalizedPosition().y,2);
+				double dist2=Math.pow(gposx[i]-npos.x,2)+Math.pow(gposy[i]-npos.y,2);
 				if (dist2 < mindist) {
 					mindist=dist2;
 					closest=i;
@@ -115,12 +115,11 @@ public class VisualizerGrid extends VisualizerPS {
 			}
 		}
 
-		Iterator<Map.Entry<Integer,Integer> > i = assignments.entrySet().iterator();
-		while (i.hasNext()) {
-			int id=i.next().getKey();
+		for (int i=assignments.size()-1;i>=0;i--) {
+			int id=assignments.keyAt(i);
 			if (!allpos.pmap.containsKey(id)) {
 				PApplet.println("update: no update info for assignment for id "+id);
-				i.remove();
+				assignments.removeAt(i);
 			}
 		}
 	}
@@ -131,9 +130,9 @@ public class VisualizerGrid extends VisualizerPS {
 			return;
 		g.textAlign(PConstants.CENTER,PConstants.CENTER);
 		PVector gridOffset=new PVector(gridwidth/2, gridheight/2);
-		for (Map.Entry<Integer,Integer> entry: assignments. entrySet()) {
-			int id=entry.getKey();
-			int cell=entry.getValue();
+		for (int i=0;i<assignments.size();i++) {
+			int id=assignments.keyAt(i);
+			int cell=assignments.valueAt(i);
 			//PApplet.println("grid "+cell+", id="+id+" "+gridColors.get(cell));
 			g.fill(127,0,0,127);
 			g.strokeWeight(.05f);
@@ -160,8 +159,8 @@ public class VisualizerGrid extends VisualizerPS {
 		Laser laser=Laser.getInstance();
 		laser.bgBegin();
 		PVector gridOffset=new PVector(gridwidth/2, gridheight/2);
-		for (Map.Entry<Integer,Integer> entry: assignments. entrySet()) {
-			int cell=entry.getValue();
+		for (int i=0;i<assignments.size();i++) {
+			int cell=assignments.valueAt(i);
 			PVector gcenter=new PVector(gposx[cell],gposy[cell]);
 			PVector tl = Tracker.normalizedToFloor(PVector.sub(gcenter, gridOffset));
 			PVector br = Tracker.normalizedToFloor(PVector.add(gcenter, gridOffset));
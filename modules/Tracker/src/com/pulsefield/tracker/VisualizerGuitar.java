@@ -1,6 +1,4 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
-
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
@@ -55,7 +53,7 @@ class GString {
 			velocity=127;
 		this.velocity=velocity;
 		PApplet.println("Strike ("+p.getNormalizedPosition().x+","+p.getNormalizedPosition().y+") Vel="+velocity+", Color="+color);
-		synth.play(p.id, fretpitch+fret, velocity, vibrateTime, p.channel);
+		synth.play(p.id, fretpitch+fret, velocity, vibrateTime, p.getChannel());
 	}
 
 	public boolean isVibrating() {
@@ -76,7 +74,8 @@ class GString {
 public class VisualizerGuitar extends VisualizerPS {
 	final GString strings[]={new GString(40),new GString(45), new GString(50),new GString(55),new GString(59),new GString(64)};
 	Synth synth;
-	HashMap<Integer, PVector> lastpos;
+	final IntObjectMap<PVector> lastpos=new IntObjectMap<PVector>();   // Normalized position of each id at the previous update(); strikes are found from there
+	final PVector curp=new PVector();
 	PImage guitar;
 	TrackSet trackSet;
 	final static float laserScaling=0.75f;    // Scale laser drawing this much
@@ -84,7 +83,6 @@ public class VisualizerGuitar extends VisualizerPS {
 	public VisualizerGuitar(PApplet parent, Synth synth) {
 		super(parent);
 		this.synth=synth;
-		lastpos=new HashMap<Integer,PVector>();
 		guitar = parent.loadImage("guitar/guitar-center.png");
 		//guitar = parent.loadImage("guitar/fender.png");
 		for (int i=0;i<strings.length;i++)
@@ -102,6 +100,7 @@ public class VisualizerGuitar extends VisualizerPS {
 	@Override
 	public void stop() {
 		super.stop();
+		lastpos.clear();   // Positions from before a restart would strike every string crossed meanwhile
 	}
 
 
@@ -195,23 +194,28 @@ public class VisualizerGuitar extends VisualizerPS {
 
 	public void update(PApplet parent, People allpos) {
 		super.update(parent,allpos);
-		if (lastpos != null)
-			for (int id: allpos.pmap.keySet()) {
-				Person p=allpos.pmap.get(id);
-				PVector lastp=lastpos.get(id);
-				if (lastp!=null) {
-					//PApplet.println("y="+lastp.y+" -> "+p.origin.y);
-					for (int i=0;i<strings.length;i++) {
-						GString s=strings[i];
-						if ( (p.getNormalizedPosition().y > s.position) != (lastp.y >s.position) ) {
-							// Crossed a string
-							s.strike(synth, p, p.getcolor());
-						}
-					}
+		for (int k=0;k<allpos.pmap.size();k++) {
+			Person p=allpos.pmap.valueAt(k);
+			p.getNormalizedPosition(curp);
+			PVector lastp=lastpos.get(p.id);
+			if (lastp==null) {
+				// Anyone who arrived since the last update has no earlier position to have crossed from
+				lastpos.put(p.id, curp.copy());
+				continue;
+			}
+			//PApplet.println("y="+lastp.y+" -> "+curp.y);
+			for (int i=0;i<strings.length;i++) {
+				GString s=strings[i];
+				if ( (curp.y > s.position) != (lastp.y >s.position) ) {
+					// Crossed a string
+					s.strike(synth, p, p.getcolor());
 				}
 			}
-		lastpos.clear();
-		for (int id: allpos.pmap.keySet()) 
-			lastpos.put(id, new PVector(allpos.get(id).getNormalizedPosition().x,allpos.get(id).getNormalizedPosition().y));
+			lastp.set(curp);
+		}
+		// Forget anyone who has left
+		for (int k=lastpos.size()-1;k>=0;k--)
+			if (!allpos.pmap.containsKey(lastpos.keyAt(k)))
+				lastpos.removeAt(k);
 	}
 }
@@ -216,10 +216,12 @@ public class VisualizerHunter extends Visualizer {
 		
 		// Add new players if needed.
 		for (int id: allpos.pmap.keySet()) {
-			if (!players.containsKey(id)) {
+			Hunter h=players.get(id);
+			if (h==null) {
 				PApplet.println("Adding ID "+id);
 				players.put(id,new Hunter(allpos.pmap.get(id)));
-			}
+			} else
+				h.me=allpos.pmap.get(id);	// A re-entered id is a new Person
 		}
 		
 		// Remove players that left if needed.
@@ -2,7 +2,6 @@
 
 package com.pulsefield.tracker;
 
-import java.util.HashMap;
 
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -32,7 +31,7 @@ class Measure {
 		// Create a copy of the people list; we'll walk the full list and for each element
 		// we'll walk the copy; removing the covered person from the copy in each 
 		// pass to avoid the duplicate (reverse) pass.
-		HashMap<Integer, Person> peopleCopy = new HashMap<Integer,Person>(p.pmap);
+		IntObjectMap<Person> peopleCopy = new IntObjectMap<Person>(p.pmap);
 		
 		for (Person ps: p.pmap.values()) {
 			for (Person ps2: peopleCopy.values()) {
@@ -90,8 +89,7 @@ class Measure {
 			}
 			
 			// Remove the completed point so we don't revisit it's inverse segment.
-			// TODO: Double check this is working as expected.
-			peopleCopy.remove(ps);
+			peopleCopy.remove(ps.id);
 		}
 		
 		g.endDraw();
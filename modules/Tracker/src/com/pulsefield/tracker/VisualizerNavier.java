@@ -1,9 +1,12 @@
 package com.pulsefield.tracker;
 import oscP5.OscMessage;
+import oscP5.OscWriter;
+import oscP5.OscRouter;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
 import processing.core.PImage;
+import processing.core.PVector;
 
 class VisualizerNavier extends Visualizer {
 	NavierStokesSolver fluidSolver;
@@ -23,6 +26,7 @@ class VisualizerNavier extends Visualizer {
 	long statsU3=0;
 	long statsU4=0;
 	Synth synth;
+	final PVector npos=new PVector();
 	//MusicVisLaser mvl;
 	final int downSample=2;   // amount to downsample fluid image
 	
@@ -59,33 +63,31 @@ class VisualizerNavier extends Visualizer {
 	}
 
 
-	public void handleMessage(OscMessage msg) {
-		PApplet.println("Navier message: "+msg.toString());
-		String pattern=msg.addrPattern();
-		String components[]=pattern.split("/");
-		
-		if (components.length<3 || !components[2].equals("navier")) 
-			PApplet.println("Navier: Expected /video/navier messages, got "+msg.toString());
-		else if (components.length==4 && components[3].equals("viscosity")) {
-			visc=msg.get(0).floatValue();
-		} else if (components.length==4 && components[3].equals("diffusion")) {
-			diff=Math.pow(10f,msg.get(0).floatValue());
-		} else if (components.length==4 && components[3].equals("scale")) {
-			scale=msg.get(0).floatValue();
-		} else 
-			PApplet.println("Unknown Navier Message: "+msg.toString());
+	public void addRoutes(OscRouter router) {
+		router.add("/video/navier/viscosity", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { visc=msg.get(0).floatValue(); changed(); }
+		});
+		router.add("/video/navier/diffusion", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { diff=Math.pow(10f,msg.get(0).floatValue()); changed(); }
+		});
+		router.add("/video/navier/scale", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { scale=msg.get(0).floatValue(); changed(); }
+		});
+		router.addPrefix("/video/navier", new OscRouter.Handler() {
+			public void handle(OscMessage msg, int[] c) { PApplet.println("Unknown Navier Message: "+msg.toString()); }
+		});
+	}
+
+	private void changed() {
 		PApplet.println("visc="+visc+", diff="+diff+", scale="+scale);
 		setTO();
 	}
 
 	private void setTOValue(String name, double value, String fmt) {
 		TouchOSC to=TouchOSC.getInstance();
-		OscMessage set = new OscMessage("/video/navier/"+name);
-		set.add(value);
-		to.sendMessage(set);
-		set=new OscMessage("/video/navier/"+name+"/value");
-		set.add(String.format(fmt, value));
-		to.sendMessage(set);
+		OscWriter w=OscWriter.local();
+		to.sendMessage(w.begin("/video/navier/"+name).add(value));
+		to.sendMessage(w.begin("/video/navier/"+name+"/value").add(String.format(fmt, value)));
 	}
 	
 	public void setTO() {
@@ -167,15 +169,16 @@ class VisualizerNavier extends Visualizer {
 		for (Person pos: p.pmap.values()) {
 			//PApplet.println("ID "+pos.id+" avgspeed="+pos.avgspeed.mag());
 			if (pos.isMoving())
-				synth.play(pos.id,pos.channel+35,127,480,pos.channel);
+				synth.play(pos.id,pos.getChannel()+35,127,480,pos.getChannel());
 		}
 		long t1=System.nanoTime();
 		int n = NavierStokesSolver.N;
 		for (Person pos: p.pmap.values()) {
 			//PApplet.println("update("+p.channel+"), enabled="+p.enabled);
-			int cellX = (int)( (pos.getNormalizedPosition().x+1)*n / 2);
+			pos.getNormalizedPosition(npos);
+			int cellX = (int)( (npos.x+1)*n / 2);
 			cellX=Math.max(0,Math.min(cellX,n));
-			int cellY = (int) ((pos.getNormalizedPosition().y+1)*n/ 2);
+			int cellY = (int) ((npos.y+1)*n/ 2);
 			cellY=Math.max(0,Math.min(cellY,n));
 			double dx=pos.getVelocityInMeters().x/parent.frameRate*10;
 			double dy=pos.getVelocityInMeters().y/parent.frameRate*10;
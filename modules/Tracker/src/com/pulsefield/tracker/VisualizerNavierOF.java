@@ -3,6 +3,7 @@ import java.awt.Color;
 
 import codeanticode.syphon.SyphonClient;
 import oscP5.OscMessage;
+import oscP5.OscWriter;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
@@ -322,6 +323,7 @@ class NavierOFSettings {
 		Synth synth;
 		//MusicVisLaser mvl;
 		final int downSample=2;   // amount to downsample fluid image
+		private final PVector legPos=new PVector(), legVel=new PVector();   // Scratch for update()
 
 		VisualizerNavierOF(Tracker parent, Synth synth, String appName) {
 			super(parent, appName, "Main");
@@ -412,35 +414,34 @@ class NavierOFSettings {
 		}
 
 		void applyForce(int cellX, int cellY, double dx, double dy, float red, float green, float blue, float alpha, float radius, float temp, float dens) {
-			OscMessage msg = new OscMessage("/navier/force");
-			msg.add(cellX);
-			msg.add(cellY);
-			msg.add((float)dx);
-			msg.add((float)dy);
-			msg.add(red/255.0f);
-			msg.add(green/255.0f);
-			msg.add(blue/255.0f);
-			msg.add(alpha);
-			msg.add(radius);
-			msg.add(temp);
-			msg.add(dens);
+			OscWriter w=OscWriter.local().begin("/navier/force");
+			w.add(cellX);
+			w.add(cellY);
+			w.add((float)dx);
+			w.add((float)dy);
+			w.add(red/255.0f);
+			w.add(green/255.0f);
+			w.add(blue/255.0f);
+			w.add(alpha);
+			w.add(radius);
+			w.add(temp);
+			w.add(dens);
 			//PApplet.println("red="+(red/255.0)+", green="+(green/255.0)+", blue="+(blue/255.0));
-			OFOSC.getInstance().sendMessage(msg);
+			OFOSC.getInstance().sendMessage(w);
 		}
 
 		void setBorder(boolean onOff, float red, float green, float blue) {
-			OscMessage msg = new OscMessage("/navier/border");
-			msg.add(onOff?1.0f:0.0f);
-			msg.add(red/255.0f);
-			msg.add(green/255.0f);
-			msg.add(blue/255.0f);
+			OscWriter w=OscWriter.local().begin("/navier/border");
+			w.add(onOff?1.0f:0.0f);
+			w.add(red/255.0f);
+			w.add(green/255.0f);
+			w.add(blue/255.0f);
 
 			//PApplet.println("red="+(red/255.0)+", green="+(green/255.0)+", blue="+(blue/255.0));
-			OFOSC.getInstance().sendMessage(msg);
+			OFOSC.getInstance().sendMessage(w);
 		}
 		void updateForces() {
-			OscMessage msg = new OscMessage("/navier/updateForces");
-			OFOSC.getInstance().sendMessage(msg);
+			OFOSC.getInstance().sendMessage(OscWriter.local().begin("/navier/updateForces"));
 		}
 
 		@Override
@@ -452,7 +453,7 @@ class NavierOFSettings {
 			for (Person pos: p.pmap.values()) {
 				//PApplet.println("ID "+pos.id+" avgspeed="+pos.avgspeed.mag());
 				if (pos.isMoving())
-					synth.play(pos.id,pos.channel+35,127,480,pos.channel);
+					synth.play(pos.id,pos.getChannel()+35,127,480,pos.getChannel());
 			}
 			long t1=System.nanoTime();
 			int nwidth=1024, nheight=1024;
@@ -464,13 +465,15 @@ class NavierOFSettings {
 				//PApplet.println("update("+p.channel+"), enabled="+p.enabled);
 				for (int l=0;l<pos.legs.length;l++) {
 					Leg leg = pos.legs[l];
-					int cellX = (int)( (-leg.getNormalizedPosition().x+1)*nwidth / 2);
+					PVector npos=leg.getNormalizedPosition(legPos);
+					int cellX = (int)( (-npos.x+1)*nwidth / 2);
 					cellX=Math.max(0,Math.min(cellX,nwidth-1));
-					int cellY = (int) ((leg.getNormalizedPosition().y+1)*nheight/ 2);
+					int cellY = (int) ((npos.y+1)*nheight/ 2);
 					cellY=Math.max(0,Math.min(cellY,nheight-1));
 
-					double dx=leg.getNormalizedVelocity().x*nwidth/2; // In pixels/sec
-					double dy=leg.getNormalizedVelocity().y*nheight/2;
+					PVector nvel=leg.getNormalizedVelocity(legVel);
+					double dx=nvel.x*nwidth/2; // In pixels/sec
+					double dy=nvel.y*nheight/2;
 					float radius=leg.getDiameterInMeters()/Tracker.getFloorSize().x*nwidth/2*settings[currentSettings].legScale;
 					int c;
 					if (settings[currentSettings].multiColor) {
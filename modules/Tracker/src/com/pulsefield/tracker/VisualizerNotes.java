@@ -71,7 +71,7 @@ public class VisualizerNotes extends VisualizerDot {
 						newPitch[i]=noteSpot.pitch;
 						if (oldPitch[i]!=noteSpot.pitch) {
 							// New pitch, trigger it
-							synth.play(ps.id, noteSpot.pitch, noteSpot.velocity, noteSpot.duration, ps.channel);
+							synth.play(ps.id, noteSpot.pitch, noteSpot.velocity, noteSpot.duration, ps.getChannel());
 						}
 					}
 				}
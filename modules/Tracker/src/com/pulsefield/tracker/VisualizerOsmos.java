@@ -1,7 +1,5 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
@@ -211,11 +209,11 @@ public class VisualizerOsmos extends Visualizer {
 	Images marbleImages;
 	Effects effects;
 
-	HashMap<Integer, PlayerMarble> marbles;
+	IntObjectMap<PlayerMarble> marbles;
 
 	VisualizerOsmos(PApplet parent, Synth synth) {
 		super();
-		marbles = new HashMap<Integer, PlayerMarble>();
+		marbles = new IntObjectMap<PlayerMarble>();
 		marbleImages=new Images("osmos/marbles");
 		effects=new Effects(synth,123);
 		effects.add("COLLIDE",52,55);
@@ -224,20 +222,24 @@ public class VisualizerOsmos extends Visualizer {
 	
 	public void update(PApplet parent, People allpos) {		
 		// Update internal state of the Marbles
-		for (int id: allpos.pmap.keySet()) {
-			if (!marbles.containsKey(id))
-				marbles.put(id,new PlayerMarble(allpos.get(id),allpos.get(id).getOriginInMeters(),allpos.get(id).getVelocityInMeters(),marbleImages.getRandom()));
-			PVector currentpos=allpos.get(id).getOriginInMeters();
-			marbles.get(id).updatePosition(currentpos);
+		for (int i=0;i<allpos.pmap.size();i++) {
+			int id=allpos.pmap.keyAt(i);
+			Person ps=allpos.pmap.valueAt(i);
+			PlayerMarble m=marbles.get(id);
+			if (m==null) {
+				m=new PlayerMarble(ps,ps.getOriginInMeters(),ps.getVelocityInMeters(),marbleImages.getRandom());
+				marbles.put(id,m);
+			}
+			PVector currentpos=ps.getOriginInMeters();
+			m.updatePosition(currentpos);
 			//PApplet.println("Marble "+id+" moved to "+currentpos.toString());
 		}
 		// Remove Marbles for which we no longer have a position (exitted)
-		for (Iterator<Integer> iter = marbles.keySet().iterator();iter.hasNext();) {
-			int id=iter.next().intValue();
+		for (int i=marbles.size()-1;i>=0;i--) {
+			int id=marbles.keyAt(i);
 			if (!allpos.pmap.containsKey(id)) {
 				PApplet.println("Removing ID "+id);
-				marbles.get(id).destroy();
-				iter.remove();
+				marbles.removeAt(i).destroy();
 			}
 		}
 		Marble.updateAll(effects);
@@ -246,7 +248,7 @@ public class VisualizerOsmos extends Visualizer {
 
 	public void start() {
 		super.start();
-		marbles = new HashMap<Integer, PlayerMarble>();
+		marbles = new IntObjectMap<PlayerMarble>();
 		Ableton.getInstance().setTrackSet("Osmos");
 	}
 
@@ -1,7 +1,4 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
-import java.util.Map;
-
 import processing.core.PApplet;
 import processing.core.PGraphics;
 import processing.core.PImage;
@@ -12,17 +9,19 @@ public class VisualizerPS extends Visualizer {
 	PImage img;
 	float attractionForce=1;
 	int birthrate=5;
-	HashMap<Integer, ParticleSystem> systems;
+	IntObjectMap<ParticleSystem> systems;
+	final PVector npos=new PVector(), nvel=new PVector();	// Normalized position and velocity of the person being updated
 
 	VisualizerPS(PApplet parent) {
 		super();
-		systems = new HashMap<Integer,ParticleSystem>();
+		systems = new IntObjectMap<ParticleSystem>();
 		img = parent.loadImage("texture.png");
 	}
 
 	public void update(PApplet parent, People p) {
-		for (int id: p.pmap.keySet()) {
-			Person pos=p.pmap.get(id);
+		for (int i=0;i<p.pmap.size();i++) {
+			int id=p.pmap.keyAt(i);
+			Person pos=p.pmap.valueAt(i);
 			ParticleSystem ps=systems.get(id);
 			if (ps==null) {
 				PApplet.println("Added new particle system for ID "+id);
@@ -32,11 +31,12 @@ public class VisualizerPS extends Visualizer {
 
 			// Push the other systems with each positions velocity
 			if (pos.isMoving())
-				for (ParticleSystem ps2: systems.values()) {
+				for (int j=0;j<systems.size();j++) {
+					ParticleSystem ps2=systems.valueAt(j);
 					// if (ps!=ps2) 
 					//ps.attractor(ps2.origin, attractionForce);
 //					PApplet.println("Pushing PS "+ps2+" from "+pos.getNormalizedPosition()+" with vel="+pos.getNormalizedVelocity());
-					ps2.push(pos.getNormalizedPosition(), PVector.div(pos.getNormalizedVelocity(),parent.frameRate));   // Convert velocity into normalized units/frame
+					ps2.push(pos.getNormalizedPosition(npos), pos.getNormalizedVelocity(nvel).div(parent.frameRate));   // Convert velocity into normalized units/frame
 				}
 
 			for (int k=0;k<birthrate;k++)
@@ -44,11 +44,11 @@ public class VisualizerPS extends Visualizer {
 		}
 		int toRemove=-1;
 
-		for (Map.Entry<Integer,ParticleSystem> me: systems.entrySet()) {
-			ParticleSystem ps=me.getValue();
+		for (int i=0;i<systems.size();i++) {
+			ParticleSystem ps=systems.valueAt(i);
 			ps.update();
 
-			int id = me.getKey();
+			int id = systems.keyAt(i);
 			if (ps.dead()) {
 				PApplet.println("ID "+id+" is dead.");
 				toRemove=id;
@@ -76,10 +76,8 @@ public class VisualizerPS extends Visualizer {
 		}
 
 		
-		for (Map.Entry<Integer,ParticleSystem> me: systems.entrySet()) {
-			ParticleSystem ps=me.getValue();
-			ps.draw(g);
-		}
+		for (int i=0;i<systems.size();i++)
+			systems.valueAt(i).draw(g);
 	}
 
 }
@@ -28,7 +28,7 @@ public class VisualizerPads extends VisualizerPS {
 		for (Person pos: allpos.pmap.values()) {
 			//PApplet.println("ID "+pos.id+" avgspeed="+pos.avgspeed.mag());
 			if (pos.isMoving())
-				synth.play(pos.id,pos.channel+35,127,480,pos.channel);
+				synth.play(pos.id,pos.getChannel()+35,127,480,pos.getChannel());
 		}
 	}
 }
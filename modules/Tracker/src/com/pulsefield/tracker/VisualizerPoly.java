@@ -1,7 +1,4 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
-import java.util.Iterator;
-
 import oscP5.OscMessage;
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -16,6 +13,7 @@ class PolyState {
 	float startBeat;
 	float noteDuration;
 	Person pos;
+	final PVector npos=new PVector();
 	int color;
 	int mybeat;
 	float lastbeat;
@@ -37,17 +35,18 @@ class PolyState {
 			playing=false;
 		}
 		// Compute radius in aspect-preserved normalized coords (scaled by longest dimension to maintain aspect ratio)
-		mybeat=(int)(pos.getNormalizedPosition(true).mag()*totalBeats/0.95f+0.5);
+		pos.getNormalizedPosition(true, npos);
+		mybeat=(int)(npos.mag()*totalBeats/0.95f+0.5);
 		if (mybeat==0)
 			mybeat=1;
 		boolean isDrummer=(channel==2);
-		if (!playing && (((int)(beat*4)-(int)(startBeat*4))>=mybeat || pos.groupsize>1 ) && (int)(beat*4) != (int)(startBeat*4)) {
+		if (!playing && (((int)(beat*4)-(int)(startBeat*4))>=mybeat || pos.getGroupSize()>1 ) && (int)(beat*4) != (int)(startBeat*4)) {
 			if (isDrummer) {
-				int pitch=(int)((pos.getNormalizedPosition(true).heading()+Math.PI)/(2*Math.PI)*16+35);
+				int pitch=(int)((npos.heading()+Math.PI)/(2*Math.PI)*16+35);
 				synth.play(pos.id, pitch, 127, (int)(noteDuration*480), channel);
 			} else {	
 				// Play note
-				int pitch=(int)((pos.getNormalizedPosition(true).heading()+Math.PI)/(2*Math.PI)*46+35);
+				int pitch=(int)((npos.heading()+Math.PI)/(2*Math.PI)*46+35);
 
 				PApplet.println("Play note "+pitch+" on channel "+channel+" from beat "+beat+" to "+(startBeat+noteDuration));
 				// Send MIDI
@@ -57,11 +56,11 @@ class PolyState {
 			startBeat=beat;
 		}
 		lastbeat=beat;
-		if (pos.groupsize>1 && beat-lastGrouping>2) {
+		if (pos.getGroupSize()>1 && beat-lastGrouping>2) {
 			isDrummer=(Math.random() <DRUMMERPROB);
 			int newInstrument=(int)(Math.random()*127+1);
-			PApplet.println("ID "+pos.id+" is in group ("+pos.groupid+","+pos.groupsize+"), changing to GM instrument "+newInstrument);
-			OscMessage msg=new OscMessage("/midi/setpgm/"+pos.channel);
+			PApplet.println("ID "+pos.id+" is in group ("+pos.getGroupID()+","+pos.getGroupSize()+"), changing to GM instrument "+newInstrument);
+			OscMessage msg=new OscMessage("/midi/setpgm/"+pos.getChannel());
 			msg.add(newInstrument);
 			Tracker.sendOSC("MPO",msg);
 			lastGrouping=beat;
@@ -85,11 +84,11 @@ class PolyState {
 			g.stroke(color);
 			g.ellipse(center.x,center.y,mybeat*maxRadius*2/totalBeats,mybeat*maxRadius*2/totalBeats);
 		}
-		if (pos.groupsize > 1) {
+		if (pos.getGroupSize() > 1) {
 			final int NBOLTS=20;
 			for (int k=0;k<NBOLTS;k++)
 				if (Math.random() < 0.2) {
-					float BOLTLENGTH=(float) (maxRadius/10*pos.groupsize*Math.random());
+					float BOLTLENGTH=(float) (maxRadius/10*pos.getGroupSize()*Math.random());
 					PVector delta=new PVector((float)Math.cos(Math.PI*2*k/NBOLTS)*BOLTLENGTH,(float)Math.sin(Math.PI*2*k/NBOLTS)*BOLTLENGTH);
 					g.fill(color,127);
 					g.line(origin.x,origin.y,origin.x+delta.x,origin.y+delta.y);
@@ -106,7 +105,7 @@ class PolyState {
 			g.fill(255);
 			g.textAlign(PConstants.LEFT,PConstants.BASELINE);
 			if (true) {
-				MidiProgram mp=synth.getMidiProgam(pos.channel);
+				MidiProgram mp=synth.getMidiProgam(pos.getChannel());
 				if (mp!=null)
 					Visualizer.drawText(g,0.8f*rowheight,mp.name,Tracker.minx+3+dotsize,rowpos);
 			}
@@ -119,9 +118,9 @@ class PolyState {
 			laser.circle(center.x, center.y, mybeat*maxRadius/totalBeats);
 			laser.shapeEnd("circle"+mybeat);
 		}
-		if (pos.groupsize > 1) {
+		if (pos.getGroupSize() > 1) {
 			final int NBOLTS=20;
-			float BOLTLENGTH=(Tracker.maxy-Tracker.miny)/20*pos.groupsize;
+			float BOLTLENGTH=(Tracker.maxy-Tracker.miny)/20*pos.getGroupSize();
 			for (int k=0;k<NBOLTS;k++)
 				if (Math.random() < 0.2) {
 					PVector delta=new PVector((float)Math.cos(Math.PI*2*k/NBOLTS)*BOLTLENGTH,(float)Math.sin(Math.PI*2*k/NBOLTS)*BOLTLENGTH);
@@ -135,7 +134,7 @@ class PolyState {
 }
 
 public class VisualizerPoly extends Visualizer {
-	HashMap<Integer,PolyState> poly;
+	IntObjectMap<PolyState> poly;
 	int totalBeats=16;
 	float tempo=120f;
 	float playTime;
@@ -148,7 +147,7 @@ public class VisualizerPoly extends Visualizer {
 	
 	VisualizerPoly(PApplet parent, Scale scale, Synth synth) {
 		super();
-		poly=new HashMap<Integer,PolyState>();
+		poly=new IntObjectMap<PolyState>();
 		this.scale=scale;
 		this.synth=synth;
 		this.channel=-1;
@@ -177,21 +176,23 @@ public class VisualizerPoly extends Visualizer {
 		// Update current radius of all players
 		float beat=MasterClock.getBeat();
 		//PApplet.println("Beat "+beat);
-		for (int id: allpos.pmap.keySet()) {
+		for (int i=0;i<allpos.pmap.size();i++) {
+			int id=allpos.pmap.keyAt(i);
+			Person p=allpos.pmap.valueAt(i);
 			PolyState ps=poly.get(id);
 			if (ps==null) {
-				Person p=allpos.get(id);
 				ps=new PolyState(p,noteDuration,p.getcolor());
 				poly.put(id, ps);
-			}
+			} else
+				ps.pos=p;	// A re-entered id is a new Person
 			ps.update(beat,totalBeats,scale,synth,channel);
 		}
 		// Remove polys for which we no longer have a position (exitted)
-		for (Iterator<Integer> iter = poly.keySet().iterator();iter.hasNext();) {
-			int id=iter.next().intValue();
+		for (int i=poly.size()-1;i>=0;i--) {
+			int id=poly.keyAt(i);
 			if (!allpos.pmap.containsKey(id)) {
 				PApplet.println("Removing ID "+id);
-				iter.remove();
+				poly.removeAt(i);
 			}
 		}
 	}
@@ -217,11 +218,8 @@ public class VisualizerPoly extends Visualizer {
 		}
 
 		// Draw each position and fired rings
-		int pos=0;
-		for (PolyState ps: poly.values()) {
-			ps.draw(g,center,sz/2,totalBeats,pos,synth);
-			pos++;
-		}
+		for (int pos=0;pos<poly.size();pos++)
+			poly.valueAt(pos).draw(g,center,sz/2,totalBeats,pos,synth);
 	}
 	
 	@Override
@@ -234,11 +232,8 @@ public class VisualizerPoly extends Visualizer {
 		laser.bgBegin();
 
 		// Draw each position and fired rings
-		int pos=0;
-		for (PolyState ps: poly.values()) {
-			ps.drawLaser(center,maxRadius,totalBeats,pos);
-			pos++;	
-		}
+		for (int pos=0;pos<poly.size();pos++)
+			poly.valueAt(pos).drawLaser(center,maxRadius,totalBeats,pos);
 		laser.bgEnd();
 		for (Person ps: p.pmap.values()) {  
 			laser.cellBegin(ps.id);
@@ -15,6 +15,8 @@ public class VisualizerProximity extends VisualizerPS {
 	TrackSet ts;
 	static final float MAXSEP=0.2f; // Maximum separation to trigger
 	PVector titlePos = new PVector(0,0);;
+	Person near[]=new Person[16];   // Neighbor query results
+	final PVector nearpos=new PVector();
 	
 	VisualizerProximity(PApplet parent) {
 		super(parent);
@@ -56,14 +58,16 @@ public class VisualizerProximity extends VisualizerPS {
 		titlePos.y=Tracker.miny+0.24f+0.1f;
 		
 	//	HashMap<Integer,Integer> newAssignments=new HashMap<Integer,Integer>();
-		for (Map.Entry<Integer,Person> e1: allpos.pmap.entrySet()) {
-			int id1=e1.getKey();
+		// Normalized distance is at least 2/max(floor size) per meter, so no one further than this can be within MAXSEP (even with hysteresis)
+		float reach=(float)Math.sqrt(MAXSEP/0.9)*Math.max(Tracker.maxx-Tracker.minx,Tracker.maxy-Tracker.miny)/2;
+		for (int i=0;i<allpos.pmap.size();i++) {
+			int id1=allpos.pmap.keyAt(i);
 			// Check for song advance
-			if (PVector.sub(titlePos, e1.getValue().getOriginInMeters()).mag() < 0.3f) {
+			if (PVector.sub(titlePos, allpos.pmap.valueAt(i).getOriginInMeters()).mag() < 0.3f) {
 				// Change song
 				songIncr(1);
 			}
-			PVector pos1=e1.getValue().getNormalizedPosition();
+			PVector pos1=allpos.pmap.valueAt(i).getNormalizedPosition(npos);
 			// Find closest NEIGHBOR	
 			int closest=-1;
 			double mindist=MAXSEP;
@@ -71,11 +75,17 @@ public class VisualizerProximity extends VisualizerPS {
 			if (assignments.containsKey(id1))
 				current=assignments.get(id1);
 			
-			for (Map.Entry<Integer,Person> e2: allpos.pmap.entrySet()) {
-				int id2=e2.getKey();
+			Person ps1=allpos.pmap.valueAt(i);
+			int nnear=allpos.index.withinRadius(ps1.getX(), ps1.getY(), reach, near);
+			if (nnear>near.length) {
+				near=new Person[nnear];
+				allpos.index.withinRadius(ps1.getX(), ps1.getY(), reach, near);
+			}
+			for (int j=0;j<nnear;j++) {
+				int id2=near[j].id;
 				if (id1==id2)
 					continue;
-				PVector pos2=e2.getValue().getNormalizedPosition();
+				PVector pos2=near[j].getNormalizedPosition(nearpos);
 				
 				double dist2=Math.pow(pos1.x-pos2.x,2)+Math.pow(pos1.y-pos2.y,2);
 				if (id2==current)
@@ -165,10 +175,9 @@ public class VisualizerProximity extends VisualizerPS {
 			if (id2==-1)
 				continue;
 			laser.shapeBegin("prox:"+id1+"-"+id2);
-			PVector p1 = Tracker.normalizedToFloor(p.get(id1).getNormalizedPosition());
-			PVector p2 = Tracker.normalizedToFloor(p.get(id2).getNormalizedPosition());
+			Person p1=p.get(id1), p2=p.get(id2);
 //			PApplet.println("Drawing line "+p1+" to "+p2);
-			laser.line(p1.x,p1.y,p2.x,p2.y);
+			laser.line(p1.getX(),p1.getY(),p2.getX(),p2.getY());
 			laser.shapeEnd("prox:"+id1+"-"+id2);
 		}
 		laser.bgEnd();
@@ -1,7 +1,5 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 
 import processing.core.PApplet;
 import processing.core.PConstants;
@@ -289,13 +287,13 @@ class Stickman {
 }
 
 public class VisualizerStickman extends Visualizer {
-	HashMap<Integer, Stickman> sticks;
+	IntObjectMap<Stickman> sticks;
 	Effects effects;
 
 
 	VisualizerStickman(PApplet parent, Synth synth) {
 		super();
-		sticks = new HashMap<Integer, Stickman>();
+		sticks = new IntObjectMap<Stickman>();
 		effects=new Effects(synth,123);
 		effects.add("COLLIDE",52,55);
 		effects.add("SPLIT",40,42);
@@ -303,19 +301,22 @@ public class VisualizerStickman extends Visualizer {
 	
 	public void update(PApplet parent, People allpos) {		
 		// Update internal state of the Marbles
-		for (int id: allpos.pmap.keySet()) {
-			if (!sticks.containsKey(id))
-				sticks.put(id,new Stickman(2.0f,id));
-			sticks.get(id).updatePosition(allpos.get(id));
+		for (int i=0;i<allpos.pmap.size();i++) {
+			int id=allpos.pmap.keyAt(i);
+			Stickman s=sticks.get(id);
+			if (s==null) {
+				s=new Stickman(2.0f,id);
+				sticks.put(id,s);
+			}
+			s.updatePosition(allpos.pmap.valueAt(i));
 			//PApplet.println("Marble "+id+" moved to "+currentpos.toString());
 		}
 		// Remove Marbles for which we no longer have a position (exitted)
-		for (Iterator<Integer> iter = sticks.keySet().iterator();iter.hasNext();) {
-			int id=iter.next().intValue();
+		for (int i=sticks.size()-1;i>=0;i--) {
+			int id=sticks.keyAt(i);
 			if (!allpos.pmap.containsKey(id)) {
 				PApplet.println("Removing ID "+id);
-				sticks.get(id).destroy();
-				iter.remove();
+				sticks.removeAt(i).destroy();
 			}
 		}
 		Stickman.updateAll(effects);
@@ -325,7 +326,8 @@ public class VisualizerStickman extends Visualizer {
 		super.draw(t, g, p);
 		
 		g.ellipseMode(PConstants.CENTER);
-		for (Person ps: p.pmap.values()) {  
+		for (int i=0;i<p.pmap.size();i++) {
+			Person ps=p.pmap.valueAt(i);
 			int c=ps.getcolor();
 			g.noFill();
 			g.stroke(c,255);
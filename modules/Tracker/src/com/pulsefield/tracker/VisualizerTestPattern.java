@@ -93,11 +93,10 @@ public class VisualizerTestPattern extends VisualizerDot {
 		}
 		g.stroke(0,255,0);
 		g.fill(0,255,0);
-		if (Tracker.theTracker.lidarbg != null)
-			for (PVector pt: Tracker.theTracker.lidarbg) {
-				if (pt!=null)
-					g.point(pt.x, pt.y);
-			}
+		LidarScan scan=Tracker.theTracker.lidar;
+		for (int i=0;i<scan.n;i++)
+			if (scan.bgrange[i]>0)
+				g.point(scan.bgx(i), scan.bgy(i));
 
 	}
 	
@@ -1,6 +1,4 @@
 package com.pulsefield.tracker;
-import java.util.HashMap;
-import java.util.Iterator;
 
 import processing.core.PApplet;
 import processing.core.PGraphics;
@@ -37,19 +35,20 @@ public class VisualizerTron extends Visualizer {
 	float lastbeat=0;
 	float notedur=0.25f;
 	GridData grid[];
-	HashMap<Integer,Integer> currentgrid;
-	HashMap<Integer,Cursor> playgrid;  // Current playing grid;  -ve is backing up
+	IntIntMap currentgrid;
+	IntObjectMap<Cursor> playgrid;  // Current playing grid;  -ve is backing up
 	Scale scale;
 	Synth synth;
 	TrackSet trackSet;
+	final PVector npos=new PVector();
 	
 	VisualizerTron(PApplet parent, Scale scale, Synth synth) {
 		super();
 		grid=new GridData[gridWidth*gridHeight];
 		for (int i=0;i<grid.length;i++)
 			grid[i]=new GridData();
-		currentgrid=new HashMap<Integer,Integer>();
-		playgrid=new HashMap<Integer,Cursor>();
+		currentgrid=new IntIntMap();
+		playgrid=new IntObjectMap<Cursor>();
 		this.scale=scale;
 		this.synth=synth;
 	}
@@ -120,8 +119,9 @@ public class VisualizerTron extends Visualizer {
 	public void update(PApplet parent, People positions) {
 		float beat=MasterClock.getBeat();
 		if ((int)(beat/notedur) != (int)(lastbeat/notedur)) {
-			for (int id: playgrid.keySet()) {
-				Cursor pg=playgrid.get(id);
+			for (int i=0;i<playgrid.size();i++) {
+				int id=playgrid.keyAt(i);
+				Cursor pg=playgrid.valueAt(i);
 				int p=pg.grid;
 				boolean fwd=pg.fwd;
 
@@ -146,7 +146,7 @@ public class VisualizerTron extends Visualizer {
 						pg.pitch+=(delta>0)?1:-1;
 						//PApplet.println("ID "+id+": "+pg.pitch);
 						if (positions.get(id)!=null)
-							synth.play(id, pg.pitch, 127, (int)(notedur*480*2), positions.get(id).channel);
+							synth.play(id, pg.pitch, 127, (int)(notedur*480*2), positions.get(id).getChannel());
 					}
 					pg.fwd=fwd;
 					pg.grid=n;
@@ -156,12 +156,12 @@ public class VisualizerTron extends Visualizer {
 		}
 
 
-		for (int id: positions.pmap.keySet()) {
-			Person ps=positions.get(id);
-			PVector newpos=ps.getNormalizedPosition();
-			int gpos=postogrid(newpos);
-			if (currentgrid.containsKey(id)  && currentgrid.get(id)!=-1) {
-				int oldgpos=currentgrid.get(id);
+		for (int i=0;i<positions.pmap.size();i++) {
+			int id=positions.pmap.keyAt(i);
+			Person ps=positions.pmap.valueAt(i);
+			int gpos=postogrid(ps.getNormalizedPosition(npos));
+			int oldgpos=currentgrid.get(id,-1);
+			if (oldgpos!=-1) {
 				assert(grid[oldgpos].id == id);
 				int priorgpos=grid[oldgpos].prevgrid;
 				if (gpos==priorgpos && grid[oldgpos].id==id) {
@@ -207,13 +207,13 @@ public class VisualizerTron extends Visualizer {
 				currentgrid.put(id,-1);
 			}
 		}
-		for (Iterator<Integer> iter = currentgrid.keySet().iterator();iter.hasNext();) {
-			int id=iter.next().intValue();
+		for (int i=currentgrid.size()-1;i>=0;i--) {
+			int id=currentgrid.keyAt(i);
 			if (!positions.pmap.containsKey(id)) {
 				PApplet.println("Removing ID "+id);
 				playgrid.remove(id);
 				clear(id);
-				iter.remove();
+				currentgrid.removeAt(i);
 			}
 		}
 	}
@@ -256,7 +256,7 @@ public class VisualizerTron extends Visualizer {
 					} else {
 						float inset=0.05f;
 						g.stroke(0);
-						if (currentgrid.containsKey(gid) && currentgrid.get(gid)==i*gridHeight+j) {
+						if (currentgrid.get(gid,-1)==i*gridHeight+j) {
 							g.fill(g.color(255,255,255));
 							g.rect(c1.x,c1.y,c2.x-c1.x,c2.y-c1.y);
 							inset=0;
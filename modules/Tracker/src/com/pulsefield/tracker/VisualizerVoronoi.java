@@ -167,7 +167,7 @@ public class VisualizerVoronoi extends VisualizerPS {
 					voices.remove(curVoice);
 					curVoice=null;
 				} else {
-					curVoice.play(scale, synth, (int)(noteDuration*480), pos.channel);
+					curVoice.play(scale, synth, (int)(noteDuration*480), pos.getChannel());
 					curVoice.playing=true;
 				}
 			}